@@ -43,7 +43,29 @@ android {
         // OCR multi-variant configuration
         buildConfigField("int", "MAX_VARIANTS", "8")
         buildConfigField("float", "EARLY_EXIT_FILLED_THRESHOLD", "0.70f")
-        
+        // Variants preprocessed and sent to Vision concurrently (1 = sequential)
+        buildConfigField("int", "OCR_PARALLEL_VARIANTS", "3")
+        // On-disk cache of Vision results keyed by image hash + detection mode
+        buildConfigField("long", "OCR_CACHE_MAX_BYTES", "8388608L")
+        buildConfigField("int", "OCR_CACHE_TTL_HOURS", "168")
+        // Vision images:annotate batching (Vision allows up to 16 images per request)
+        buildConfigField("int", "VISION_BATCH_MAX_IMAGES", "8")
+        buildConfigField("long", "VISION_BATCH_MAX_BYTES", "8000000L")
+        buildConfigField("long", "VISION_BATCH_LINGER_MS", "40L")
+        // Imported photos processed concurrently during multi-photo import
+        buildConfigField("int", "IMPORT_PARALLEL_PAGES", "2")
+        // Work buffers and output bitmaps kept for reuse across variants of one OCR session
+        buildConfigField("long", "PREPROCESS_POOL_MAX_BYTES", "33554432L")
+        // Run grayscale/contrast/sharpen/threshold as GLES 3.1 compute shaders when the device
+        // supports them and they match the Java path exactly (checked at first use). Off until a
+        // device benchmark shows it beats the banded Java kernels: every call is a full upload and
+        // read-back on one GL thread shared by all concurrent variants.
+        buildConfigField("boolean", "GPU_PREPROCESSING", "false")
+        // Variants are pre-scored on thumbnails; at least this many, plus any scoring within
+        // PRESCORE_KEEP_RATIO of the best, are sent to Vision
+        buildConfigField("int", "PRESCORE_MIN_VARIANTS", "3")
+        buildConfigField("float", "PRESCORE_KEEP_RATIO", "0.85f")
+
         // Optional AI re-parser endpoint for low-confidence results
         val reparseEndpoint = props.getProperty("REPARSE_ENDPOINT")?.trim() ?: ""
         buildConfigField("String", "REPARSE_ENDPOINT", "\"$reparseEndpoint\"")
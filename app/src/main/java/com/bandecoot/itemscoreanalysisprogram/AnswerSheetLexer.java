@@ -0,0 +1,685 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Single-pass lexer for OCR answer-sheet text, and the item shapes the {@link Parser} strategies
+ * look for, matched over its tokens.
+ *
+ * The lexer walks the text once and emits NUMBER (ASCII digit run), WORD (a letter followed by
+ * letters, numbers, apostrophes or hyphens, ended by an ASCII digit), ROMAN (a WORD made only of
+ * I, V and X), SEPARATOR (any other single character) and NEWLINE tokens; other whitespace only
+ * separates tokens. Each item shape is a short walk over the tokens of one line plus a bounded
+ * look at the characters of an answer (at most {@link #MAX_ANSWER_CODE_POINTS}), and cutting a
+ * line finds its tokens by binary search, so parsing is linear in the text up to a log factor. Every shape gives the same result as the regular expression quoted in its
+ * comment, which the parser used before; the tests check this on random input.
+ */
+final class AnswerSheetLexer {
+    // Longest answer: a letter and up to 39 more answer characters
+    static final int MAX_ANSWER_CODE_POINTS = 40;
+
+    enum Kind { NUMBER, SEPARATOR, WORD, ROMAN, NEWLINE }
+
+    static final class Token {
+        final Kind kind;
+        final int start;
+        final int end;
+
+        Token(Kind kind, int start, int end) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "[" + start + "," + end + ")";
+        }
+    }
+
+    /**
+     * Characters [start, end) of the lexed text and the tokens inside them. Matching treats a
+     * line like a separate string: characters outside it are never looked at.
+     */
+    static final class Line {
+        final String text;
+        final int start;
+        final int end;
+        // Tokens inside [start, end); the ones at the edges are cut to them
+        final List<Token> tokens;
+
+        // Tokens of the whole text, shared by every line cut from it; this line's are [firstToken, lastToken)
+        private final List<Token> all;
+        private final int firstToken;
+        private final int lastToken;
+
+        Line(String text, int start, int end, List<Token> all, int firstToken, int lastToken) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.all = all;
+            this.firstToken = firstToken;
+            this.lastToken = lastToken;
+            this.tokens = new TokenRange(this);
+        }
+
+        /**
+         * @return Characters [from, to) of this line, with the tokens cut at the edges
+         */
+        Line sub(int from, int to) {
+            if (from == to) return new Line(text, from, to, all, firstToken, firstToken);
+            int first = firstEndingAfter(firstToken, lastToken, from);
+            int last = firstStartingFrom(first, lastToken, to);
+            return new Line(text, from, to, all, first, last);
+        }
+
+        /**
+         * @return Index of the first token in [lo, hi) that ends after {@code pos}, or {@code hi}
+         */
+        private int firstEndingAfter(int lo, int hi, int pos) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (all.get(mid).end > pos) hi = mid; else lo = mid + 1;
+            }
+            return lo;
+        }
+
+        /**
+         * @return Index of the first token in [lo, hi) that starts at or after {@code pos}, or {@code hi}
+         */
+        private int firstStartingFrom(int lo, int hi, int pos) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (all.get(mid).start >= pos) hi = mid; else lo = mid + 1;
+            }
+            return lo;
+        }
+
+        /**
+         * @return This line without leading and trailing characters up to space, as {@link String#trim()}
+         */
+        Line trim() {
+            int s = start;
+            int e = end;
+            while (s < e && text.charAt(s) <= ' ') s++;
+            while (e > s && text.charAt(e - 1) <= ' ') e--;
+            return s == start && e == end ? this : sub(s, e);
+        }
+
+        boolean isEmpty() {
+            return start == end;
+        }
+
+        boolean isBlank() {
+            return trim().isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return text.substring(start, end);
+        }
+    }
+
+    /**
+     * A line's slice of the shared token list. Only the first and last token can reach past the
+     * line, so those two are cut once here and every other token is shared.
+     */
+    private static final class TokenRange extends AbstractList<Token> implements RandomAccess {
+        private final Line line;
+        private final Token head;
+        private final Token tail;
+
+        TokenRange(Line line) {
+            this.line = line;
+            int size = line.lastToken - line.firstToken;
+            this.head = size > 0 ? clip(line.all.get(line.firstToken)) : null;
+            this.tail = size > 1 ? clip(line.all.get(line.lastToken - 1)) : head;
+        }
+
+        private Token clip(Token t) {
+            if (t.start >= line.start && t.end <= line.end) return t;
+            return new Token(t.kind, Math.max(t.start, line.start), Math.min(t.end, line.end));
+        }
+
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index);
+            if (index == 0) return head;
+            if (index == size() - 1) return tail;
+            return line.all.get(line.firstToken + index);
+        }
+
+        @Override
+        public int size() {
+            return line.lastToken - line.firstToken;
+        }
+    }
+
+    /**
+     * A question number and the answer text found with it.
+     */
+    static final class Item {
+        final int number;
+        final String answer;
+
+        Item(int number, String answer) {
+            this.number = number;
+            this.answer = answer;
+        }
+    }
+
+    private AnswerSheetLexer() {}
+
+    /**
+     * @return Tokens of {@code text} in order
+     */
+    static List<Token> lex(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                tokens.add(new Token(Kind.NEWLINE, i, i + 1));
+                i++;
+            } else if (isWhitespace(c)) {
+                i++;
+            } else if (isDigit(c)) {
+                int start = i;
+                while (i < n && isDigit(text.charAt(i))) i++;
+                tokens.add(new Token(Kind.NUMBER, start, i));
+            } else {
+                int cp = codePointAt(text, i, n);
+                if (isLetter(cp)) {
+                    int start = i;
+                    boolean roman = true;
+                    while (i < n) {
+                        cp = codePointAt(text, i, n);
+                        if (!isAnswerChar(cp) || isDigit(cp)) break;
+                        roman &= isRomanLetter(cp);
+                        i += Character.charCount(cp);
+                    }
+                    tokens.add(new Token(roman ? Kind.ROMAN : Kind.WORD, start, i));
+                } else {
+                    int len = Character.charCount(cp);
+                    tokens.add(new Token(Kind.SEPARATOR, i, i + len));
+                    i += len;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Lex {@code text} once and cut it at newlines.
+     *
+     * @return One line per {@code \n}-separated piece, as {@code text.split("\n")} but keeping
+     *         trailing empty lines
+     */
+    static List<Line> lines(String text) {
+        List<Token> tokens = lex(text);
+        List<Line> lines = new ArrayList<>();
+        int lineStart = 0;
+        int firstToken = 0;
+        for (int k = 0; k < tokens.size(); k++) {
+            Token t = tokens.get(k);
+            if (t.kind == Kind.NEWLINE) {
+                lines.add(new Line(text, lineStart, t.start, tokens, firstToken, k));
+                lineStart = t.end;
+                firstToken = k + 1;
+            }
+        }
+        lines.add(new Line(text, lineStart, text.length(), tokens, firstToken, tokens.size()));
+        return lines;
+    }
+
+    /**
+     * @return The line's whole characters, lexed
+     */
+    static Line line(String text) {
+        List<Token> tokens = lex(text);
+        return new Line(text, 0, text.length(), tokens, 0, tokens.size());
+    }
+
+    // ---------------------------
+    // Item shapes
+    // ---------------------------
+
+    /**
+     * Number then answer, as {@code ^\s*(\d{1,3})\s*[.):)\-:,]?\s*(ANSWER)\b}: "1.A", "2)B",
+     * "3-C", "4 WORD".
+     */
+    static Item numberFirst(Line line) {
+        List<Token> tokens = line.tokens;
+        if (tokens.isEmpty()) return null;
+        Token number = tokens.get(0);
+        if (number.kind != Kind.NUMBER || number.length() > 3) return null;
+        int k = 1;
+        if (k < tokens.size() && isSeparator(line, tokens.get(k), ".):)-:,")) k++;
+        if (k >= tokens.size()) return null;
+        int answerStart = tokens.get(k).start;
+        int answerEnd = boundedAnswerEnd(line, answerStart);
+        if (answerEnd < 0) return null;
+        return new Item(parseNumber(line.text, number.start, number.end),
+                line.text.substring(answerStart, answerEnd));
+    }
+
+    /**
+     * Answer then number closing the line, as
+     * {@code ^\s*(ANSWER)\b[\s.,;:!?\-]{0,3}(\d{1,3})[.):)]?\s*$}: "True 1.", "A 1".
+     */
+    static Item answerFirst(Line line) {
+        int answerEnd = answerBeforeNumber(line);
+        if (answerEnd < 0) return null;
+        String text = line.text;
+        int digitsStart = numberAfter(text, answerEnd, line.end);
+        int p = digitsStart;
+        while (p < line.end && isDigit(text.charAt(p))) p++;
+        if (p - digitsStart > 3) return null;
+        int digitsEnd = p;
+        if (p < line.end && ".):)".indexOf(text.charAt(p)) >= 0) p++;
+        p = skipWhitespace(text, p, line.end);
+        if (!isEnd(text, p, line.start, line.end)) return null;
+        return new Item(parseNumber(text, digitsStart, digitsEnd),
+                text.substring(line.tokens.get(0).start, answerEnd));
+    }
+
+    /**
+     * Longest answer at the line start that is followed by a number, as
+     * {@code ^\s*(ANSWER)\b[\s.,;:!?\-]{0,3}\d}. A shorter answer can only reach the same digit
+     * or one inside this answer, so no other choice lets more of the line match.
+     *
+     * @return End of the answer, or -1
+     */
+    static int answerBeforeNumber(Line line) {
+        if (line.tokens.isEmpty()) return -1;
+        int answerStart = line.tokens.get(0).start;
+        int answerEnd = answerRun(line, answerStart);
+        if (answerEnd < 0) return -1;
+        String text = line.text;
+        int firstEnd = answerStart + Character.charCount(codePointAt(text, answerStart, line.end));
+        while (!isBoundary(text, answerEnd, line.start, line.end) || numberAfter(text, answerEnd, line.end) < 0) {
+            if (answerEnd == firstEnd) return -1;
+            answerEnd -= Character.charCount(codePointBefore(text, answerEnd, line.start));
+        }
+        return answerEnd;
+    }
+
+    /**
+     * Skip up to three of {@code [\s.,;:!?\-]} after an answer; a longer run leaves one where the
+     * digit must be.
+     *
+     * @return Index of the digit that follows, or -1
+     */
+    static int numberAfter(String text, int p, int end) {
+        int q = p;
+        while (q < end && q - p < 3 && isAnswerFirstSeparator(text.charAt(q))) q++;
+        return q < end && isDigit(text.charAt(q)) ? q : -1;
+    }
+
+    /**
+     * A bare number, as {@code ^\s*(\d{1,3})\s*[.):)]?\s*$}: "5." waiting for its answer on the
+     * next line.
+     *
+     * @return The number, or -1
+     */
+    static int numberOnly(Line line) {
+        if (line.tokens.isEmpty()) return -1;
+        Token number = line.tokens.get(0);
+        if (number.kind != Kind.NUMBER || number.length() > 3) return -1;
+        String text = line.text;
+        int p = skipWhitespace(text, number.end, line.end);
+        if (p < line.end && ".):)".indexOf(text.charAt(p)) >= 0) p++;
+        p = skipWhitespace(text, p, line.end);
+        return isEnd(text, p, line.start, line.end) ? parseNumber(text, number.start, number.end) : -1;
+    }
+
+    /**
+     * Every number-answer pair of a compressed line like "1.A2.B3.C", as repeated finds of
+     * {@code \s*(\d{1,3})\s*[.):)\-:,]?\s*(ANSWER)} (no word boundary), each trimmed.
+     *
+     * @return The pairs in order; empty when there is none
+     */
+    static List<Line> compressedItems(Line line) {
+        List<Line> items = new ArrayList<>();
+        String text = line.text;
+        int pos = line.start;
+        for (Token t : line.tokens) {
+            if (t.kind != Kind.NUMBER || t.end <= pos) continue;
+            // \d{1,3} has to end the digit run, so a longer run only matches its last three digits
+            int digitsStart = Math.max(Math.max(t.start, pos), t.end - 3);
+            int p = skipWhitespace(text, t.end, line.end);
+            if (p < line.end && ".):)-:,".indexOf(text.charAt(p)) >= 0) {
+                p = skipWhitespace(text, p + 1, line.end);
+            }
+            int answerEnd = answerRun(line, p);
+            if (answerEnd < 0) continue;
+            items.add(line.sub(digitsStart, answerEnd));
+            pos = answerEnd;
+        }
+        return items;
+    }
+
+    /**
+     * First answer-like word, as the first find of {@code \b(ANSWER)\b}.
+     *
+     * @return The word, or null
+     */
+    static String firstAnswer(Line line) {
+        String text = line.text;
+        for (int p = line.start; p < line.end; ) {
+            int cp = codePointAt(text, p, line.end);
+            if (isLetter(cp) && isBoundary(text, p, line.start, line.end)) {
+                int end = boundedAnswerEnd(line, p);
+                if (end >= 0) return text.substring(p, end);
+            }
+            p += Character.charCount(cp);
+        }
+        return null;
+    }
+
+    /**
+     * Cut a line holding several numbered items ("1. A 2. B", "1.A2.B") before each item, as
+     * {@code split("(?<=[\p{L}\p{N}''\-])(?=[\s.]*\d{1,3}[.):)]?[\s-:]*[\p{L}])")}: after an answer
+     * character, where dots or spaces, one to three digits, optional punctuation and a letter follow.
+     *
+     * @return The pieces in order (the whole line when there is no cut)
+     */
+    static List<Line> splitItems(Line line) {
+        String text = line.text;
+        List<Line> parts = null;
+        int partStart = line.start;
+        for (Token t : line.tokens) {
+            if (t.kind != Kind.NUMBER) continue;
+            int p = t.end;
+            if (p < line.end && ".):)".indexOf(text.charAt(p)) >= 0) p++;
+            while (p < line.end && (isWhitespace(text.charAt(p)) || text.charAt(p) == '-' || text.charAt(p) == ':')) p++;
+            if (p >= line.end || !isLetter(codePointAt(text, p, line.end))) continue;
+
+            if (parts == null) parts = new ArrayList<>();
+            // Before the dots and spaces leading up to the whole number; the look behind is one
+            // char, so a letter outside the BMP does not count
+            int cut = t.start;
+            while (cut > line.start && (isWhitespace(text.charAt(cut - 1)) || text.charAt(cut - 1) == '.')) cut--;
+            if (t.length() <= 3 && cut > line.start && isAnswerChar(text.charAt(cut - 1))) {
+                parts.add(line.sub(partStart, cut));
+                partStart = cut;
+            }
+            // Inside the number wherever at most three digits remain (a digit is an answer character)
+            for (cut = Math.max(t.start + 1, t.end - 3); cut < t.end; cut++) {
+                parts.add(line.sub(partStart, cut));
+                partStart = cut;
+            }
+        }
+        if (parts == null) return Collections.singletonList(line);
+        parts.add(line.sub(partStart, line.end));
+        return parts;
+    }
+
+    /**
+     * Leading number and the rest of the line, as {@code ^\s*(\d{1,3})\s*[.):)]?\s*[-:]?\s*(.*)$}.
+     *
+     * @return The number with the rest as its answer, or null
+     */
+    static Item leadingNumber(Line line) {
+        if (line.tokens.isEmpty()) return null;
+        Token number = line.tokens.get(0);
+        if (number.kind != Kind.NUMBER) return null;
+        String text = line.text;
+        int digitsEnd = Math.min(number.end, number.start + 3);
+        int rest = digitsEnd == number.end ? skipNumbering(text, digitsEnd, line.end) : digitsEnd;
+        // .* stops at a line terminator, which must then end the line
+        int restEnd = line.end;
+        for (int p = rest; p < line.end; p++) {
+            if (isLineTerminator(text.charAt(p))) {
+                if (!isEnd(text, p, line.start, line.end)) return null;
+                restEnd = p;
+                break;
+            }
+        }
+        return new Item(parseNumber(text, number.start, digitsEnd), text.substring(rest, restEnd));
+    }
+
+    /**
+     * Number then answer, as {@code ^\s*(\d{1,3})\s*[.):)]?\s*[-:]?\s*(ANSWER)\b}: "1 A", "1. B",
+     * "1) C", "1 - D", "1: E".
+     */
+    static Item numberedAnswer(Line line) {
+        List<Token> tokens = line.tokens;
+        if (tokens.isEmpty()) return null;
+        Token number = tokens.get(0);
+        if (number.kind != Kind.NUMBER || number.length() > 3) return null;
+        int k = 1;
+        if (k < tokens.size() && isSeparator(line, tokens.get(k), ".):)")) k++;
+        if (k < tokens.size() && isSeparator(line, tokens.get(k), "-:")) k++;
+        if (k >= tokens.size()) return null;
+        int answerStart = tokens.get(k).start;
+        int answerEnd = boundedAnswerEnd(line, answerStart);
+        if (answerEnd < 0) return null;
+        return new Item(parseNumber(line.text, number.start, number.end),
+                line.text.substring(answerStart, answerEnd));
+    }
+
+    /**
+     * Answer then number, as {@code ^\s*(ANSWER)\s+(\d{1,3})\s*[.):)]?}: "True 1.", "FALSE 2)".
+     */
+    static Item answerNumbered(Line line) {
+        if (line.tokens.isEmpty()) return null;
+        String text = line.text;
+        int answerStart = line.tokens.get(0).start;
+        int answerEnd = answerRun(line, answerStart);
+        // A shorter answer would leave an answer character where the space must be
+        if (answerEnd < 0 || answerEnd >= line.end || !isWhitespace(text.charAt(answerEnd))) return null;
+        int p = skipWhitespace(text, answerEnd, line.end);
+        if (p >= line.end || !isDigit(text.charAt(p))) return null;
+        int digitsEnd = p;
+        while (digitsEnd < line.end && digitsEnd - p < 3 && isDigit(text.charAt(digitsEnd))) digitsEnd++;
+        return new Item(parseNumber(text, p, digitsEnd), text.substring(answerStart, answerEnd));
+    }
+
+    /**
+     * End of a leading numbering token, as the match of {@code ^\s*\d{1,3}\s*[.):)]?\s*[-:]?\s*}.
+     *
+     * @return Index after the numbering, or the line start when there is none
+     */
+    static int numberingEnd(Line line) {
+        if (line.tokens.isEmpty()) return line.start;
+        Token number = line.tokens.get(0);
+        if (number.kind != Kind.NUMBER) return line.start;
+        int digitsEnd = Math.min(number.end, number.start + 3);
+        return digitsEnd == number.end ? skipNumbering(line.text, digitsEnd, line.end) : digitsEnd;
+    }
+
+    /**
+     * Skip {@code \s*[.):)]?\s*[-:]?\s*} after a number.
+     */
+    private static int skipNumbering(String text, int p, int end) {
+        p = skipWhitespace(text, p, end);
+        if (p < end && ".):)".indexOf(text.charAt(p)) >= 0) p++;
+        p = skipWhitespace(text, p, end);
+        if (p < end && (text.charAt(p) == '-' || text.charAt(p) == ':')) p++;
+        return skipWhitespace(text, p, end);
+    }
+
+    // ---------------------------
+    // Answers
+    // ---------------------------
+
+    /**
+     * Greedy answer at {@code start}: a letter, then up to 39 letters, numbers, apostrophes or
+     * hyphens ({@code [\p{L}][\p{L}\p{N}''\-]{0,39}}).
+     *
+     * @return End of the answer, or -1 if there is no letter at {@code start}
+     */
+    static int answerRun(Line line, int start) {
+        if (start >= line.end) return -1;
+        String text = line.text;
+        int cp = codePointAt(text, start, line.end);
+        if (!isLetter(cp)) return -1;
+        int i = start + Character.charCount(cp);
+        int count = 1;
+        while (count < MAX_ANSWER_CODE_POINTS && i < line.end) {
+            cp = codePointAt(text, i, line.end);
+            if (!isAnswerChar(cp)) break;
+            i += Character.charCount(cp);
+            count++;
+        }
+        return i;
+    }
+
+    /**
+     * Longest answer at {@code start} that ends on a word boundary ({@code (ANSWER)\b}).
+     *
+     * @return End of the answer, or -1
+     */
+    static int boundedAnswerEnd(Line line, int start) {
+        int end = answerRun(line, start);
+        if (end < 0) return -1;
+        String text = line.text;
+        int firstEnd = start + Character.charCount(codePointAt(text, start, line.end));
+        while (!isBoundary(text, end, line.start, line.end)) {
+            if (end == firstEnd) return -1;
+            end -= Character.charCount(codePointBefore(text, end, line.start));
+        }
+        return end;
+    }
+
+    // ---------------------------
+    // Characters, as java.util.regex sees them
+    // ---------------------------
+
+    /**
+     * @return True for {@code \s}: space, tab, newline, vertical tab, form feed, carriage return
+     */
+    static boolean isWhitespace(int c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * @return True for {@code \d} (ASCII digits only)
+     */
+    static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return True for {@code \p{L}}
+     */
+    static boolean isLetter(int cp) {
+        return Character.isLetter(cp);
+    }
+
+    /**
+     * @return True for {@code [\p{L}\p{N}''\-]}
+     */
+    static boolean isAnswerChar(int cp) {
+        if (cp == '\'' || cp == '-' || Character.isLetter(cp)) return true;
+        int type = Character.getType(cp);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER
+                || type == Character.OTHER_NUMBER;
+    }
+
+    /**
+     * @return True for the characters {@code .} does not match
+     */
+    static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Word boundary {@code \b} at {@code i} within [from, to): word characters are letters,
+     * digits, underscore and non-spacing marks that follow one.
+     */
+    static boolean isBoundary(CharSequence text, int i, int from, int to) {
+        boolean left = false;
+        if (i > from) {
+            int cp = codePointBefore(text, i, from);
+            left = isWordChar(cp) || (Character.getType(cp) == Character.NON_SPACING_MARK
+                    && hasBaseCharacter(text, i - 1, from, to));
+        }
+        boolean right = false;
+        if (i < to) {
+            int cp = codePointAt(text, i, to);
+            right = isWordChar(cp) || (Character.getType(cp) == Character.NON_SPACING_MARK
+                    && hasBaseCharacter(text, i, from, to));
+        }
+        return left != right;
+    }
+
+    /**
+     * End anchor {@code $} at {@code i} within [from, to): the end, or just before a final line
+     * terminator.
+     */
+    static boolean isEnd(CharSequence text, int i, int from, int to) {
+        if (i == to) return true;
+        if (i == to - 2) return text.charAt(i) == '\r' && text.charAt(i + 1) == '\n';
+        if (i != to - 1) return false;
+        char c = text.charAt(i);
+        if (c == '\n') return !(i > from && text.charAt(i - 1) == '\r');
+        return isLineTerminator(c);
+    }
+
+    static int codePointAt(CharSequence text, int index, int limit) {
+        char high = text.charAt(index);
+        if (Character.isHighSurrogate(high) && index + 1 < limit) {
+            char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low)) return Character.toCodePoint(high, low);
+        }
+        return high;
+    }
+
+    static int codePointBefore(CharSequence text, int index, int from) {
+        char low = text.charAt(index - 1);
+        if (Character.isLowSurrogate(low) && index - 1 > from) {
+            char high = text.charAt(index - 2);
+            if (Character.isHighSurrogate(high)) return Character.toCodePoint(high, low);
+        }
+        return low;
+    }
+
+    private static boolean isWordChar(int cp) {
+        return cp == '_' || Character.isLetterOrDigit(cp);
+    }
+
+    private static boolean hasBaseCharacter(CharSequence text, int i, int from, int to) {
+        for (int x = i; x >= from; x--) {
+            int cp = codePointAt(text, x, to);
+            if (Character.isLetterOrDigit(cp)) return true;
+            if (Character.getType(cp) != Character.NON_SPACING_MARK) return false;
+        }
+        return false;
+    }
+
+    private static boolean isRomanLetter(int cp) {
+        return cp == 'I' || cp == 'V' || cp == 'X' || cp == 'i' || cp == 'v' || cp == 'x';
+    }
+
+    private static boolean isAnswerFirstSeparator(char c) {
+        return isWhitespace(c) || ".,;:!?-".indexOf(c) >= 0;
+    }
+
+    private static boolean isSeparator(Line line, Token t, String chars) {
+        return t.kind == Kind.SEPARATOR && t.length() == 1 && chars.indexOf(line.text.charAt(t.start)) >= 0;
+    }
+
+    private static int skipWhitespace(String text, int p, int end) {
+        while (p < end && isWhitespace(text.charAt(p))) p++;
+        return p;
+    }
+
+    private static int parseNumber(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+}
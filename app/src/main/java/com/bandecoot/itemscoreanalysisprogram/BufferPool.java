@@ -0,0 +1,135 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Size-bucketed pool of {@code byte[]} and {@code int[]} work buffers for preprocessing.
+ *
+ * Requests are rounded up to a bucket size (eight buckets per power of two, so at most 12.5%
+ * over-allocation) and released buffers are kept for the next request of the same bucket, up
+ * to {@code maxBytes} in total. Variants of one scan, and the pages of a batch import, all ask
+ * for the same few sizes, so after the first variant nearly every request is a hit.
+ *
+ * Acquired buffers are not cleared; callers must overwrite every element they read.
+ * Thread-safe.
+ */
+final class BufferPool {
+    /** Pool that never retains anything: acquire allocates, release drops. */
+    static final BufferPool NONE = new BufferPool(0);
+
+    private static final int MIN_BUCKET = 64;
+
+    private final long maxBytes;
+    private final Map<Integer, ArrayDeque<byte[]>> bytes = new HashMap<>();
+    private final Map<Integer, ArrayDeque<int[]>> ints = new HashMap<>();
+    private long retainedBytes;
+    private int hits;
+    private int misses;
+
+    /**
+     * @param maxBytes Upper bound on the memory held by idle buffers
+     */
+    BufferPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Round a requested length up to its bucket size.
+     */
+    static int bucketSize(int length) {
+        if (length <= MIN_BUCKET) return MIN_BUCKET;
+        int shift = Math.max(0, 31 - Integer.numberOfLeadingZeros(length - 1) - 3);
+        return (((length - 1) >> shift) + 1) << shift;
+    }
+
+    /**
+     * @return A buffer of at least {@code length} bytes with undefined contents
+     */
+    byte[] acquireBytes(int length) {
+        int size = bucketSize(length);
+        synchronized (this) {
+            ArrayDeque<byte[]> free = bytes.get(size);
+            if (free != null && !free.isEmpty()) {
+                retainedBytes -= size;
+                hits++;
+                return free.pop();
+            }
+            misses++;
+        }
+        return new byte[size];
+    }
+
+    /**
+     * @return A buffer of at least {@code length} ints with undefined contents
+     */
+    int[] acquireInts(int length) {
+        int size = bucketSize(length);
+        synchronized (this) {
+            ArrayDeque<int[]> free = ints.get(size);
+            if (free != null && !free.isEmpty()) {
+                retainedBytes -= 4L * size;
+                hits++;
+                return free.pop();
+            }
+            misses++;
+        }
+        return new int[size];
+    }
+
+    /**
+     * Return a buffer for reuse. Buffers not obtained from a pool, or beyond the byte limit,
+     * are simply dropped.
+     */
+    synchronized void release(byte[] buffer) {
+        if (buffer == null || buffer.length != bucketSize(buffer.length)) return;
+        if (retainedBytes + buffer.length > maxBytes) return;
+        ArrayDeque<byte[]> free = bytes.get(buffer.length);
+        if (free == null) {
+            free = new ArrayDeque<>();
+            bytes.put(buffer.length, free);
+        }
+        free.push(buffer);
+        retainedBytes += buffer.length;
+    }
+
+    /**
+     * Return a buffer for reuse. Buffers not obtained from a pool, or beyond the byte limit,
+     * are simply dropped.
+     */
+    synchronized void release(int[] buffer) {
+        if (buffer == null || buffer.length != bucketSize(buffer.length)) return;
+        if (retainedBytes + 4L * buffer.length > maxBytes) return;
+        ArrayDeque<int[]> free = ints.get(buffer.length);
+        if (free == null) {
+            free = new ArrayDeque<>();
+            ints.put(buffer.length, free);
+        }
+        free.push(buffer);
+        retainedBytes += 4L * buffer.length;
+    }
+
+    /**
+     * Drop every idle buffer.
+     */
+    synchronized void clear() {
+        bytes.clear();
+        ints.clear();
+        retainedBytes = 0;
+    }
+
+    /**
+     * @return Memory currently held by idle buffers
+     */
+    synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * @return "hits/requests" since creation, for logging
+     */
+    synchronized String stats() {
+        return hits + "/" + (hits + misses);
+    }
+}
@@ -0,0 +1,248 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column layout of an answer sheet (1 to {@link #MAX_COLUMNS} columns) found from projection
+ * profiles of a small gray image.
+ *
+ * The image is binarized (Otsu) and ink pixels are counted per pixel column. After light
+ * smoothing, gutters are interior runs whose ink count stays well below the page average
+ * (a title line spanning the columns only lifts them slightly). Gutters that would leave a
+ * sliver column are dropped, and each column is cropped tight to its ink with a small margin.
+ */
+final class ColumnLayout {
+    static final int MAX_COLUMNS = 3;
+
+    // A gutter's smoothed ink count is below this share of the mean over the content (leaves
+    // room for a few title or name lines that span the columns)
+    private static final float GUTTER_INK_RATIO = 0.2f;
+    // Minimum gutter width and column width, as a share of the content width
+    private static final float MIN_GUTTER_FRACTION = 0.03f;
+    private static final float MIN_COLUMN_FRACTION = 0.15f;
+    // Box filter radius for the column profile, as a share of the image width
+    private static final float SMOOTH_FRACTION = 0.01f;
+    // Pixel columns/rows with at most this share of ink are treated as empty (speckle)
+    private static final float NOISE_INK_RATIO = 0.005f;
+    // Margin kept around each tight crop, as a share of the longer image side
+    private static final float MARGIN_FRACTION = 0.01f;
+
+    /**
+     * One column as the rectangle [left, right) x [top, bottom) in image pixels.
+     */
+    static final class Column {
+        final int left;
+        final int top;
+        final int right;
+        final int bottom;
+
+        Column(int left, int top, int right, int bottom) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        /**
+         * @return This rectangle mapped to an image {@code factor} times larger, clamped to its bounds
+         */
+        Column scale(float factor, int width, int height) {
+            return new Column(
+                    Math.max(0, (int) Math.floor(left * factor)),
+                    Math.max(0, (int) Math.floor(top * factor)),
+                    Math.min(width, (int) Math.ceil(right * factor)),
+                    Math.min(height, (int) Math.ceil(bottom * factor)));
+        }
+
+        @Override
+        public String toString() {
+            return "[" + left + "," + top + "-" + right + "," + bottom + "]";
+        }
+    }
+
+    /** Columns from left to right; never empty */
+    final List<Column> columns;
+
+    private ColumnLayout(List<Column> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * @return This layout mapped to an image {@code factor} times larger
+     */
+    ColumnLayout scale(float factor, int width, int height) {
+        List<Column> scaled = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            scaled.add(column.scale(factor, width, height));
+        }
+        return new ColumnLayout(scaled);
+    }
+
+    /**
+     * @param image Gray image of the page (a thumbnail is enough)
+     * @return Detected layout; one full-image column when nothing can be found
+     */
+    static ColumnLayout detect(GrayImage image) {
+        int width = image.width;
+        int height = image.height;
+        List<Column> single = new ArrayList<>(1);
+        single.add(new Column(0, 0, width, height));
+        if (width < 8 || height < 8) {
+            return new ColumnLayout(single);
+        }
+
+        boolean[] ink = binarize(image);
+        int[] columnInk = new int[width];
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                if (ink[row + x]) columnInk[x]++;
+            }
+        }
+
+        // Content extent: outermost pixel columns with more than speckle
+        float columnNoise = Math.max(1f, height * NOISE_INK_RATIO);
+        int contentLeft = 0;
+        while (contentLeft < width && columnInk[contentLeft] <= columnNoise) contentLeft++;
+        int contentRight = width;
+        while (contentRight > contentLeft && columnInk[contentRight - 1] <= columnNoise) contentRight--;
+        int contentWidth = contentRight - contentLeft;
+        if (contentWidth <= 0) {
+            return new ColumnLayout(single);
+        }
+
+        float[] smoothed = smooth(columnInk, Math.max(1, Math.round(width * SMOOTH_FRACTION)));
+        float mean = 0;
+        for (int x = contentLeft; x < contentRight; x++) {
+            mean += smoothed[x];
+        }
+        mean /= contentWidth;
+        float gutterLevel = mean * GUTTER_INK_RATIO;
+
+        // Interior low-ink runs wide enough to be a gutter, as {start, end} pairs
+        List<int[]> gutters = new ArrayList<>();
+        int minGutter = Math.max(1, Math.round(contentWidth * MIN_GUTTER_FRACTION));
+        int x = contentLeft;
+        while (x < contentRight) {
+            if (smoothed[x] > gutterLevel) {
+                x++;
+                continue;
+            }
+            int start = x;
+            while (x < contentRight && smoothed[x] <= gutterLevel) x++;
+            if (start > contentLeft && x < contentRight && x - start >= minGutter) {
+                gutters.add(new int[]{start, x});
+            }
+        }
+
+        // Drop the narrowest gutter next to a sliver column, or overall when there are too many
+        int minColumn = Math.round(contentWidth * MIN_COLUMN_FRACTION);
+        while (!gutters.isEmpty()) {
+            int drop = -1;
+            for (int g = 0; g < gutters.size(); g++) {
+                int columnLeft = g == 0 ? contentLeft : gutters.get(g - 1)[1];
+                int columnRight = gutters.get(g)[0];
+                boolean sliverLeft = columnRight - columnLeft < minColumn;
+                int nextRight = g + 1 < gutters.size() ? gutters.get(g + 1)[0] : contentRight;
+                boolean sliverRight = nextRight - gutters.get(g)[1] < minColumn;
+                if ((sliverLeft || sliverRight || gutters.size() >= MAX_COLUMNS)
+                        && (drop < 0 || width(gutters.get(g)) < width(gutters.get(drop)))) {
+                    drop = g;
+                }
+            }
+            if (drop < 0) break;
+            gutters.remove(drop);
+        }
+
+        int margin = Math.round(Math.max(width, height) * MARGIN_FRACTION);
+        List<Column> columns = new ArrayList<>(gutters.size() + 1);
+        for (int c = 0; c <= gutters.size(); c++) {
+            int spanLeft = c == 0 ? contentLeft : gutters.get(c - 1)[1];
+            int spanRight = c == gutters.size() ? contentRight : gutters.get(c)[0];
+            // Margins may grow into a gutter but not past its middle
+            int limitLeft = c == 0 ? 0 : (gutters.get(c - 1)[0] + gutters.get(c - 1)[1]) / 2;
+            int limitRight = c == gutters.size() ? width : (gutters.get(c)[0] + gutters.get(c)[1]) / 2;
+            columns.add(tightCrop(ink, columnInk, width, height, spanLeft, spanRight,
+                    limitLeft, limitRight, margin, columnNoise));
+        }
+        return new ColumnLayout(columns);
+    }
+
+    /**
+     * Crop [spanLeft, spanRight) x [0, height) to its ink, then pad by {@code margin} within
+     * [limitLeft, limitRight).
+     */
+    private static Column tightCrop(boolean[] ink, int[] columnInk, int width, int height,
+                                    int spanLeft, int spanRight, int limitLeft, int limitRight,
+                                    int margin, float columnNoise) {
+        int left = spanLeft;
+        while (left < spanRight - 1 && columnInk[left] <= columnNoise) left++;
+        int right = spanRight;
+        while (right > left + 1 && columnInk[right - 1] <= columnNoise) right--;
+
+        float rowNoise = Math.max(1f, (right - left) * NOISE_INK_RATIO);
+        int top = -1;
+        int bottom = 0;
+        for (int y = 0; y < height; y++) {
+            int count = 0;
+            for (int i = y * width + left, end = y * width + right; i < end; i++) {
+                if (ink[i]) count++;
+            }
+            if (count > rowNoise) {
+                if (top < 0) top = y;
+                bottom = y + 1;
+            }
+        }
+        if (top < 0) {
+            top = 0;
+            bottom = height;
+        }
+
+        return new Column(
+                Math.max(limitLeft, left - margin),
+                Math.max(0, top - margin),
+                Math.min(limitRight, right + margin),
+                Math.min(height, bottom + margin));
+    }
+
+    /**
+     * Dark pixels up to the Otsu threshold are ink.
+     */
+    private static boolean[] binarize(GrayImage image) {
+        byte[] px = image.pixels;
+        int count = image.width * image.height;
+        int[] histogram = new int[256];
+        for (int i = 0; i < count; i++) {
+            histogram[px[i] & 0xFF]++;
+        }
+        int threshold = PreprocessKernels.otsuThreshold(histogram, count);
+        boolean[] ink = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            ink[i] = (px[i] & 0xFF) <= threshold;
+        }
+        return ink;
+    }
+
+    /**
+     * Box-filter mean of {@code values} over [x - radius, x + radius], clipped at the ends.
+     */
+    private static float[] smooth(int[] values, int radius) {
+        int n = values.length;
+        long[] prefix = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            prefix[i + 1] = prefix[i] + values[i];
+        }
+        float[] smoothed = new float[n];
+        for (int i = 0; i < n; i++) {
+            int from = Math.max(0, i - radius);
+            int to = Math.min(n, i + radius + 1);
+            smoothed[i] = (float) (prefix[to] - prefix[from]) / (to - from);
+        }
+        return smoothed;
+    }
+
+    private static int width(int[] gutter) {
+        return gutter[1] - gutter[0];
+    }
+}
@@ -0,0 +1,485 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.opengl.GLES31;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@link PreprocessBackend} that runs the per-pixel primitives as OpenGL ES 3.1 compute shaders.
+ *
+ * Gray images travel as packed bytes (four pixels per uint) in shader storage buffers, and each
+ * shader invocation produces exactly one packed word, so no two invocations write the same
+ * memory. The shaders use the same integer arithmetic as {@link PreprocessKernels#JAVA}, which
+ * makes the output bit-identical; {@link PreprocessBackendParity} verifies that on the device
+ * before the backend is used.
+ *
+ * GL contexts are bound to a thread, so all GL work runs on one private thread that owns an
+ * offscreen EGL context. Callers on the preprocessing threads block until their dispatch has
+ * been read back.
+ */
+final class GlesPreprocessBackend implements PreprocessBackend {
+    private static final String TAG = "GlesPreprocessBackend";
+
+    private static final int LOCAL_SIZE = 64;
+    // Work groups per dispatch row; larger images spill into a second dimension
+    private static final int MAX_GROUPS_X = 32768;
+
+    private static final int SRC = 0;
+    private static final int DST = 1;
+    private static final int LUT = 2;
+
+    private static final String HEADER =
+            "#version 310 es\n" +
+            "layout(local_size_x = " + LOCAL_SIZE + ") in;\n" +
+            "layout(std430, binding = 0) readonly buffer Src { uint src[]; };\n" +
+            "layout(std430, binding = 1) writeonly buffer Dst { uint dst[]; };\n" +
+            "layout(std430, binding = 2) readonly buffer Lut { uint lut[]; };\n" +
+            "uniform uint uCount;\n" +
+            "uniform uint uWidth;\n" +
+            "uniform uint uHeight;\n" +
+            "uniform uint uDeYellow;\n" +
+            "uint word() { return gl_GlobalInvocationID.y * gl_NumWorkGroups.x * " + LOCAL_SIZE + "u"
+            + " + gl_GlobalInvocationID.x; }\n" +
+            "uint srcByte(uint i) { return (src[i >> 2] >> ((i & 3u) * 8u)) & 255u; }\n";
+
+    // ARGB (one uint per pixel) to packed luma, as GrayImage.luma / deYellowLuma
+    private static final String GRAY_SHADER = HEADER +
+            "uint luma(uint c) {\n" +
+            "  uint r = (c >> 16) & 255u;\n" +
+            "  uint g = (c >> 8) & 255u;\n" +
+            "  uint b = c & 255u;\n" +
+            "  if (uDeYellow != 0u) {\n" +
+            "    r = min(255u, (r * 85u + 50u) / 100u);\n" +
+            "    g = min(255u, (g * 85u + 50u) / 100u);\n" +
+            "    b = min(255u, (b * 6u + 2u) / 5u);\n" +
+            "  }\n" +
+            "  return (55u * r + 183u * g + 18u * b + 128u) >> 8;\n" +
+            "}\n" +
+            "void main() {\n" +
+            "  uint w = word();\n" +
+            "  uint first = w * 4u;\n" +
+            "  if (first >= uCount) return;\n" +
+            "  uint result = 0u;\n" +
+            "  for (uint k = 0u; k < 4u && first + k < uCount; k++) {\n" +
+            "    result |= luma(src[first + k]) << (k * 8u);\n" +
+            "  }\n" +
+            "  dst[w] = result;\n" +
+            "}\n";
+
+    // Packed bytes through a 256-entry table
+    private static final String TABLE_SHADER = HEADER +
+            "void main() {\n" +
+            "  uint w = word();\n" +
+            "  if (w * 4u >= uCount) return;\n" +
+            "  uint v = src[w];\n" +
+            "  uint result = 0u;\n" +
+            "  for (uint k = 0u; k < 4u; k++) {\n" +
+            "    result |= lut[(v >> (k * 8u)) & 255u] << (k * 8u);\n" +
+            "  }\n" +
+            "  dst[w] = result;\n" +
+            "}\n";
+
+    // 3x3 sharpen (border pixels unchanged), then the table
+    private static final String SHARPEN_SHADER = HEADER +
+            "void main() {\n" +
+            "  uint w = word();\n" +
+            "  uint first = w * 4u;\n" +
+            "  if (first >= uCount) return;\n" +
+            "  uint result = 0u;\n" +
+            "  for (uint k = 0u; k < 4u && first + k < uCount; k++) {\n" +
+            "    uint i = first + k;\n" +
+            "    uint x = i % uWidth;\n" +
+            "    uint y = i / uWidth;\n" +
+            "    int v = int(srcByte(i));\n" +
+            "    if (y > 0u && y + 1u < uHeight && x > 0u && x + 1u < uWidth) {\n" +
+            "      int sharp = 5 * v - int(srcByte(i - uWidth)) - int(srcByte(i + uWidth))\n" +
+            "          - int(srcByte(i - 1u)) - int(srcByte(i + 1u));\n" +
+            "      v = clamp(sharp, 0, 255);\n" +
+            "    }\n" +
+            "    result |= lut[uint(v)] << (k * 8u);\n" +
+            "  }\n" +
+            "  dst[w] = result;\n" +
+            "}\n";
+
+    private final ExecutorService glThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gles-preprocess");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Owned by the GL thread
+    private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+    private EGLContext context = EGL14.EGL_NO_CONTEXT;
+    private EGLSurface surface = EGL14.EGL_NO_SURFACE;
+    private ComputeProgram grayProgram;
+    private ComputeProgram tableProgram;
+    private ComputeProgram sharpenProgram;
+    private final int[] buffers = new int[3];
+    private ByteBuffer staging;
+    private long maxBufferBytes;
+
+    private GlesPreprocessBackend() {}
+
+    /**
+     * Set up an offscreen OpenGL ES 3.1 context and compile the shaders.
+     *
+     * @return The backend, or null when the device has no usable ES 3.1 compute support
+     */
+    static GlesPreprocessBackend create() {
+        GlesPreprocessBackend backend = new GlesPreprocessBackend();
+        try {
+            backend.run(() -> {
+                backend.setUp();
+                return null;
+            });
+            return backend;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "GLES compute preprocessing unavailable", e);
+            backend.close();
+            return null;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "gles31";
+    }
+
+    @Override
+    public void gray(int[] argb, boolean deYellow, GrayImage out) {
+        int count = out.width * out.height;
+        if (count == 0) return;
+        if (4L * count > maxBufferBytes) {
+            PreprocessKernels.JAVA.gray(argb, deYellow, out);
+            return;
+        }
+        run(() -> {
+            ByteBuffer data = staging(4 * count);
+            data.asIntBuffer().put(argb, 0, count);
+            upload(SRC, data, 4 * count);
+            allocate(DST, packedBytes(count));
+            grayProgram.use(count, out.width, out.height, deYellow);
+            dispatch(count);
+            readBack(out.pixels, count);
+            checkGl("gray");
+            return null;
+        });
+    }
+
+    @Override
+    public void applyTable(GrayImage image, byte[] table) {
+        int count = image.width * image.height;
+        if (count == 0) return;
+        if (packedBytes(count) > maxBufferBytes) {
+            PreprocessKernels.JAVA.applyTable(image, table);
+            return;
+        }
+        run(() -> {
+            runGrayProgram(tableProgram, image, table, count);
+            checkGl("applyTable");
+            return null;
+        });
+    }
+
+    @Override
+    public int[] mapAndCount(GrayImage image, byte[] table) {
+        applyTable(image, table);
+        // Counting the read-back bytes is cheaper than contended atomics on 256 bins
+        byte[] px = image.pixels;
+        int width = image.width;
+        int bands = StripedExecutor.bandCount(image.height);
+        int[][] partial = new int[bands][256];
+        StripedExecutor.forEachBand(image.height, bands, (band, startRow, endRow) -> {
+            int[] histogram = partial[band];
+            for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                histogram[px[i] & 0xFF]++;
+            }
+        });
+        return PreprocessKernels.merge(partial);
+    }
+
+    @Override
+    public void sharpen(GrayImage image, byte[] table) {
+        int count = image.width * image.height;
+        if (count == 0) return;
+        if (packedBytes(count) > maxBufferBytes) {
+            PreprocessKernels.JAVA.sharpen(image, table);
+            return;
+        }
+        run(() -> {
+            runGrayProgram(sharpenProgram, image, table, count);
+            checkGl("sharpen");
+            return null;
+        });
+    }
+
+    /**
+     * Release the GL objects and the EGL context, and stop the GL thread.
+     */
+    void close() {
+        try {
+            run(() -> {
+                tearDown();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error releasing GLES resources", e);
+        } finally {
+            glThread.shutdown();
+        }
+    }
+
+    /**
+     * Run GL work on the GL thread and wait for it. An interrupt does not abandon the work
+     * (the GL thread may still be writing into the caller's buffers); it is restored afterwards.
+     */
+    private <T> T run(Callable<T> work) {
+        Future<T> future = glThread.submit(work);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new IllegalStateException("GLES preprocessing failed", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // --- GL thread only below ---
+
+    private void setUp() {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        if (display == EGL14.EGL_NO_DISPLAY) {
+            throw new IllegalStateException("No EGL display");
+        }
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(display, version, 0, version, 1)) {
+            throw eglError("eglInitialize");
+        }
+
+        int[] configAttributes = {
+                EGL14.EGL_RENDERABLE_TYPE, EGLExt.EGL_OPENGL_ES3_BIT_KHR,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_PBUFFER_BIT,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] configCount = new int[1];
+        if (!EGL14.eglChooseConfig(display, configAttributes, 0, configs, 0, 1, configCount, 0)
+                || configCount[0] == 0) {
+            throw eglError("eglChooseConfig");
+        }
+
+        int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 3, EGL14.EGL_NONE};
+        context = EGL14.eglCreateContext(display, configs[0], EGL14.EGL_NO_CONTEXT, contextAttributes, 0);
+        if (context == EGL14.EGL_NO_CONTEXT) {
+            throw eglError("eglCreateContext");
+        }
+        int[] surfaceAttributes = {EGL14.EGL_WIDTH, 1, EGL14.EGL_HEIGHT, 1, EGL14.EGL_NONE};
+        surface = EGL14.eglCreatePbufferSurface(display, configs[0], surfaceAttributes, 0);
+        if (surface == EGL14.EGL_NO_SURFACE) {
+            throw eglError("eglCreatePbufferSurface");
+        }
+        if (!EGL14.eglMakeCurrent(display, surface, surface, context)) {
+            throw eglError("eglMakeCurrent");
+        }
+
+        int[] value = new int[2];
+        GLES30.glGetIntegerv(GLES30.GL_MAJOR_VERSION, value, 0);
+        GLES30.glGetIntegerv(GLES30.GL_MINOR_VERSION, value, 1);
+        if (value[0] < 3 || (value[0] == 3 && value[1] < 1)) {
+            throw new IllegalStateException("OpenGL ES " + value[0] + "." + value[1] + " has no compute shaders");
+        }
+        GLES20.glGetIntegerv(GLES31.GL_MAX_SHADER_STORAGE_BLOCK_SIZE, value, 0);
+        maxBufferBytes = value[0] & 0xFFFFFFFFL;
+
+        grayProgram = new ComputeProgram(buildProgram(GRAY_SHADER));
+        tableProgram = new ComputeProgram(buildProgram(TABLE_SHADER));
+        sharpenProgram = new ComputeProgram(buildProgram(SHARPEN_SHADER));
+        GLES20.glGenBuffers(buffers.length, buffers, 0);
+        checkGl("setUp");
+        Log.d(TAG, "GLES compute ready: " + GLES20.glGetString(GLES20.GL_RENDERER) +
+                ", max buffer " + maxBufferBytes + " bytes");
+    }
+
+    private void tearDown() {
+        if (context != EGL14.EGL_NO_CONTEXT) {
+            if (grayProgram != null) GLES20.glDeleteProgram(grayProgram.id);
+            if (tableProgram != null) GLES20.glDeleteProgram(tableProgram.id);
+            if (sharpenProgram != null) GLES20.glDeleteProgram(sharpenProgram.id);
+            if (buffers[0] != 0) GLES20.glDeleteBuffers(buffers.length, buffers, 0);
+            EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+            EGL14.eglDestroyContext(display, context);
+            context = EGL14.EGL_NO_CONTEXT;
+        }
+        if (surface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglDestroySurface(display, surface);
+            surface = EGL14.EGL_NO_SURFACE;
+        }
+        EGL14.eglReleaseThread();
+        staging = null;
+    }
+
+    private static int buildProgram(String source) {
+        int shader = GLES20.glCreateShader(GLES31.GL_COMPUTE_SHADER);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IllegalStateException("Compute shader failed to compile: " + log);
+        }
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, shader);
+        GLES20.glLinkProgram(program);
+        GLES20.glDeleteShader(shader);
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new IllegalStateException("Compute program failed to link: " + log);
+        }
+        return program;
+    }
+
+    /**
+     * Packed gray image in, packed gray image out, through {@code table}.
+     */
+    private void runGrayProgram(ComputeProgram program, GrayImage image, byte[] table, int count) {
+        int bytes = packedBytes(count);
+        ByteBuffer data = staging(bytes);
+        data.put(image.pixels, 0, count);
+        data.position(0);
+        upload(SRC, data, bytes);
+
+        data = staging(4 * 256);
+        IntBuffer lut = data.asIntBuffer();
+        for (int v = 0; v < 256; v++) {
+            lut.put(table[v] & 0xFF);
+        }
+        upload(LUT, data, 4 * 256);
+
+        allocate(DST, bytes);
+        program.use(count, image.width, image.height, false);
+        dispatch(count);
+        readBack(image.pixels, count);
+    }
+
+    /**
+     * @return The reusable upload buffer, cleared, holding at least {@code bytes}
+     */
+    private ByteBuffer staging(int bytes) {
+        if (staging == null || staging.capacity() < bytes) {
+            staging = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+        staging.clear();
+        return staging;
+    }
+
+    private void upload(int binding, ByteBuffer data, int bytes) {
+        GLES20.glBindBuffer(GLES31.GL_SHADER_STORAGE_BUFFER, buffers[binding]);
+        GLES20.glBufferData(GLES31.GL_SHADER_STORAGE_BUFFER, bytes, data, GLES20.GL_STREAM_DRAW);
+        GLES30.glBindBufferBase(GLES31.GL_SHADER_STORAGE_BUFFER, binding, buffers[binding]);
+    }
+
+    private void allocate(int binding, int bytes) {
+        GLES20.glBindBuffer(GLES31.GL_SHADER_STORAGE_BUFFER, buffers[binding]);
+        GLES20.glBufferData(GLES31.GL_SHADER_STORAGE_BUFFER, bytes, null, GLES30.GL_STREAM_READ);
+        GLES30.glBindBufferBase(GLES31.GL_SHADER_STORAGE_BUFFER, binding, buffers[binding]);
+    }
+
+    /**
+     * A linked compute program with its uniform locations, looked up once in setUp() rather than
+     * on every dispatch. A uniform the shader does not use has location -1, which GL ignores.
+     */
+    private static final class ComputeProgram {
+        final int id;
+        private final int countLocation;
+        private final int widthLocation;
+        private final int heightLocation;
+        private final int deYellowLocation;
+
+        ComputeProgram(int id) {
+            this.id = id;
+            this.countLocation = GLES20.glGetUniformLocation(id, "uCount");
+            this.widthLocation = GLES20.glGetUniformLocation(id, "uWidth");
+            this.heightLocation = GLES20.glGetUniformLocation(id, "uHeight");
+            this.deYellowLocation = GLES20.glGetUniformLocation(id, "uDeYellow");
+        }
+
+        void use(int count, int width, int height, boolean deYellow) {
+            GLES20.glUseProgram(id);
+            GLES30.glUniform1ui(countLocation, count);
+            GLES30.glUniform1ui(widthLocation, width);
+            GLES30.glUniform1ui(heightLocation, height);
+            GLES30.glUniform1ui(deYellowLocation, deYellow ? 1 : 0);
+        }
+    }
+
+    /**
+     * One invocation per packed output word, then make the writes visible to the read-back.
+     */
+    private static void dispatch(int count) {
+        int words = (count + 3) / 4;
+        int groups = (words + LOCAL_SIZE - 1) / LOCAL_SIZE;
+        int groupsX = Math.min(groups, MAX_GROUPS_X);
+        int groupsY = (groups + groupsX - 1) / groupsX;
+        GLES31.glDispatchCompute(groupsX, groupsY, 1);
+        GLES31.glMemoryBarrier(GLES31.GL_BUFFER_UPDATE_BARRIER_BIT);
+    }
+
+    private void readBack(byte[] out, int count) {
+        GLES20.glBindBuffer(GLES31.GL_SHADER_STORAGE_BUFFER, buffers[DST]);
+        ByteBuffer mapped = (ByteBuffer) GLES30.glMapBufferRange(GLES31.GL_SHADER_STORAGE_BUFFER, 0,
+                packedBytes(count), GLES30.GL_MAP_READ_BIT);
+        if (mapped == null) {
+            checkGl("glMapBufferRange");
+            throw new IllegalStateException("glMapBufferRange returned null");
+        }
+        mapped.order(ByteOrder.nativeOrder()).get(out, 0, count);
+        GLES30.glUnmapBuffer(GLES31.GL_SHADER_STORAGE_BUFFER);
+    }
+
+    private static int packedBytes(int count) {
+        return (count + 3) / 4 * 4;
+    }
+
+    private static void checkGl(String operation) {
+        int error = GLES20.glGetError();
+        if (error != GLES20.GL_NO_ERROR) {
+            throw new IllegalStateException(operation + " failed with GL error 0x" + Integer.toHexString(error));
+        }
+    }
+
+    private static IllegalStateException eglError(String operation) {
+        return new IllegalStateException(operation + " failed with EGL error 0x" +
+                Integer.toHexString(EGL14.eglGetError()));
+    }
+}
@@ -0,0 +1,122 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+/**
+ * 8-bit grayscale image backed by a {@code byte[]} (one byte per pixel, row-major).
+ * Preprocessing stages work on this directly; the image is expanded to ARGB only once,
+ * when the final result is turned into a JPEG-encodable bitmap. A quarter of the memory of
+ * an ARGB_8888 intermediate.
+ */
+final class GrayImage {
+    final int width;
+    final int height;
+    final byte[] pixels;
+
+    // ColorMatrix.setSaturation(0) weights (0.213, 0.715, 0.072) in 8.8 fixed point; they sum to 256
+    private static final int LUMA_R = 55;
+    private static final int LUMA_G = 183;
+    private static final int LUMA_B = 18;
+
+    // De-yellow filter per channel (0.85 R, 0.85 G, 1.2 B, clamped and rounded)
+    private static final int[] DEYELLOW_RG = new int[256];
+    private static final int[] DEYELLOW_B = new int[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            DEYELLOW_RG[v] = Math.min(255, (v * 85 + 50) / 100);
+            DEYELLOW_B[v] = Math.min(255, (v * 6 + 2) / 5);
+        }
+    }
+
+    GrayImage(int width, int height) {
+        this(width, height, new byte[width * height]);
+    }
+
+    GrayImage(int width, int height, byte[] pixels) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("pixel buffer too small for " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * @return Gray level 0-255 at (x, y)
+     */
+    int get(int x, int y) {
+        return pixels[y * width + x] & 0xFF;
+    }
+
+    /**
+     * Integer luminance of an ARGB pixel.
+     */
+    static int luma(int argb) {
+        return (LUMA_R * ((argb >> 16) & 0xFF) + LUMA_G * ((argb >> 8) & 0xFF) + LUMA_B * (argb & 0xFF) + 128) >> 8;
+    }
+
+    /**
+     * Integer luminance of an ARGB pixel after the de-yellow filter.
+     */
+    static int deYellowLuma(int argb) {
+        return (LUMA_R * DEYELLOW_RG[(argb >> 16) & 0xFF]
+                + LUMA_G * DEYELLOW_RG[(argb >> 8) & 0xFF]
+                + LUMA_B * DEYELLOW_B[argb & 0xFF] + 128) >> 8;
+    }
+
+    /**
+     * Convert one row of ARGB pixels into this image.
+     *
+     * @param y Destination row
+     * @param argb Source row (at least {@code width} pixels)
+     * @param deYellow Apply the de-yellow filter before taking luminance
+     */
+    void setRowFromArgb(int y, int[] argb, boolean deYellow) {
+        int row = y * width;
+        if (deYellow) {
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = (byte) deYellowLuma(argb[x]);
+            }
+        } else {
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = (byte) luma(argb[x]);
+            }
+        }
+    }
+
+    /**
+     * Expand one row to opaque gray ARGB pixels.
+     */
+    void getRowAsArgb(int y, int[] out) {
+        int row = y * width;
+        for (int x = 0; x < width; x++) {
+            int v = pixels[row + x] & 0xFF;
+            out[x] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+    }
+
+    /**
+     * Build a gray image from a full ARGB pixel array.
+     */
+    static GrayImage fromArgb(int[] argb, int width, int height, boolean deYellow) {
+        GrayImage image = new GrayImage(width, height);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(argb, y * width, row, 0, width);
+            image.setRowFromArgb(y, row, deYellow);
+        }
+        return image;
+    }
+
+    /**
+     * Expand to a full ARGB pixel array.
+     */
+    int[] toArgb() {
+        int[] argb = new int[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            getRowAsArgb(y, row);
+            System.arraycopy(row, 0, argb, y * width, width);
+        }
+        return argb;
+    }
+}
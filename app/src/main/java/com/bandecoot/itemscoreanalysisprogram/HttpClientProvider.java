@@ -0,0 +1,66 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Application-wide OkHttp client shared by every OCR and re-parse call.
+ * One connection pool means the TLS/HTTP2 connection to Vision stays warm across scans
+ * instead of being re-established by each processor or engine instance.
+ *
+ * Response compression: OkHttp adds "Accept-Encoding: gzip" and decompresses transparently
+ * as long as callers do not set that header themselves, so none of them should.
+ */
+public final class HttpClientProvider {
+    // Idle keep-alive connections kept per client (Vision, OCR.Space, re-parser)
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    // Limits for asynchronous calls; synchronous calls are bounded by our own pools
+    private static final int MAX_REQUESTS = 16;
+    private static final int MAX_REQUESTS_PER_HOST = 6;
+
+    private static volatile OkHttpClient client;
+
+    private HttpClientProvider() {}
+
+    /**
+     * @return The shared client, created on first use
+     */
+    public static OkHttpClient get() {
+        OkHttpClient c = client;
+        if (c == null) {
+            synchronized (HttpClientProvider.class) {
+                c = client;
+                if (c == null) {
+                    c = build();
+                    client = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    private static OkHttpClient build() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                // HTTP/2 multiplexes concurrent variant/page requests over one connection
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(20, TimeUnit.SECONDS)
+                // Uploads of several batched images can take a while on slow uplinks
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+}
@@ -16,6 +16,12 @@ import android.util.Log;
 public final class ImagePreprocessor {
     private static final String TAG = "ImagePreprocessor";
     
+    // Samples per row (and roughly per column) used for quality analysis
+    private static final int QUALITY_SAMPLES_ACROSS = 100;
+    
+    // Backend for the per-pixel primitives; chosen on first use
+    private static volatile PreprocessBackend backend;
+    
     private ImagePreprocessor() {}
     
     /**
@@ -46,6 +52,9 @@ public final class ImagePreprocessor {
     
     /**
      * Analyze image quality to determine optimal preprocessing.
+     * Samples ~100 pixels across, reading each sampled row together with its two neighbours in
+     * one bulk read, and derives brightness, contrast and a variance-of-Laplacian blur score
+     * (over adjacent full-resolution pixels) from them in a single pass.
      * 
      * @param src Source bitmap
      * @return ImageQuality metrics
@@ -55,46 +64,15 @@ public final class ImagePreprocessor {
             return new ImageQuality(128, 0.5f, false, false, false);
         }
         
-        int width = src.getWidth();
-        int height = src.getHeight();
+        int sampleStep = Math.max(1, src.getWidth() / QUALITY_SAMPLES_ACROSS); // Sample ~100 pixels wide
+        ImageStats stats = measureSampledRows(src, sampleStep);
         
-        // Sample pixels (don't process entire image for speed)
-        int sampleStep = Math.max(1, width / 100); // Sample ~100 pixels wide
-        int[] pixels = new int[(width / sampleStep) * (height / sampleStep)];
-        int pixelIndex = 0;
+        float avgBrightness = stats.mean;
+        float contrast = stats.stdDev / 255f;
         
-        for (int y = 0; y < height; y += sampleStep) {
-            for (int x = 0; x < width; x += sampleStep) {
-                pixels[pixelIndex++] = src.getPixel(x, y);
-            }
-        }
-        
-        // Calculate brightness statistics
-        float sumBrightness = 0;
-        float[] brightnesses = new float[pixelIndex];
-        
-        for (int i = 0; i < pixelIndex; i++) {
-            int pixel = pixels[i];
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = pixel & 0xFF;
-            float brightness = (float)(0.299 * r + 0.587 * g + 0.114 * b);
-            brightnesses[i] = brightness;
-            sumBrightness += brightness;
-        }
-        
-        float avgBrightness = sumBrightness / pixelIndex;
-        
-        // Calculate contrast (standard deviation)
-        float sumSquaredDiff = 0;
-        for (int i = 0; i < pixelIndex; i++) {
-            float diff = brightnesses[i] - avgBrightness;
-            sumSquaredDiff += diff * diff;
-        }
-        float contrast = (float) Math.sqrt(sumSquaredDiff / pixelIndex) / 255f;
-        
-        // Detect blur using edge detection (simplified Laplacian)
-        boolean isBlurry = detectBlur(src, sampleStep);
+        // Low Laplacian variance means few sharp edges, i.e. blur
+        boolean isBlurry = stats.isBlurry();
+        Log.d(TAG, "Laplacian variance: " + stats.laplacianVariance + " (blurry: " + isBlurry + ")");
         
         // Detect lighting conditions
         boolean isLowLight = avgBrightness < 80;
@@ -107,45 +85,27 @@ public final class ImagePreprocessor {
     }
     
     /**
-     * Detect if image is blurry using simplified edge detection.
-     * 
-     * @param src Source bitmap
-     * @param sampleStep Sampling step for performance
-     * @return True if image appears blurry
+     * Measure every {@code sampleStep}-th row. Each sampled row is fetched together with the rows
+     * above and below it in a single getPixels call, so the Laplacian sees adjacent pixels.
      */
-    private static boolean detectBlur(Bitmap src, int sampleStep) {
+    private static ImageStats measureSampledRows(Bitmap src, int sampleStep) {
         int width = src.getWidth();
         int height = src.getHeight();
-        
-        // Sample edge strength
-        float sumEdgeStrength = 0;
-        int edgeCount = 0;
-        
-        for (int y = sampleStep; y < height - sampleStep; y += sampleStep * 2) {
-            for (int x = sampleStep; x < width - sampleStep; x += sampleStep * 2) {
-                int center = src.getPixel(x, y);
-                int right = src.getPixel(x + sampleStep, y);
-                int bottom = src.getPixel(x, y + sampleStep);
-                
-                // Calculate brightness
-                int cBright = getBrightness(center);
-                int rBright = getBrightness(right);
-                int bBright = getBrightness(bottom);
-                
-                // Edge strength (horizontal + vertical gradients)
-                float edgeStrength = Math.abs(cBright - rBright) + Math.abs(cBright - bBright);
-                sumEdgeStrength += edgeStrength;
-                edgeCount++;
+        ImageStats.Accumulator accumulator = new ImageStats.Accumulator(sampleStep);
+        int[] argb = new int[width * 3];
+        byte[] gray = new byte[width * 3];
+        for (int y = 0; y < height; y += sampleStep) {
+            int top = Math.max(0, y - 1);
+            int bottom = Math.min(height - 1, y + 1);
+            int count = (bottom - top + 1) * width;
+            src.getPixels(argb, 0, width, 0, top, width, bottom - top + 1);
+            for (int i = 0; i < count; i++) {
+                gray[i] = (byte) getBrightness(argb[i]);
             }
+            int row = (y - top) * width;
+            accumulator.addRow(gray, y > 0 ? 0 : -1, row, y < height - 1 ? row + width : -1, width);
         }
-        
-        float avgEdgeStrength = sumEdgeStrength / edgeCount;
-        
-        // Low average edge strength indicates blur
-        boolean isBlurry = avgEdgeStrength < 20;
-        
-        Log.d(TAG, "Edge strength: " + avgEdgeStrength + " (blurry: " + isBlurry + ")");
-        return isBlurry;
+        return accumulator.finish();
     }
     
     /**
@@ -194,17 +154,16 @@ public final class ImagePreprocessor {
      * @return Grayscale bitmap
      */
     public static Bitmap toGrayscale(Bitmap src) {
+        return toGrayscale(src, null);
+    }
+    
+    /**
+     * @param session Reuses buffers and the output bitmap across variants; null to allocate
+     */
+    public static Bitmap toGrayscale(Bitmap src, PreprocessSession session) {
         if (src == null) return null;
         
-        Bitmap result = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(result);
-        
-        ColorMatrix grayscale = new ColorMatrix();
-        grayscale.setSaturation(0);
-        
-        Paint paint = new Paint();
-        paint.setColorFilter(new ColorMatrixColorFilter(grayscale));
-        canvas.drawBitmap(src, 0, 0, paint);
+        Bitmap result = applyFused(src, false, (image, pool, backend) -> { }, session);
         
         Log.d(TAG, "Converted to grayscale");
         return result;
@@ -253,32 +212,36 @@ public final class ImagePreprocessor {
         int[] pixels = new int[width * height];
         src.getPixels(pixels, 0, width, 0, 0, width, height);
         
-        // Convert to grayscale intensities using standard luminance formula
+        // Convert to grayscale intensities using standard luminance formula,
+        // building one histogram per row band
         int[] gray = new int[pixels.length];
-        for (int i = 0; i < pixels.length; i++) {
-            int color = pixels[i];
-            int r = (color >> 16) & 0xFF;
-            int g = (color >> 8) & 0xFF;
-            int b = color & 0xFF;
-            // Use standard luminance formula accounting for human eye sensitivity
-            gray[i] = (int)(0.299 * r + 0.587 * g + 0.114 * b);
-        }
-        
-        // Build histogram
-        int[] histogram = new int[256];
-        for (int value : gray) {
-            histogram[value]++;
-        }
+        int bands = StripedExecutor.bandCount(height);
+        int[][] partial = new int[bands][256];
+        StripedExecutor.forEachBand(height, bands, (band, startRow, endRow) -> {
+            int[] histogram = partial[band];
+            for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                int color = pixels[i];
+                int r = (color >> 16) & 0xFF;
+                int g = (color >> 8) & 0xFF;
+                int b = color & 0xFF;
+                // Use standard luminance formula accounting for human eye sensitivity
+                gray[i] = (int)(0.299 * r + 0.587 * g + 0.114 * b);
+                histogram[gray[i]]++;
+            }
+        });
+        int[] histogram = PreprocessKernels.merge(partial);
         
         // Calculate Otsu threshold
-        int threshold = calculateOtsuThreshold(histogram, pixels.length);
+        int threshold = PreprocessKernels.otsuThreshold(histogram, pixels.length);
         Log.d(TAG, "Otsu threshold calculated: " + threshold);
         
         // Apply threshold
         Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        for (int i = 0; i < pixels.length; i++) {
-            pixels[i] = (gray[i] < threshold) ? Color.BLACK : Color.WHITE;
-        }
+        StripedExecutor.forEachBand(height, bands, (band, startRow, endRow) -> {
+            for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                pixels[i] = (gray[i] < threshold) ? Color.BLACK : Color.WHITE;
+            }
+        });
         result.setPixels(pixels, 0, width, 0, 0, width, height);
         
         Log.d(TAG, "Applied Otsu binarization");
@@ -286,42 +249,155 @@ public final class ImagePreprocessor {
     }
     
     /**
-     * Calculate optimal threshold using Otsu's method.
-     * Maximizes inter-class variance to find best separation point.
+     * Pipeline run in place over an 8-bit luminance buffer (see {@link PreprocessKernels}).
+     */
+    private interface GrayKernel {
+        void apply(GrayImage image, BufferPool pool, PreprocessBackend backend);
+    }
+    
+    /**
+     * Backend for the per-pixel primitives. On first use a GPU (GLES compute) backend is set up
+     * when enabled and available, and kept only if it reproduces the Java reference exactly;
+     * otherwise, and after any GPU failure, the Java backend is used.
      */
-    private static int calculateOtsuThreshold(int[] histogram, int totalPixels) {
-        float sum = 0;
-        for (int i = 0; i < 256; i++) {
-            sum += i * histogram[i];
+    static PreprocessBackend backend() {
+        PreprocessBackend current = backend;
+        if (current == null) {
+            synchronized (ImagePreprocessor.class) {
+                if (backend == null) {
+                    backend = selectBackend();
+                }
+                current = backend;
+            }
         }
-        
-        float sumB = 0;
-        int wB = 0;
-        int wF;
-        float varMax = 0;
-        int threshold = 0;
-        
-        for (int i = 0; i < 256; i++) {
-            wB += histogram[i];
-            if (wB == 0) continue;
-            
-            wF = totalPixels - wB;
-            if (wF == 0) break;
-            
-            sumB += i * histogram[i];
-            float mB = sumB / wB;
-            float mF = (sum - sumB) / wF;
-            
-            // Calculate between-class variance
-            float varBetween = (float) wB * wF * (mB - mF) * (mB - mF);
-            
-            if (varBetween > varMax) {
-                varMax = varBetween;
-                threshold = i;
+        return current;
+    }
+    
+    private static PreprocessBackend selectBackend() {
+        if (!BuildConfig.GPU_PREPROCESSING) {
+            return PreprocessKernels.JAVA;
+        }
+        GlesPreprocessBackend gpu = GlesPreprocessBackend.create();
+        if (gpu == null) {
+            return PreprocessKernels.JAVA;
+        }
+        String mismatch;
+        try {
+            mismatch = PreprocessBackendParity.check(PreprocessKernels.JAVA, gpu);
+        } catch (RuntimeException e) {
+            mismatch = e.toString();
+        }
+        if (mismatch != null) {
+            Log.e(TAG, "GPU preprocessing differs from the Java reference (" + mismatch + "), using Java");
+            gpu.close();
+            return PreprocessKernels.JAVA;
+        }
+        Log.d(TAG, "Using GPU preprocessing backend: " + gpu.name());
+        return gpu;
+    }
+    
+    /**
+     * Switch to the Java backend for good after the accelerated one failed.
+     */
+    private static void disableBackend(PreprocessBackend failed, RuntimeException cause) {
+        Log.e(TAG, "Preprocessing backend '" + failed.name() + "' failed, falling back to Java", cause);
+        synchronized (ImagePreprocessor.class) {
+            if (backend != failed) return;
+            backend = PreprocessKernels.JAVA;
+        }
+        if (failed instanceof GlesPreprocessBackend) {
+            ((GlesPreprocessBackend) failed).close();
+        }
+    }
+    
+    /**
+     * Read a bitmap row by row straight into an 8-bit luminance buffer (integer luma).
+     * 
+     * @param deYellow Apply the de-yellow filter before taking luminance
+     * @param pool Supplies the pixel buffer
+     */
+    static GrayImage readGray(Bitmap src, boolean deYellow, BufferPool pool) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        GrayImage image = new GrayImage(width, height, pool.acquireBytes(width * height));
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            src.getPixels(row, 0, width, 0, y, width, 1);
+            image.setRowFromArgb(y, row, deYellow);
+        }
+        return image;
+    }
+    
+    /**
+     * Read a bitmap into an 8-bit luminance buffer using {@code backend}. Accelerated backends
+     * convert the whole frame at once; the Java backend reads row by row.
+     */
+    static GrayImage readGray(Bitmap src, boolean deYellow, BufferPool pool, PreprocessBackend backend) {
+        if (backend == PreprocessKernels.JAVA) {
+            return readGray(src, deYellow, pool);
+        }
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int[] argb = pool.acquireInts(width * height);
+        try {
+            src.getPixels(argb, 0, width, 0, 0, width, height);
+            GrayImage image = new GrayImage(width, height, pool.acquireBytes(width * height));
+            backend.gray(argb, deYellow, image);
+            return image;
+        } finally {
+            pool.release(argb);
+        }
+    }
+    
+    /**
+     * Expand a luminance buffer into the one JPEG-encodable ARGB bitmap of the pipeline.
+     * 
+     * @param session Supplies a reusable output bitmap; null to allocate a new one
+     */
+    static Bitmap toBitmap(GrayImage image, PreprocessSession session) {
+        Bitmap result = session != null
+                ? session.acquireBitmap(image.width, image.height)
+                : Bitmap.createBitmap(image.width, image.height, Bitmap.Config.ARGB_8888);
+        int[] row = new int[image.width];
+        for (int y = 0; y < image.height; y++) {
+            image.getRowAsArgb(y, row);
+            result.setPixels(row, 0, image.width, 0, y, image.width, 1);
+        }
+        return result;
+    }
+    
+    /**
+     * Convert to 8-bit gray once, run a fused kernel over it in place, and expand to the single
+     * output bitmap. Replaces chains of Canvas/ColorMatrix passes that each allocated a
+     * full-size ARGB intermediate. If an accelerated backend fails, the variant is redone on the
+     * Java backend.
+     * 
+     * @param session Pools for the gray buffer, kernel scratch and output bitmap; may be null
+     */
+    private static Bitmap applyFused(Bitmap src, boolean deYellow, GrayKernel kernel,
+                                     PreprocessSession session) {
+        BufferPool pool = session != null ? session.buffers() : BufferPool.NONE;
+        PreprocessBackend current = backend();
+        GrayImage image = null;
+        try {
+            try {
+                image = readGray(src, deYellow, pool, current);
+                kernel.apply(image, pool, current);
+            } catch (RuntimeException e) {
+                if (current == PreprocessKernels.JAVA) throw e;
+                disableBackend(current, e);
+                // Hand the failed attempt's gray buffer back before the retry takes one
+                if (image != null) {
+                    pool.release(image.pixels);
+                    image = null;
+                }
+                image = readGray(src, deYellow, pool);
+                kernel.apply(image, pool, PreprocessKernels.JAVA);
             }
+            return toBitmap(image, session);
+        } finally {
+            if (image != null) pool.release(image.pixels);
         }
-        
-        return threshold;
     }
     
     /**
@@ -330,308 +406,142 @@ public final class ImagePreprocessor {
      * 2. Grayscale conversion
      * 3. Contrast enhancement
      * 4. Otsu binarization
+     * Steps 1-2 happen while reading into an 8-bit luminance buffer; 3-4 run fused over it.
      * 
      * @param src Source bitmap
      * @return Fully preprocessed bitmap optimized for OCR
      */
     public static Bitmap preprocessForClassroom(Bitmap src) {
+        return preprocessForClassroom(src, null);
+    }
+    
+    /**
+     * @param session Reuses buffers and the output bitmap across variants; null to allocate
+     */
+    public static Bitmap preprocessForClassroom(Bitmap src, PreprocessSession session) {
         if (src == null) return null;
         
         Log.d(TAG, "Starting classroom preprocessing pipeline");
-        
-        // Step 1: De-yellow
-        Bitmap deYellowed = deYellow(src);
-        if (deYellowed == null) return null;
-        
-        // Step 2: Grayscale
-        Bitmap gray = toGrayscale(deYellowed);
-        if (deYellowed != src) deYellowed.recycle();
-        if (gray == null) return null;
-        
-        // Step 3: Enhance contrast
-        Bitmap contrasted = enhanceContrast(gray);
-        gray.recycle();
-        if (contrasted == null) return null;
-        
-        // Step 4: Otsu binarization
-        Bitmap binarized = otsuBinarization(contrasted);
-        contrasted.recycle();
-        
+        Bitmap binarized = applyFused(src, true, (image, pool, backend) -> PreprocessKernels.classroom(image, backend), session);
         Log.d(TAG, "Classroom preprocessing complete");
         return binarized;
     }
     
     /**
-     * Light preprocessing variant without binarization.
+     * Light preprocessing variant without binarization (grayscale + contrast).
      * Good for already-clear images.
      * 
      * @param src Source bitmap
      * @return Preprocessed bitmap
      */
     public static Bitmap preprocessLight(Bitmap src) {
+        return preprocessLight(src, null);
+    }
+    
+    /**
+     * @param session Reuses buffers and the output bitmap across variants; null to allocate
+     */
+    public static Bitmap preprocessLight(Bitmap src, PreprocessSession session) {
         if (src == null) return null;
         
         Log.d(TAG, "Starting light preprocessing");
-        
-        Bitmap gray = toGrayscale(src);
-        if (gray == null) return null;
-        
-        Bitmap contrasted = enhanceContrast(gray);
-        gray.recycle();
-        
+        Bitmap contrasted = applyFused(src, false, (image, pool, backend) -> PreprocessKernels.light(image, backend), session);
         Log.d(TAG, "Light preprocessing complete");
         return contrasted;
     }
     
     /**
      * Ultra-high contrast preprocessing for faded or low-contrast images.
-     * Applies aggressive contrast enhancement.
+     * Applies grayscale and aggressive (2x) contrast enhancement.
      * 
      * @param src Source bitmap
      * @return Ultra-high contrast bitmap
      */
     public static Bitmap preprocessUltraHighContrast(Bitmap src) {
-        if (src == null) return null;
-        
-        Log.d(TAG, "Starting ultra-high contrast preprocessing");
-        
-        Bitmap gray = toGrayscale(src);
-        if (gray == null) return null;
-        
-        Bitmap ultraContrast = applyUltraContrast(gray);
-        gray.recycle();
-        
-        Log.d(TAG, "Ultra-high contrast preprocessing complete");
-        return ultraContrast;
+        return preprocessUltraHighContrast(src, null);
     }
     
     /**
-     * Apply ultra-high contrast enhancement.
-     * More aggressive than standard contrast enhancement.
-     * 
-     * @param src Source bitmap (preferably grayscale)
-     * @return Bitmap with ultra-high contrast
+     * @param session Reuses buffers and the output bitmap across variants; null to allocate
      */
-    private static Bitmap applyUltraContrast(Bitmap src) {
+    public static Bitmap preprocessUltraHighContrast(Bitmap src, PreprocessSession session) {
         if (src == null) return null;
         
-        Bitmap result = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(result);
-        
-        // Ultra-aggressive contrast: scale values around midpoint with higher intensity
-        ColorMatrix ultraContrast = new ColorMatrix(new float[]{
-            2.0f, 0,    0,    0, -128,  // Red: double contrast
-            0,    2.0f, 0,    0, -128,  // Green: double contrast
-            0,    0,    2.0f, 0, -128,  // Blue: double contrast
-            0,    0,    0,    1, 0      // Alpha: unchanged
-        });
-        
-        Paint paint = new Paint();
-        paint.setColorFilter(new ColorMatrixColorFilter(ultraContrast));
-        canvas.drawBitmap(src, 0, 0, paint);
-        
-        Log.d(TAG, "Applied ultra-high contrast");
-        return result;
+        Log.d(TAG, "Starting ultra-high contrast preprocessing");
+        Bitmap ultraContrast = applyFused(src, false, (image, pool, backend) -> PreprocessKernels.ultraContrast(image, backend), session);
+        Log.d(TAG, "Ultra-high contrast preprocessing complete");
+        return ultraContrast;
     }
     
     /**
      * Sharpen filter to enhance edges and improve text clarity.
+     * Grayscale, 3x3 sharpen kernel, then contrast enhancement.
      * Useful for slightly blurry images.
      * 
      * @param src Source bitmap
      * @return Sharpened bitmap
      */
     public static Bitmap preprocessSharpened(Bitmap src) {
+        return preprocessSharpened(src, null);
+    }
+    
+    /**
+     * @param session Reuses buffers and the output bitmap across variants; null to allocate
+     */
+    public static Bitmap preprocessSharpened(Bitmap src, PreprocessSession session) {
         if (src == null) return null;
         
         Log.d(TAG, "Starting sharpened preprocessing");
-        
-        Bitmap gray = toGrayscale(src);
-        if (gray == null) return null;
-        
-        Bitmap sharpened = applySharpen(gray);
-        
-        if (sharpened == null) {
-            // If sharpening failed, return grayscale without recycling
-            Log.d(TAG, "Sharpening failed, using grayscale");
-            Bitmap contrasted = enhanceContrast(gray);
-            gray.recycle();
-            Log.d(TAG, "Sharpened preprocessing complete (grayscale fallback)");
-            return contrasted;
-        }
-        
-        // Sharpening succeeded, recycle grayscale and continue
-        gray.recycle();
-        Bitmap contrasted = enhanceContrast(sharpened);
-        sharpened.recycle();
-        
+        Bitmap contrasted = applyFused(src, false, (image, pool, backend) -> PreprocessKernels.sharpened(image, backend), session);
         Log.d(TAG, "Sharpened preprocessing complete");
         return contrasted;
     }
     
     /**
-     * Apply sharpening filter using convolution.
-     * Enhances edges to make text more readable.
+     * Local (adaptive) thresholding for sheets with shadows or uneven lighting.
+     * De-yellow and grayscale, then each pixel is compared with the mean of its neighbourhood
+     * (summed-area table) instead of one global threshold.
      * 
      * @param src Source bitmap
-     * @return Sharpened bitmap
+     * @return Binary (black and white) bitmap
+     */
+    public static Bitmap preprocessAdaptiveThreshold(Bitmap src) {
+        return preprocessAdaptiveThreshold(src, null);
+    }
+    
+    /**
+     * @param session Reuses buffers and the output bitmap across variants; null to allocate
      */
-    private static Bitmap applySharpen(Bitmap src) {
+    public static Bitmap preprocessAdaptiveThreshold(Bitmap src, PreprocessSession session) {
         if (src == null) return null;
         
-        int width = src.getWidth();
-        int height = src.getHeight();
-        
-        // Get pixels
-        int[] pixels = new int[width * height];
-        src.getPixels(pixels, 0, width, 0, 0, width, height);
-        
-        // Sharpen kernel (3x3):
-        // [ 0, -1,  0]
-        // [-1,  5, -1]
-        // [ 0, -1,  0]
-        int[] output = new int[pixels.length];
-        
-        for (int y = 1; y < height - 1; y++) {
-            for (int x = 1; x < width - 1; x++) {
-                int idx = y * width + x;
-                
-                // Get center and neighbors
-                int center = pixels[idx];
-                int top = pixels[(y - 1) * width + x];
-                int bottom = pixels[(y + 1) * width + x];
-                int left = pixels[y * width + (x - 1)];
-                int right = pixels[y * width + (x + 1)];
-                
-                // Extract grayscale values
-                int cR = (center >> 16) & 0xFF;
-                int tR = (top >> 16) & 0xFF;
-                int bR = (bottom >> 16) & 0xFF;
-                int lR = (left >> 16) & 0xFF;
-                int rR = (right >> 16) & 0xFF;
-                
-                // Apply sharpen kernel
-                int newR = 5 * cR - tR - bR - lR - rR;
-                newR = Math.max(0, Math.min(255, newR));
-                
-                // Create grayscale pixel
-                output[idx] = 0xFF000000 | (newR << 16) | (newR << 8) | newR;
-            }
-        }
-        
-        // Handle borders (copy original)
-        for (int x = 0; x < width; x++) {
-            output[x] = pixels[x]; // Top row
-            output[(height - 1) * width + x] = pixels[(height - 1) * width + x]; // Bottom row
-        }
-        for (int y = 0; y < height; y++) {
-            output[y * width] = pixels[y * width]; // Left column
-            output[y * width + (width - 1)] = pixels[y * width + (width - 1)]; // Right column
-        }
-        
-        Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        result.setPixels(output, 0, width, 0, 0, width, height);
-        
-        Log.d(TAG, "Applied sharpening filter");
-        return result;
+        Log.d(TAG, "Starting adaptive threshold preprocessing");
+        Bitmap binarized = applyFused(src, true, (image, pool, backend) -> PreprocessKernels.adaptiveThreshold(image, pool), session);
+        Log.d(TAG, "Adaptive threshold preprocessing complete");
+        return binarized;
     }
     
     /**
      * Adaptive histogram equalization for uneven lighting conditions.
-     * Improves local contrast across the image.
+     * Grayscale, then contrast-limited equalization per tile (CLAHE) with bilinear blending
+     * between tiles, so dim and bright regions of the sheet are each stretched locally.
      * 
      * @param src Source bitmap
      * @return Histogram-equalized bitmap
      */
     public static Bitmap preprocessAdaptiveHistogram(Bitmap src) {
-        if (src == null) return null;
-        
-        Log.d(TAG, "Starting adaptive histogram preprocessing");
-        
-        Bitmap gray = toGrayscale(src);
-        if (gray == null) return null;
-        
-        Bitmap equalized = applyHistogramEqualization(gray);
-        
-        if (equalized == null) {
-            // If equalization failed, return grayscale without recycling
-            Log.d(TAG, "Histogram equalization failed, using grayscale");
-            Bitmap contrasted = enhanceContrast(gray);
-            gray.recycle();
-            Log.d(TAG, "Adaptive histogram preprocessing complete (grayscale fallback)");
-            return contrasted;
-        }
-        
-        // Equalization succeeded, recycle grayscale and continue
-        gray.recycle();
-        Bitmap contrasted = enhanceContrast(equalized);
-        equalized.recycle();
-        
-        Log.d(TAG, "Adaptive histogram preprocessing complete");
-        return contrasted;
+        return preprocessAdaptiveHistogram(src, null);
     }
     
     /**
-     * Apply histogram equalization to improve contrast.
-     * Uses cumulative distribution function to redistribute pixel intensities.
-     * 
-     * @param src Source bitmap (preferably grayscale)
-     * @return Equalized bitmap
+     * @param session Reuses buffers and the output bitmap across variants; null to allocate
      */
-    private static Bitmap applyHistogramEqualization(Bitmap src) {
+    public static Bitmap preprocessAdaptiveHistogram(Bitmap src, PreprocessSession session) {
         if (src == null) return null;
         
-        int width = src.getWidth();
-        int height = src.getHeight();
-        int[] pixels = new int[width * height];
-        src.getPixels(pixels, 0, width, 0, 0, width, height);
-        
-        // Convert to grayscale intensities
-        int[] gray = new int[pixels.length];
-        for (int i = 0; i < pixels.length; i++) {
-            int color = pixels[i];
-            int r = (color >> 16) & 0xFF;
-            int g = (color >> 8) & 0xFF;
-            int b = color & 0xFF;
-            gray[i] = (int)(0.299 * r + 0.587 * g + 0.114 * b);
-        }
-        
-        // Build histogram
-        int[] histogram = new int[256];
-        for (int value : gray) {
-            histogram[value]++;
-        }
-        
-        // Calculate cumulative distribution function (CDF)
-        int[] cdf = new int[256];
-        cdf[0] = histogram[0];
-        for (int i = 1; i < 256; i++) {
-            cdf[i] = cdf[i - 1] + histogram[i];
-        }
-        
-        // Find minimum non-zero CDF value
-        int cdfMin = 0;
-        for (int i = 0; i < 256; i++) {
-            if (cdf[i] > 0) {
-                cdfMin = cdf[i];
-                break;
-            }
-        }
-        
-        // Equalize using CDF
-        int totalPixels = pixels.length;
-        int[] equalized = new int[pixels.length];
-        for (int i = 0; i < pixels.length; i++) {
-            int oldValue = gray[i];
-            int newValue = (int) ((cdf[oldValue] - cdfMin) * 255.0 / (totalPixels - cdfMin));
-            newValue = Math.max(0, Math.min(255, newValue));
-            equalized[i] = 0xFF000000 | (newValue << 16) | (newValue << 8) | newValue;
-        }
-        
-        Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        result.setPixels(equalized, 0, width, 0, 0, width, height);
-        
-        Log.d(TAG, "Applied histogram equalization");
-        return result;
+        Log.d(TAG, "Starting adaptive histogram preprocessing");
+        Bitmap contrasted = applyFused(src, false, (image, pool, backend) -> PreprocessKernels.adaptiveHistogram(image), session);
+        Log.d(TAG, "Adaptive histogram preprocessing complete");
+        return contrasted;
     }
 }
@@ -0,0 +1,118 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+/**
+ * Brightness, contrast and blur statistics of a gray image, computed in one pass over sampled
+ * rows. Brightness and contrast come from every {@code sampleStep}-th pixel of every
+ * {@code sampleStep}-th row; the blur score is the variance of the 4-neighbour Laplacian at
+ * those same pixels, taken over their adjacent full-resolution neighbours so it responds to
+ * focus rather than to the spacing of the samples.
+ * Used by {@link ImagePreprocessor#analyzeImageQuality}, which feeds it rows read in bulk.
+ */
+final class ImageStats {
+    // Laplacian variance below which an image counts as blurry. Sharp synthetic pen-stroke pages
+    // score well over a thousand; the same pages through a 3x3 or 5x5 box blur about a hundred or less.
+    static final float BLUR_LAPLACIAN_VARIANCE = 300f;
+
+    /** Mean gray level, 0-255 */
+    final float mean;
+    /** Standard deviation of the gray level, 0-255 */
+    final float stdDev;
+    /** Variance of the 4-neighbour Laplacian at the interior samples; low values mean blur */
+    final float laplacianVariance;
+
+    private ImageStats(float mean, float stdDev, float laplacianVariance) {
+        this.mean = mean;
+        this.stdDev = stdDev;
+        this.laplacianVariance = laplacianVariance;
+    }
+
+    /**
+     * @return Whether the Laplacian variance is below {@link #BLUR_LAPLACIAN_VARIANCE}
+     */
+    boolean isBlurry() {
+        return laplacianVariance < BLUR_LAPLACIAN_VARIANCE;
+    }
+
+    /**
+     * @param grid Gray samples (one byte per sample), all of them used
+     * @return Statistics of the grid; all zero for an empty grid
+     */
+    static ImageStats measure(GrayImage grid) {
+        return measure(grid, 1);
+    }
+
+    /**
+     * @param image Gray image at full resolution
+     * @param sampleStep Distance between sampled rows and between sampled pixels in a row
+     * @return Statistics of the sampled pixels; all zero for an empty image
+     */
+    static ImageStats measure(GrayImage image, int sampleStep) {
+        Accumulator accumulator = new Accumulator(sampleStep);
+        int width = image.width;
+        for (int y = 0; y < image.height; y += sampleStep) {
+            int above = y > 0 ? (y - 1) * width : -1;
+            int below = y < image.height - 1 ? (y + 1) * width : -1;
+            accumulator.addRow(image.pixels, above, y * width, below, width);
+        }
+        return accumulator.finish();
+    }
+
+    /**
+     * Sums for {@link ImageStats}, fed one sampled row at a time so callers only need that row and
+     * its two neighbours in memory.
+     */
+    static final class Accumulator {
+        private final int sampleStep;
+        private long sum;
+        private long sumSquares;
+        private int count;
+        private long lapSum;
+        private long lapSumSquares;
+        private int lapCount;
+
+        Accumulator(int sampleStep) {
+            this.sampleStep = Math.max(1, sampleStep);
+        }
+
+        /**
+         * Add every {@code sampleStep}-th pixel of a row, with its Laplacian where the row has
+         * both neighbours and the pixel is not on the left or right edge.
+         *
+         * @param px Gray pixels holding the row and its neighbours
+         * @param above Offset of the row above in {@code px}, or -1 for the first row
+         * @param row Offset of the sampled row in {@code px}
+         * @param below Offset of the row below in {@code px}, or -1 for the last row
+         * @param width Row length
+         */
+        void addRow(byte[] px, int above, int row, int below, int width) {
+            boolean interiorRow = above >= 0 && below >= 0;
+            for (int x = 0; x < width; x += sampleStep) {
+                int v = px[row + x] & 0xFF;
+                sum += v;
+                sumSquares += v * v;
+                count++;
+                if (interiorRow && x > 0 && x < width - 1) {
+                    int lap = (px[row + x - 1] & 0xFF) + (px[row + x + 1] & 0xFF)
+                            + (px[above + x] & 0xFF) + (px[below + x] & 0xFF) - 4 * v;
+                    lapSum += lap;
+                    lapSumSquares += (long) lap * lap;
+                    lapCount++;
+                }
+            }
+        }
+
+        ImageStats finish() {
+            if (count == 0) {
+                return new ImageStats(0, 0, 0);
+            }
+            double mean = (double) sum / count;
+            double variance = Math.max(0, (double) sumSquares / count - mean * mean);
+            double lapVariance = 0;
+            if (lapCount > 0) {
+                double lapMean = (double) lapSum / lapCount;
+                lapVariance = Math.max(0, (double) lapSumSquares / lapCount - lapMean * lapMean);
+            }
+            return new ImageStats((float) mean, (float) Math.sqrt(variance), (float) lapVariance);
+        }
+    }
+}
@@ -23,6 +23,24 @@ public final class ImageUtil {
         return out.toByteArray();
     }
     
+    /**
+     * Scale the bitmap down so that the longer side is <= maxDim, with the same filtering the
+     * resize-and-compress helpers use. Preprocessing on the result instead of the full-resolution
+     * source avoids work on pixels the OCR upload would throw away anyway.
+     *
+     * @param src Source bitmap
+     * @param maxDim Maximum dimension (width or height)
+     * @return A new scaled bitmap, or {@code src} itself when it already fits
+     */
+    public static Bitmap downscale(Bitmap src, int maxDim) {
+        if (src == null) return null;
+        int w = src.getWidth(), h = src.getHeight();
+        float scale = Math.min(1f, maxDim / (float)Math.max(w, h));
+        if (scale >= 1f) return src;
+        int nw = Math.round(w * scale), nh = Math.round(h * scale);
+        return Bitmap.createScaledBitmap(src, nw, nh, true);
+    }
+
     /**
      * High quality resize and compress for OCR.
      * Uses higher JPEG quality (95%) and allows larger images (2048px).
@@ -102,56 +120,86 @@ public final class ImageUtil {
         int[] pixels = new int[width * height];
         src.getPixels(pixels, 0, width, 0, 0, width, height);
         
+        // Sum brightness per row band; the total is the same as one sequential pass
+        int bands = StripedExecutor.bandCount(height);
+        long[] bandSums = new long[bands];
+        StripedExecutor.forEachBand(height, bands, (band, startRow, endRow) -> {
+            long sum = 0;
+            for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                int pixel = pixels[i];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                int gray = (r + g + b) / 3;
+                sum += gray;
+            }
+            bandSums[band] = sum;
+        });
         long sumBrightness = 0;
-        for (int pixel : pixels) {
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = pixel & 0xFF;
-            int gray = (r + g + b) / 3;
-            sumBrightness += gray;
+        for (long sum : bandSums) {
+            sumBrightness += sum;
         }
         
         // Calculate threshold (slightly below mean to preserve dark text)
-        int threshold = (int) (sumBrightness / pixels.length * 0.85);
-        threshold = Math.max(80, Math.min(180, threshold)); // Clamp between 80-180
+        int meanThreshold = (int) (sumBrightness / pixels.length * 0.85);
+        final int threshold = Math.max(80, Math.min(180, meanThreshold)); // Clamp between 80-180
         
         // Apply threshold: pixels darker than threshold -> black, else -> white
-        for (int i = 0; i < pixels.length; i++) {
-            int pixel = pixels[i];
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = pixel & 0xFF;
-            int gray = (r + g + b) / 3;
-            
-            // If darker than threshold, set to black; otherwise white
-            int newColor = (gray < threshold) ? 0xFF000000 : 0xFFFFFFFF;
-            pixels[i] = newColor;
-        }
+        StripedExecutor.forEachBand(height, bands, (band, startRow, endRow) -> {
+            for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                int pixel = pixels[i];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                int gray = (r + g + b) / 3;
+                
+                // If darker than threshold, set to black; otherwise white
+                pixels[i] = (gray < threshold) ? 0xFF000000 : 0xFFFFFFFF;
+            }
+        });
         
         result.setPixels(pixels, 0, width, 0, 0, width, height);
         return result;
     }
     
+    // Longer side of the thumbnail the column layout is detected on
+    private static final int LAYOUT_THUMBNAIL_DIMENSION = 512;
+
     /**
-     * Phase 2 Feature #3: Split image vertically into left and right halves.
-     * Used for two-column OCR to avoid cross-column text confusion.
-     * 
+     * Detect the column layout (1-3 columns) of a page from the ink profile of a small gray
+     * thumbnail; column rectangles are scaled back to the source size.
+     *
      * @param src Source bitmap
-     * @return Array of two bitmaps [leftHalf, rightHalf]
+     * @return Layout in {@code src} pixel coordinates
      */
-    public static Bitmap[] splitImageVertically(Bitmap src) {
-        if (src == null) return new Bitmap[]{null, null};
-        
-        int width = src.getWidth();
-        int height = src.getHeight();
-        int halfWidth = width / 2;
-        
-        // Create left half (0 to halfWidth)
-        Bitmap leftHalf = Bitmap.createBitmap(src, 0, 0, halfWidth, height);
-        
-        // Create right half (halfWidth to width)
-        Bitmap rightHalf = Bitmap.createBitmap(src, halfWidth, 0, width - halfWidth, height);
-        
-        return new Bitmap[]{leftHalf, rightHalf};
+    static ColumnLayout detectColumns(Bitmap src) {
+        Bitmap thumbnail = downscale(src, LAYOUT_THUMBNAIL_DIMENSION);
+        try {
+            ColumnLayout layout = ColumnLayout.detect(ImagePreprocessor.readGray(thumbnail, false, BufferPool.NONE));
+            return layout.scale((float) src.getWidth() / thumbnail.getWidth(), src.getWidth(), src.getHeight());
+        } finally {
+            if (thumbnail != src) thumbnail.recycle();
+        }
+    }
+
+    /**
+     * Split a page into its detected columns, each cropped tight to its ink.
+     * Used for column OCR to avoid cross-column text confusion; replaces the fixed cut at width/2.
+     *
+     * @param src Source bitmap
+     * @param layout Layout of {@code src} from {@link #detectColumns(Bitmap)}
+     * @return Column bitmaps from left to right; may contain {@code src} itself when the whole
+     *         page is one column, so callers must not recycle an entry that is {@code src}
+     */
+    static Bitmap[] splitIntoColumns(Bitmap src, ColumnLayout layout) {
+        if (src == null) return new Bitmap[0];
+
+        Bitmap[] columns = new Bitmap[layout.columns.size()];
+        for (int i = 0; i < columns.length; i++) {
+            ColumnLayout.Column column = layout.columns.get(i);
+            columns[i] = Bitmap.createBitmap(src, column.left, column.top,
+                    column.right - column.left, column.bottom - column.top);
+        }
+        return columns;
     }
 }
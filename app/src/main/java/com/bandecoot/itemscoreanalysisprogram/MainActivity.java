@@ -69,7 +69,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import okhttp3.MediaType;
@@ -247,11 +246,8 @@ public class MainActivity extends AppCompatActivity {
     // Masterlist Repository
     private MasterlistRepository masterlistRepository;
 
-    // HTTP client for Google Vision calls
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(20, TimeUnit.SECONDS)
-            .readTimeout(60, TimeUnit.SECONDS)
-            .build();
+    // HTTP client for Google Vision calls (app-wide shared pool)
+    private final OkHttpClient httpClient = HttpClientProvider.get();
     // Slot management methods
     private void initializeSlots() {
         answerKeyPreferences = getSharedPreferences("AnswerKeyPrefs", MODE_PRIVATE);
@@ -775,6 +771,12 @@ public class MainActivity extends AppCompatActivity {
         // Initialize MasterlistRepository
         masterlistRepository = new MasterlistRepository(this);
         
+        // Initialize OCR result cache (shared by all Vision calls)
+        OcrResultCache.init(getApplicationContext());
+
+        // Initialize learned preprocessing-variant order (persisted per device)
+        VariantOrderPolicy.init(getApplicationContext());
+        
         // Initialize slot system
         initializeSlots();
 
@@ -1311,6 +1313,7 @@ public class MainActivity extends AppCompatActivity {
         // OCR.Space key is not used in the active flow (Vision-only pipeline)
         String visionKey = BuildConfig.GCLOUD_VISION_API_KEY;
         String ocrSpaceKey = ""; // Empty key - OCR.Space fallback not used in active flow
+        if (ocrProcessor != null) ocrProcessor.close();
         ocrProcessor = new OcrProcessor(visionKey, ocrSpaceKey, new HashMap<>(currentAnswerKey));
         Log.d(OCR_FLOW, "OcrProcessor initialized with " + currentAnswerKey.size() + " answer key entries (Vision-only mode)");
         
@@ -3222,7 +3225,7 @@ public class MainActivity extends AppCompatActivity {
     
     /**
      * Handle multiple images imported from gallery.
-     * Process each image sequentially, parse answers, and merge results.
+     * Process a bounded number of images concurrently, parse answers, and merge results in import order.
      * Deterministic merge: first non-blank value wins.
      * Now uses OcrProcessor for centralized OCR.
      */
@@ -3250,93 +3253,49 @@ public class MainActivity extends AppCompatActivity {
         progressDialog.show();
         
         // Process images on background thread
+        final OcrProcessor processor = ocrProcessor;
         new Thread(() -> {
             HashMap<Integer, String> mergedAnswers = new HashMap<>();
             int processedCount = 0;
             
-            for (android.net.Uri uri : uris) {
-                Bitmap bitmap = null;
+            // A few pages run at once so their Vision requests share batched calls;
+            // results are still merged in import order below
+            int parallelPages = Math.max(1, Math.min(BuildConfig.IMPORT_PARALLEL_PAGES, uris.size()));
+            java.util.concurrent.ExecutorService pagePool =
+                    java.util.concurrent.Executors.newFixedThreadPool(parallelPages);
+            List<java.util.concurrent.Future<HashMap<Integer, String>>> pageResults = new ArrayList<>();
+            for (int i = 0; i < uris.size(); i++) {
+                final android.net.Uri uri = uris.get(i);
+                final int pageNumber = i + 1;
+                pageResults.add(pagePool.submit(() -> processImportedPhoto(processor, uri, pageNumber)));
+            }
+            pagePool.shutdown();
+            
+            for (java.util.concurrent.Future<HashMap<Integer, String>> pageResult : pageResults) {
+                HashMap<Integer, String> parsed;
                 try {
-                    // Feature #7: Load bitmap with downsampling to reduce memory usage
-                    java.io.InputStream inputStream = getContentResolver().openInputStream(uri);
-                    
-                    // First pass: get image dimensions
-                    BitmapFactory.Options opts = new BitmapFactory.Options();
-                    opts.inJustDecodeBounds = true;
-                    BitmapFactory.decodeStream(inputStream, null, opts);
-                    if (inputStream != null) inputStream.close();
-                    
-                    // Calculate appropriate sample size based on device/display
-                    // Target max dimension of 2048px for OCR processing
-                    int maxDim = Math.max(opts.outWidth, opts.outHeight);
-                    int sampleSize = 1;
-                    final int targetMaxDim = 2048;
-                    while (maxDim / sampleSize > targetMaxDim) {
-                        sampleSize *= 2;
-                    }
-                    
-                    // Second pass: decode with sample size
-                    inputStream = getContentResolver().openInputStream(uri);
-                    opts.inJustDecodeBounds = false;
-                    opts.inSampleSize = sampleSize;
-                    bitmap = BitmapFactory.decodeStream(inputStream, null, opts);
-                    if (inputStream != null) inputStream.close();
-                    
-                    if (bitmap == null) {
-                        Log.e(TAG, "Failed to decode image from URI: " + uri);
-                        Log.e(OCR_FLOW, "Failed to decode bitmap from URI");
-                        continue;
-                    }
-                    
-                    Log.d(TAG, "Loaded image " + (processedCount + 1) + ": " + bitmap.getWidth() + "x" + bitmap.getHeight() + " (sample: " + sampleSize + ")");
-                    
-                    // Use OcrProcessor to handle enhancement, OCR, and parsing
-                    Log.d(OCR_FLOW, "Processing image " + (processedCount + 1) + " with OcrProcessor");
-                    HashMap<Integer, String> parsed = ocrProcessor.processImage(bitmap);
-                    
-                    // Feature #7: Strictly recycle bitmap immediately after use
-                    if (bitmap != null && !bitmap.isRecycled()) {
-                        bitmap.recycle();
-                        bitmap = null;
-                    }
-                    
-                    // Merge: first non-blank value wins
-                    for (Map.Entry<Integer, String> entry : parsed.entrySet()) {
-                        if (!mergedAnswers.containsKey(entry.getKey()) || 
-                            mergedAnswers.get(entry.getKey()).isEmpty()) {
-                            mergedAnswers.put(entry.getKey(), entry.getValue());
-                        }
-                    }
-                    
-                    processedCount++;
-                    
-                    // Feature #7: Add GC hint at safe points (every 5 images)
-                    if (processedCount % 5 == 0) {
-                        System.gc();
-                        Log.d(TAG, "GC hint issued after " + processedCount + " images");
-                    }
-                    
-                } catch (OutOfMemoryError oom) {
-                    Log.e(TAG, "OOM while processing image: " + uri, oom);
-                    Log.e(OCR_FLOW, "OOM in multi-import for image " + (processedCount + 1), oom);
-                    
-                    // Emergency cleanup
-                    if (bitmap != null && !bitmap.isRecycled()) {
-                        bitmap.recycle();
-                        bitmap = null;
-                    }
-                    System.gc();
-                    
+                    parsed = pageResult.get();
                 } catch (Exception e) {
-                    Log.e(TAG, "Error processing image: " + uri, e);
-                    Log.e(OCR_FLOW, "Error in multi-import for image " + (processedCount + 1), e);
-                    
-                    // Cleanup on error
-                    if (bitmap != null && !bitmap.isRecycled()) {
-                        bitmap.recycle();
-                        bitmap = null;
+                    Log.e(TAG, "Error waiting for imported image", e);
+                    continue;
+                }
+                if (parsed == null) continue;
+                
+                // Merge: first non-blank value wins
+                for (Map.Entry<Integer, String> entry : parsed.entrySet()) {
+                    if (!mergedAnswers.containsKey(entry.getKey()) || 
+                        mergedAnswers.get(entry.getKey()).isEmpty()) {
+                        mergedAnswers.put(entry.getKey(), entry.getValue());
                     }
                 }
+                
+                processedCount++;
+                
+                // Feature #7: Add GC hint at safe points (every 5 images)
+                if (processedCount % 5 == 0) {
+                    System.gc();
+                    Log.d(TAG, "GC hint issued after " + processedCount + " images");
+                }
             }
             
             // Final cleanup
@@ -3375,6 +3334,71 @@ public class MainActivity extends AppCompatActivity {
         }).start();
     }
     
+    /**
+     * Decode one imported photo with downsampling and run it through OcrProcessor.
+     * Runs on the import page pool.
+     * 
+     * @return Parsed answers, or null if the image could not be decoded or processed
+     */
+    private HashMap<Integer, String> processImportedPhoto(OcrProcessor processor, android.net.Uri uri, int pageNumber) {
+        Bitmap bitmap = null;
+        try {
+            // Feature #7: Load bitmap with downsampling to reduce memory usage
+            java.io.InputStream inputStream = getContentResolver().openInputStream(uri);
+            
+            // First pass: get image dimensions
+            BitmapFactory.Options opts = new BitmapFactory.Options();
+            opts.inJustDecodeBounds = true;
+            BitmapFactory.decodeStream(inputStream, null, opts);
+            if (inputStream != null) inputStream.close();
+            
+            // Calculate appropriate sample size based on device/display
+            // Target max dimension of 2048px for OCR processing
+            int maxDim = Math.max(opts.outWidth, opts.outHeight);
+            int sampleSize = 1;
+            final int targetMaxDim = 2048;
+            while (maxDim / sampleSize > targetMaxDim) {
+                sampleSize *= 2;
+            }
+            
+            // Second pass: decode with sample size
+            inputStream = getContentResolver().openInputStream(uri);
+            opts.inJustDecodeBounds = false;
+            opts.inSampleSize = sampleSize;
+            bitmap = BitmapFactory.decodeStream(inputStream, null, opts);
+            if (inputStream != null) inputStream.close();
+            
+            if (bitmap == null) {
+                Log.e(TAG, "Failed to decode image from URI: " + uri);
+                Log.e(OCR_FLOW, "Failed to decode bitmap from URI");
+                return null;
+            }
+            
+            Log.d(TAG, "Loaded image " + pageNumber + ": " + bitmap.getWidth() + "x" + bitmap.getHeight() + " (sample: " + sampleSize + ")");
+            
+            // Use OcrProcessor to handle enhancement, OCR, and parsing
+            Log.d(OCR_FLOW, "Processing image " + pageNumber + " with OcrProcessor");
+            return processor.processImage(bitmap);
+            
+        } catch (OutOfMemoryError oom) {
+            Log.e(TAG, "OOM while processing image: " + uri, oom);
+            Log.e(OCR_FLOW, "OOM in multi-import for image " + pageNumber, oom);
+            System.gc();
+            return null;
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Error processing image: " + uri, e);
+            Log.e(OCR_FLOW, "Error in multi-import for image " + pageNumber, e);
+            return null;
+            
+        } finally {
+            // Feature #7: Strictly recycle bitmap immediately after use
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmap.recycle();
+            }
+        }
+    }
+    
     /**
      * Handle crop result from uCrop or SimpleCropActivity fallback.
      */
@@ -5610,9 +5634,11 @@ public class MainActivity extends AppCompatActivity {
      * Process image with OCR using current settings with safe fallbacks.
      * 
      * Strategy:
-     * 1. Compute primary result according to current toggle settings
+     * 1. Compute primary result according to current toggle settings; column mode is used
+     *    automatically when the page layout has more than one column
      * 2. If filled ratio < 0.5, try alternate variants and pick the best
-     * 3. Variants: standard, two-column, high-contrast, both
+     * 3. Variants: standard, two-column, high-contrast, both (column variants only when the
+     *    page actually has columns)
      * 4. Early-exit if high fill ratio is achieved (>= 0.9)
      * 
      * @param bitmap Source bitmap
@@ -5623,13 +5649,18 @@ public class MainActivity extends AppCompatActivity {
             return new HashMap<>();
         }
         
-        boolean twoColumn = isTwoColumnEnabled();
+        // The detected layout drives column mode; the toggle forces it on. Detected once and
+        // reused by every column pass below.
+        ColumnLayout layout = ImageUtil.detectColumns(bitmap);
+        boolean multiColumn = layout.columns.size() > 1;
+        boolean twoColumn = isTwoColumnEnabled() || multiColumn;
         boolean highContrast = isHighContrastEnabled();
         
-        Log.d(OCR_FLOW, "Safe fallback processing: two-column=" + twoColumn + ", high-contrast=" + highContrast);
+        Log.d(OCR_FLOW, "Safe fallback processing: two-column=" + twoColumn + ", high-contrast=" + highContrast +
+                ", multi-column layout=" + multiColumn);
         
         // Step 1: Try primary variant according to current toggles
-        HashMap<Integer, String> primaryResult = processPrimaryVariant(bitmap, twoColumn, highContrast);
+        HashMap<Integer, String> primaryResult = processPrimaryVariant(bitmap, layout, twoColumn, highContrast);
         float primaryFillRatio = computeFilledRatio(primaryResult);
         
         Log.d(OCR_FLOW, "Primary result: filled=" + primaryFillRatio * 100 + "%");
@@ -5649,10 +5680,16 @@ public class MainActivity extends AppCompatActivity {
             
             // Try alternate variants
             java.util.List<VariantConfig> alternates = getAlternateVariants(twoColumn, highContrast);
+            if (!multiColumn) {
+                // On a single-column page, column mode is one cropped pass; not worth a retry
+                for (java.util.Iterator<VariantConfig> it = alternates.iterator(); it.hasNext(); ) {
+                    if (it.next().twoColumn) it.remove();
+                }
+            }
             
             for (VariantConfig config : alternates) {
                 Log.d(OCR_FLOW, "Trying alternate: " + config.name);
-                HashMap<Integer, String> altResult = processVariant(bitmap, config);
+                HashMap<Integer, String> altResult = processVariant(bitmap, layout, config);
                 int altFilledCount = countFilled(altResult);
                 float altFillRatio = computeFilledRatio(altResult);
                 
@@ -5681,12 +5718,13 @@ public class MainActivity extends AppCompatActivity {
     /**
      * Process primary variant according to current toggle settings.
      */
-    private HashMap<Integer, String> processPrimaryVariant(Bitmap bitmap, boolean twoColumn, boolean highContrast) {
+    private HashMap<Integer, String> processPrimaryVariant(Bitmap bitmap, ColumnLayout layout,
+                                                           boolean twoColumn, boolean highContrast) {
         if (twoColumn && highContrast) {
             // Both enabled: use two-column mode
-            return ocrProcessor.processImageTwoColumn(bitmap);
+            return ocrProcessor.processImageColumns(bitmap, layout);
         } else if (twoColumn) {
-            return ocrProcessor.processImageTwoColumn(bitmap);
+            return ocrProcessor.processImageColumns(bitmap, layout);
         } else if (highContrast) {
             return ocrProcessor.processImageWithHighContrast(bitmap);
         } else {
@@ -5729,11 +5767,11 @@ public class MainActivity extends AppCompatActivity {
     /**
      * Process a specific variant configuration.
      */
-    private HashMap<Integer, String> processVariant(Bitmap bitmap, VariantConfig config) {
+    private HashMap<Integer, String> processVariant(Bitmap bitmap, ColumnLayout layout, VariantConfig config) {
         if (config.twoColumn && config.highContrast) {
-            return ocrProcessor.processImageTwoColumn(bitmap);
+            return ocrProcessor.processImageColumns(bitmap, layout);
         } else if (config.twoColumn) {
-            return ocrProcessor.processImageTwoColumn(bitmap);
+            return ocrProcessor.processImageColumns(bitmap, layout);
         } else if (config.highContrast) {
             return ocrProcessor.processImageWithHighContrast(bitmap);
         } else {
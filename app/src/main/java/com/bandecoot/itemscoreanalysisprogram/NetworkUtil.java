@@ -1,13 +1,14 @@
 package com.bandecoot.itemscoreanalysisprogram;
 
-import android.util.Base64;
 import android.util.Log;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import okhttp3.MediaType;
@@ -23,26 +24,31 @@ public final class NetworkUtil {
     private NetworkUtil() {}
 
     // Calls Google Cloud Vision (DOCUMENT_TEXT_DETECTION). Returns recognized text or "".
+    // Results are served from / stored in the shared OcrResultCache when it is initialized.
     public static String callVisionApi(OkHttpClient httpClient, byte[] jpegBytes, String apiKey) throws Exception {
         if (apiKey == null || apiKey.trim().isEmpty()) {
             Log.e(TAG, "Missing API key");
             return "";
         }
-        String base64 = Base64.encodeToString(jpegBytes, Base64.NO_WRAP);
-        String url = "https://vision.googleapis.com/v1/images:annotate?key=" + apiKey;
+        OcrResultCache cache = OcrResultCache.getShared();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = OcrResultCache.key(jpegBytes, "DOCUMENT_TEXT_DETECTION");
+            String cached = cache.get(cacheKey);
+            if (cached != null) return cached;
+        }
+        String text = requestVisionText(httpClient, jpegBytes, apiKey);
+        if (cache != null) cache.put(cacheKey, text);
+        return text;
+    }
 
-        // Build request JSON
-        JSONObject image = new JSONObject().put("content", base64);
-        JSONObject feature = new JSONObject()
-                .put("type", "DOCUMENT_TEXT_DETECTION")
-                .put("maxResults", 1);
-        JSONObject request = new JSONObject()
-                .put("image", image)
-                .put("features", new JSONArray().put(feature));
-        JSONObject root = new JSONObject()
-                .put("requests", new JSONArray().put(request));
+    private static String requestVisionText(OkHttpClient httpClient, byte[] jpegBytes, String apiKey) throws Exception {
+        String url = "https://vision.googleapis.com/v1/images:annotate?key=" + apiKey;
 
-        RequestBody body = RequestBody.create(root.toString(), JSON);
+        // Stream the request JSON; the JPEG is base64-encoded directly into the sink
+        RequestBody body = new VisionRequestBody(
+                Collections.singletonList(jpegBytes),
+                Collections.singletonList("DOCUMENT_TEXT_DETECTION"));
         Request httpReq = new Request.Builder().url(url).post(body).build();
 
         try (Response resp = httpClient.newCall(httpReq).execute()) {
@@ -51,24 +57,11 @@ public final class NetworkUtil {
                 Log.e(TAG, "Vision API error " + resp.code() + ": " + errBody);
                 return "";
             }
-            String respStr = resp.body() != null ? resp.body().string() : "";
-            JSONObject respJson = new JSONObject(respStr);
-            JSONArray responses = respJson.optJSONArray("responses");
-            if (responses == null || responses.length() == 0) return "";
-
-            JSONObject first = responses.optJSONObject(0);
-            if (first == null) return "";
-
-            if (first.has("fullTextAnnotation")) {
-                JSONObject full = first.optJSONObject("fullTextAnnotation");
-                return full != null ? full.optString("text", "") : "";
-            }
-            JSONArray textAnn = first.optJSONArray("textAnnotations");
-            if (textAnn != null && textAnn.length() > 0) {
-                JSONObject top = textAnn.optJSONObject(0);
-                return top != null ? top.optString("description", "") : "";
-            }
-            return "";
+            if (resp.body() == null) return "";
+            // Stream-parse so the word/symbol geometry is skipped instead of built into a tree
+            List<String> texts = VisionResponseReader.readTexts(resp.body().charStream());
+            String first = texts.isEmpty() ? null : texts.get(0);
+            return first != null ? first : "";
         }
     }
     
@@ -1,25 +1,33 @@
 package com.bandecoot.itemscoreanalysisprogram;
 
 import android.graphics.Bitmap;
-import android.util.Base64;
 import android.util.Log;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 
 /**
  * Vision-only OCR processor with multi-pass preprocessing and smart parsing.
@@ -32,20 +40,51 @@ public class OcrProcessor {
     private static final int SCORE_PER_FILLED_ANSWER = 10;
     private static final int SCORE_NUMERIC_ANCHOR_BONUS = 2;
     
+    // Number of top variants whose JPEG is kept for the TEXT_DETECTION second pass
+    private static final int TEXT_DETECTION_RETRY_VARIANTS = 3;
+
+    // Longest side of the images sent to Vision; preprocessing runs at this size
+    private static final int OCR_MAX_DIMENSION = 2048;
+    private static final int FALLBACK_OCR_MAX_DIMENSION = 1600;
+
+    // Longest side of the thumbnails variants are pre-scored on
+    private static final int PRESCORE_THUMBNAIL_DIMENSION = 512;
+    
     private final OkHttpClient httpClient;
     private final String visionApiKey;
     private final String ocrSpaceApiKey; // Kept for legacy compatibility but not used
     private final Map<Integer, String> answerKey;
-    
+
+    // Bounded pool for concurrent variant processing (null when OCR_PARALLEL_VARIANTS <= 1)
+    private final ExecutorService variantExecutor;
+
+    // Packs concurrent Vision requests (variants, column halves, imported pages) into shared calls
+    private final VisionBatchClient visionBatch;
+
+    // Gray buffers and variant bitmaps reused across every scan of this processor
+    private final PreprocessSession preprocessSession =
+            new PreprocessSession(BuildConfig.PREPROCESS_POOL_MAX_BYTES);
+
     public OcrProcessor(String visionApiKey, String ocrSpaceApiKey, Map<Integer, String> answerKey) {
         this.visionApiKey = visionApiKey;
         this.ocrSpaceApiKey = ocrSpaceApiKey;
         this.answerKey = answerKey;
-        
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(20, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .build();
+
+        // Shared client: keep-alive connections are reused across scans and processors
+        this.httpClient = HttpClientProvider.get();
+        this.visionBatch = new VisionBatchClient(httpClient, visionApiKey);
+
+        int parallelism = BuildConfig.OCR_PARALLEL_VARIANTS;
+        if (parallelism > 1) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    parallelism, parallelism, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new VariantThreadFactory());
+            // Let idle workers die so a discarded processor does not pin threads
+            executor.allowCoreThreadTimeOut(true);
+            this.variantExecutor = executor;
+        } else {
+            this.variantExecutor = null;
+        }
     }
     
     /**
@@ -54,8 +93,10 @@ public class OcrProcessor {
      * parses and scores each variant, then selects the best result.
      * 
      * Strategy:
-     * 1. Generate up to MAX_VARIANTS preprocessing variants (now 8)
+     * 1. Downscale once to the 2048px OCR size and generate up to MAX_VARIANTS preprocessing variants from it (now 8),
+     *    ordered by which variants have won most often for this image quality on this device
      * 2. Run Vision OCR on each variant with high quality settings
+     *    (up to OCR_PARALLEL_VARIANTS at a time; later variants are cancelled once one early-exits)
      * 3. Parse each result with smart parser
      * 4. Score based on: filled answer count, numeric anchor presence, quality metrics
      * 5. Early-exit if filled threshold is met (EARLY_EXIT_FILLED_THRESHOLD - now 70%)
@@ -74,190 +115,184 @@ public class OcrProcessor {
         // Phase 3: Analyze image quality to guide preprocessing selection
         ImagePreprocessor.ImageQuality quality = ImagePreprocessor.analyzeImageQuality(bitmap);
         Log.d(TAG, "Adaptive preprocessing based on: " + quality);
+
+        // Downscale once to the OCR upload size; every variant of this scan is built from this base.
+        // It is not recycled explicitly: a cancelled variant may still be reading it after we return.
+        final Bitmap base;
+        try {
+            base = ImageUtil.downscale(bitmap, OCR_MAX_DIMENSION);
+        } catch (OutOfMemoryError oom) {
+            Log.e(TAG, "OOM downscaling source bitmap", oom);
+            return new HashMap<>();
+        }
+        if (base != bitmap) {
+            Log.d(TAG, "Preprocessing at " + base.getWidth() + "x" + base.getHeight() +
+                    " (source " + bitmap.getWidth() + "x" + bitmap.getHeight() + ")");
+        }
         
-        // Generate preprocessing variants (prioritized based on image quality)
+        // Describe preprocessing variants (prioritized based on image quality). Bitmaps are only
+        // materialized when a variant is actually run, so early exits skip the remaining work.
         List<PreprocessVariant> variants = new ArrayList<>();
+        // Quality bucket under which the learned variant order is kept
+        final String qualityBucket;
         
         // Adaptive variant selection based on image quality
         if (quality.isBlurry) {
+            qualityBucket = "blurry";
             // Prioritize sharpening and ultra-contrast for blurry images (common with handwriting)
             Log.d(TAG, "Image is blurry - prioritizing sharpening and ultra-contrast variants for handwriting");
-            addVariant(variants, "ultra_contrast", ImagePreprocessor.preprocessUltraHighContrast(bitmap));
-            addVariant(variants, "sharpened", ImagePreprocessor.preprocessSharpened(bitmap));
-            addVariant(variants, "classroom", ImagePreprocessor.preprocessForClassroom(bitmap));
+            addVariant(variants, "ultra_contrast", src -> ImagePreprocessor.preprocessUltraHighContrast(src, preprocessSession));
+            addVariant(variants, "sharpened", src -> ImagePreprocessor.preprocessSharpened(src, preprocessSession));
+            addVariant(variants, "classroom", src -> ImagePreprocessor.preprocessForClassroom(src, preprocessSession));
         } else if (quality.isLowLight || quality.contrast < 0.15f) {
+            qualityBucket = "low_light";
             // Prioritize contrast enhancement for low-light/low-contrast images (handwriting-friendly)
             Log.d(TAG, "Image has low light/contrast - prioritizing contrast variants for handwriting");
-            addVariant(variants, "ultra_contrast", ImagePreprocessor.preprocessUltraHighContrast(bitmap));
-            addVariant(variants, "sharpened", ImagePreprocessor.preprocessSharpened(bitmap));
-            addVariant(variants, "adaptive_histogram", ImagePreprocessor.preprocessAdaptiveHistogram(bitmap));
-            addVariant(variants, "classroom", ImagePreprocessor.preprocessForClassroom(bitmap));
+            addVariant(variants, "ultra_contrast", src -> ImagePreprocessor.preprocessUltraHighContrast(src, preprocessSession));
+            addVariant(variants, "adaptive_threshold", src -> ImagePreprocessor.preprocessAdaptiveThreshold(src, preprocessSession));
+            addVariant(variants, "sharpened", src -> ImagePreprocessor.preprocessSharpened(src, preprocessSession));
+            addVariant(variants, "adaptive_histogram", src -> ImagePreprocessor.preprocessAdaptiveHistogram(src, preprocessSession));
+            addVariant(variants, "classroom", src -> ImagePreprocessor.preprocessForClassroom(src, preprocessSession));
         } else if (quality.isHighLight) {
+            qualityBucket = "high_light";
             // Prioritize adaptive methods for overexposed images
             Log.d(TAG, "Image is overexposed - prioritizing adaptive variants");
-            addVariant(variants, "adaptive_histogram", ImagePreprocessor.preprocessAdaptiveHistogram(bitmap));
-            addVariant(variants, "classroom", ImagePreprocessor.preprocessForClassroom(bitmap));
-            addVariant(variants, "light", ImagePreprocessor.preprocessLight(bitmap));
+            addVariant(variants, "adaptive_histogram", src -> ImagePreprocessor.preprocessAdaptiveHistogram(src, preprocessSession));
+            addVariant(variants, "adaptive_threshold", src -> ImagePreprocessor.preprocessAdaptiveThreshold(src, preprocessSession));
+            addVariant(variants, "classroom", src -> ImagePreprocessor.preprocessForClassroom(src, preprocessSession));
+            addVariant(variants, "light", src -> ImagePreprocessor.preprocessLight(src, preprocessSession));
         } else if (quality.brightness > 100 && quality.brightness < 180 && quality.contrast > 0.20f) {
+            qualityBucket = "good";
             // Good quality image - use lighter preprocessing first
             Log.d(TAG, "Image quality is good - using lighter preprocessing");
-            addVariant(variants, "light", ImagePreprocessor.preprocessLight(bitmap));
-            addVariant(variants, "original", bitmap.copy(bitmap.getConfig(), false));
-            addVariant(variants, "standard", ImageUtil.enhanceForOcr(bitmap));
+            addVariant(variants, "light", src -> ImagePreprocessor.preprocessLight(src, preprocessSession));
+            addVariant(variants, "original", src -> src, false);
+            addVariant(variants, "standard", ImageUtil::enhanceForOcr);
         } else {
+            qualityBucket = "default";
             // Default: try classroom preprocessing first
             Log.d(TAG, "Using default preprocessing priority");
-            addVariant(variants, "classroom", ImagePreprocessor.preprocessForClassroom(bitmap));
-            addVariant(variants, "light", ImagePreprocessor.preprocessLight(bitmap));
-            addVariant(variants, "adaptive_histogram", ImagePreprocessor.preprocessAdaptiveHistogram(bitmap));
+            addVariant(variants, "classroom", src -> ImagePreprocessor.preprocessForClassroom(src, preprocessSession));
+            addVariant(variants, "adaptive_threshold", src -> ImagePreprocessor.preprocessAdaptiveThreshold(src, preprocessSession));
+            addVariant(variants, "light", src -> ImagePreprocessor.preprocessLight(src, preprocessSession));
+            addVariant(variants, "adaptive_histogram", src -> ImagePreprocessor.preprocessAdaptiveHistogram(src, preprocessSession));
         }
         
-        // Fill remaining slots with other variants (up to MAX_VARIANTS)
-        addVariant(variants, "standard", ImageUtil.enhanceForOcr(bitmap));
-        addVariant(variants, "grayscale", ImagePreprocessor.toGrayscale(bitmap));
-        addVariant(variants, "sharpened", ImagePreprocessor.preprocessSharpened(bitmap));
-        addVariant(variants, "ultra_contrast", ImagePreprocessor.preprocessUltraHighContrast(bitmap));
-        addVariant(variants, "adaptive_histogram", ImagePreprocessor.preprocessAdaptiveHistogram(bitmap));
-        addVariant(variants, "light", ImagePreprocessor.preprocessLight(bitmap));
-        addVariant(variants, "classroom", ImagePreprocessor.preprocessForClassroom(bitmap));
-        addVariant(variants, "original", bitmap.copy(bitmap.getConfig(), false));
+        // Plan every remaining variant; the learned order below decides which MAX_VARIANTS are kept
+        // Local thresholding handles shadows and uneven lighting in one pass, so it comes first
+        addVariant(variants, "adaptive_threshold", src -> ImagePreprocessor.preprocessAdaptiveThreshold(src, preprocessSession));
+        addVariant(variants, "standard", ImageUtil::enhanceForOcr);
+        addVariant(variants, "grayscale", src -> ImagePreprocessor.toGrayscale(src, preprocessSession));
+        addVariant(variants, "sharpened", src -> ImagePreprocessor.preprocessSharpened(src, preprocessSession));
+        addVariant(variants, "ultra_contrast", src -> ImagePreprocessor.preprocessUltraHighContrast(src, preprocessSession));
+        addVariant(variants, "adaptive_histogram", src -> ImagePreprocessor.preprocessAdaptiveHistogram(src, preprocessSession));
+        addVariant(variants, "light", src -> ImagePreprocessor.preprocessLight(src, preprocessSession));
+        addVariant(variants, "classroom", src -> ImagePreprocessor.preprocessForClassroom(src, preprocessSession));
+        addVariant(variants, "original", src -> src, false);
         
         if (variants.isEmpty()) {
             Log.e(TAG, "All preprocessing variants failed");
             return new HashMap<>();
         }
         
-        Log.d(TAG, "Generated " + variants.size() + " preprocessing variants (adaptive prioritization)");
+        // Move the variants that usually win for this kind of image to the front
+        variants = applyLearnedOrder(variants, qualityBucket);
+        if (variants.size() > BuildConfig.MAX_VARIANTS) {
+            variants = new ArrayList<>(variants.subList(0, BuildConfig.MAX_VARIANTS));
+        }
         
-        // Process each variant and score
+        Log.d(TAG, "Planned " + variants.size() + " preprocessing variants (adaptive prioritization)");
+
+        // Rank the planned variants on thumbnails and only send the promising ones to Vision
+        PreprocessVariant leader = variants.get(0);
+        variants = preRankVariants(variants, base);
+        // A learned leader that pre-scoring keeps rejecting has to lose rank, or the two would drift apart
+        boolean leaderPruned = !variants.contains(leader);
+
+        // Process each variant and score (concurrently when a variant pool is configured).
+        // The encoded JPEGs of the best few variants are kept for a possible second pass.
+        RetainedJpegs retained = new RetainedJpegs(TEXT_DETECTION_RETRY_VARIANTS);
+        VariantOutcome[] outcomes = (variantExecutor != null && variants.size() > 1)
+                ? runVariantsConcurrently(variants, base, retained)
+                : runVariantsSequentially(variants, base, retained);
+
+        // Select the best variant in priority order. Both execution modes feed the same
+        // selection so the concurrent path picks exactly what the sequential path would.
         PreprocessResult bestResult = null;
         int bestScore = -1;
         String bestOcrText = "";
-        int variantIndex = 0;
-        
-        for (PreprocessVariant variant : variants) {
-            variantIndex++;
-            try {
-                // Compress to JPEG with higher quality (95% instead of 80%) and larger size (2048px instead of 1600px)
-                // This preserves more detail for poor quality images
-                byte[] jpegBytes = ImageUtil.resizeAndCompressHighQuality(variant.bitmap, 2048);
-                
-                // Call Vision API (DOCUMENT_TEXT_DETECTION)
-                String recognizedText = callVisionApi(jpegBytes);
-                
-                if (recognizedText == null) {
-                    recognizedText = "";
-                }
-                
-                // Parse with smart parser
-                HashMap<Integer, String> parsed = parseAndFilterSmart(recognizedText);
-                
-                // Score this variant
-                int score = scoreVariant(parsed, recognizedText);
-                int filledCount = countFilledAnswers(parsed);
-                float fillRatio = answerKey.isEmpty() ? 0 : (float) filledCount / answerKey.size();
-                
-                Log.d(TAG, String.format("Variant %d/%d '%s': score=%d, filled=%d/%d (%.1f%%)",
-                        variantIndex, variants.size(), variant.name, score, 
-                        filledCount, answerKey.size(), fillRatio * 100));
-                
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestResult = new PreprocessResult(variant.name, parsed, recognizedText);
-                    bestOcrText = recognizedText;
-                }
-                
-                // Early exit if we've met the threshold (now 70% instead of 90%)
-                if (fillRatio >= BuildConfig.EARLY_EXIT_FILLED_THRESHOLD) {
-                    Log.d(TAG, "Early exit triggered at " + (fillRatio * 100) + "% filled (threshold: " + 
-                            (BuildConfig.EARLY_EXIT_FILLED_THRESHOLD * 100) + "%)");
-                    break;
-                }
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing variant '" + variant.name + "'", e);
-            } finally {
-                // Clean up bitmap
-                variant.bitmap.recycle();
+        List<String> examined = new ArrayList<>();
+
+        for (VariantOutcome outcome : outcomes) {
+            if (outcome == null) continue;
+            examined.add(outcome.variantName);
+
+            if (outcome.score > bestScore) {
+                bestScore = outcome.score;
+                bestResult = new PreprocessResult(outcome.variantName, outcome.parsed, outcome.recognizedText);
+                bestOcrText = outcome.recognizedText;
+            }
+
+            // Early exit if we've met the threshold (now 70% instead of 90%)
+            if (outcome.fillRatio >= BuildConfig.EARLY_EXIT_FILLED_THRESHOLD) {
+                Log.d(TAG, "Early exit triggered at " + (outcome.fillRatio * 100) + "% filled (threshold: " +
+                        (BuildConfig.EARLY_EXIT_FILLED_THRESHOLD * 100) + "%)");
+                break;
             }
         }
-        
+
         if (bestResult == null) {
             Log.e(TAG, "No successful OCR variant");
             return new HashMap<>();
         }
         
         Log.d(TAG, "Selected best variant: '" + bestResult.variantName + "' with score " + bestScore);
+        VariantOrderPolicy policy = VariantOrderPolicy.getShared();
+        if (policy != null) {
+            if (leaderPruned) {
+                examined.add(leader.name);
+            }
+            policy.record(qualityBucket, examined, bestResult.variantName);
+        }
         
         // Check if we need a second pass with TEXT_DETECTION mode
         int filledCount = countFilledAnswers(bestResult.parsedAnswers);
         float fillRatio = answerKey.isEmpty() ? 0 : (float) filledCount / answerKey.size();
         
-        // If we got less than 50% filled, try TEXT_DETECTION mode on best variant
+        // If we got less than 50% filled, try TEXT_DETECTION mode on the best variants
         if (fillRatio < 0.50f) {
             Log.d(TAG, String.format("Fill ratio %.1f%% is low, attempting second pass with TEXT_DETECTION mode",
                     fillRatio * 100));
             
             try {
-                // Try the top 2-3 variants with TEXT_DETECTION mode
-                int maxRetries = Math.min(3, variants.size());
-                PreprocessResult textDetectionBest = null;
-                int textDetectionBestScore = -1;
-                
-                // Sort variants by score (we need to recreate them since originals were recycled)
-                // For now, just retry the best variant type
-                Bitmap retryBitmap = null;
-                
-                // Recreate the best variant
-                switch (bestResult.variantName) {
-                    case "light":
-                        retryBitmap = ImagePreprocessor.preprocessLight(bitmap);
-                        break;
-                    case "classroom":
-                        retryBitmap = ImagePreprocessor.preprocessForClassroom(bitmap);
-                        break;
-                    case "ultra_contrast":
-                        retryBitmap = ImagePreprocessor.preprocessUltraHighContrast(bitmap);
-                        break;
-                    case "sharpened":
-                        retryBitmap = ImagePreprocessor.preprocessSharpened(bitmap);
-                        break;
-                    case "adaptive_histogram":
-                        retryBitmap = ImagePreprocessor.preprocessAdaptiveHistogram(bitmap);
-                        break;
-                    default:
-                        // Use original for standard/grayscale/original variants
-                        retryBitmap = bitmap.copy(bitmap.getConfig(), false);
-                        break;
-                }
-                
-                if (retryBitmap != null) {
-                    byte[] jpegBytes = ImageUtil.resizeAndCompressHighQuality(retryBitmap, 2048);
+                // Retry the top 2-3 variants with TEXT_DETECTION mode, reusing their encoded JPEGs
+                for (RetainedJpeg candidate : retained.ranked()) {
+                    // Skip variants discarded by the early-exit cutoff
+                    if (outcomes[candidate.index] == null) continue;
                     
                     // Call Vision API with TEXT_DETECTION mode
-                    String recognizedText = callVisionApi(jpegBytes, false);
+                    String recognizedText = callVisionApi(candidate.jpegBytes, false);
                     
                     if (recognizedText != null && !recognizedText.isEmpty()) {
                         HashMap<Integer, String> parsed = parseAndFilterSmart(recognizedText);
                         int score = scoreVariant(parsed, recognizedText);
                         int newFilledCount = countFilledAnswers(parsed);
                         
-                        Log.d(TAG, String.format("TEXT_DETECTION mode: score=%d, filled=%d/%d (%.1f%%)",
-                                score, newFilledCount, answerKey.size(),
+                        Log.d(TAG, String.format("TEXT_DETECTION mode on '%s': score=%d, filled=%d/%d (%.1f%%)",
+                                candidate.variantName, score, newFilledCount, answerKey.size(),
                                 (float) newFilledCount / answerKey.size() * 100));
                         
                         // Use TEXT_DETECTION result if it's better
                         if (score > bestScore) {
                             Log.d(TAG, "TEXT_DETECTION mode produced better result, using it");
-                            bestResult = new PreprocessResult(bestResult.variantName + "_text_detect",
+                            bestResult = new PreprocessResult(candidate.variantName + "_text_detect",
                                     parsed, recognizedText);
+                            bestScore = score;
                             bestOcrText = recognizedText;
                             filledCount = newFilledCount;
                             fillRatio = (float) filledCount / answerKey.size();
                         }
                     }
-                    
-                    retryBitmap.recycle();
                 }
                 
             } catch (Exception e) {
@@ -300,31 +335,311 @@ public class OcrProcessor {
     }
     
     /**
-     * Helper method to add a variant to the list if not already present and within limit.
+     * Helper method to add a lazily-created variant to the list if not already present.
      * 
      * @param variants List of variants
      * @param name Variant name
-     * @param bitmap Preprocessed bitmap
+     * @param factory Creates the preprocessed bitmap from a source when the variant is run
      */
-    private void addVariant(List<PreprocessVariant> variants, String name, Bitmap bitmap) {
-        if (variants.size() >= BuildConfig.MAX_VARIANTS) {
-            if (bitmap != null) bitmap.recycle();
-            return;
-        }
-        
+    private void addVariant(List<PreprocessVariant> variants, String name, VariantFactory factory) {
+        addVariant(variants, name, factory, true);
+    }
+
+    /**
+     * @param ownsBitmap False when the factory hands back a bitmap owned by the caller (never recycled here)
+     */
+    private void addVariant(List<PreprocessVariant> variants, String name, VariantFactory factory,
+                            boolean ownsBitmap) {
         // Check if variant with this name already exists
         for (PreprocessVariant v : variants) {
             if (v.name.equals(name)) {
-                if (bitmap != null) bitmap.recycle();
                 return;
             }
         }
         
-        if (bitmap != null) {
-            variants.add(new PreprocessVariant(name, bitmap));
+        variants.add(new PreprocessVariant(name, factory, ownsBitmap));
+    }
+
+    /**
+     * Reorder planned variants by how often each has won for this quality bucket on this device.
+     * Keeps the planned order when no {@link VariantOrderPolicy} is initialized.
+     *
+     * @param variants Variants in planned priority order
+     * @param qualityBucket Quality bucket of the current image
+     * @return The same variants, likely winners first
+     */
+    private List<PreprocessVariant> applyLearnedOrder(List<PreprocessVariant> variants, String qualityBucket) {
+        VariantOrderPolicy policy = VariantOrderPolicy.getShared();
+        if (policy == null) {
+            return variants;
+        }
+        Map<String, PreprocessVariant> byName = new HashMap<>();
+        List<String> planned = new ArrayList<>(variants.size());
+        for (PreprocessVariant variant : variants) {
+            byName.put(variant.name, variant);
+            planned.add(variant.name);
+        }
+        List<String> learned = policy.order(qualityBucket, planned);
+        List<PreprocessVariant> ordered = new ArrayList<>(variants.size());
+        for (String name : learned) {
+            ordered.add(byName.get(name));
         }
+        if (!learned.equals(planned)) {
+            Log.d(TAG, "Learned order for '" + qualityBucket + "': " + learned);
+        }
+        return ordered;
     }
-    
+
+    /**
+     * Build every planned variant on a small thumbnail, score it locally with
+     * {@link VariantPreScorer}, and keep only the adaptive top-k for Vision.
+     * Kept variants stay in their planned priority order. Falls back to the full plan if the
+     * thumbnails cannot be built.
+     *
+     * @param variants Variants in priority order
+     * @param base Downscaled source the variants are built from
+     * @return The variants worth an OCR call
+     */
+    private List<PreprocessVariant> preRankVariants(List<PreprocessVariant> variants, Bitmap base) {
+        if (variants.size() <= BuildConfig.PRESCORE_MIN_VARIANTS) {
+            return variants;
+        }
+
+        Bitmap thumbnail = null;
+        try {
+            thumbnail = ImageUtil.downscale(base, PRESCORE_THUMBNAIL_DIMENSION);
+            float[] scores = new float[variants.size()];
+            for (int i = 0; i < variants.size(); i++) {
+                PreprocessVariant variant = variants.get(i);
+                Bitmap preview = variant.factory.create(thumbnail);
+                if (preview == null) continue;
+                try {
+                    scores[i] = VariantPreScorer.score(
+                            ImagePreprocessor.readGray(preview, false, BufferPool.NONE), answerKey.size());
+                } finally {
+                    if (variant.ownsBitmap && preview != thumbnail) {
+                        // Thumbnail-sized bitmaps are reused by the next variant's preview
+                        preprocessSession.releaseBitmap(preview);
+                    }
+                }
+            }
+
+            int k = VariantPreScorer.adaptiveTopK(scores, BuildConfig.PRESCORE_MIN_VARIANTS,
+                    BuildConfig.PRESCORE_KEEP_RATIO);
+            // The k-th best score is the cut; ties at the cut go to the higher-priority variant
+            float[] sorted = scores.clone();
+            Arrays.sort(sorted);
+            float cut = sorted[sorted.length - k];
+            List<PreprocessVariant> kept = new ArrayList<>(k);
+            StringBuilder summary = new StringBuilder();
+            for (int i = 0; i < variants.size(); i++) {
+                boolean keep = kept.size() < k && scores[i] >= cut;
+                if (keep) {
+                    kept.add(variants.get(i));
+                }
+                summary.append(String.format(Locale.US, " %s=%.2f%s",
+                        variants.get(i).name, scores[i], keep ? "*" : ""));
+            }
+            Log.d(TAG, "Pre-scored variants (kept " + kept.size() + "/" + variants.size() + "):" + summary);
+            return kept;
+        } catch (OutOfMemoryError | RuntimeException e) {
+            Log.e(TAG, "Variant pre-scoring failed, running the full plan", e);
+            return variants;
+        } finally {
+            if (thumbnail != null && thumbnail != base) {
+                thumbnail.recycle();
+            }
+        }
+    }
+
+    /**
+     * Run variants one after another, stopping at the first one that meets the early-exit threshold.
+     *
+     * @param variants Variants in priority order
+     * @param base Downscaled source the variants are built from
+     * @param retained Receives the encoded JPEGs of the best-scoring variants
+     * @return Outcomes indexed like {@code variants}; null where a variant failed or was not run
+     */
+    private VariantOutcome[] runVariantsSequentially(List<PreprocessVariant> variants, Bitmap base,
+                                                     RetainedJpegs retained) {
+        VariantOutcome[] outcomes = new VariantOutcome[variants.size()];
+
+        for (int i = 0; i < variants.size(); i++) {
+            PreprocessVariant variant = variants.get(i);
+            if (!variant.claim()) continue;
+
+            outcomes[i] = processVariant(i, variants.size(), variant, base, retained);
+            if (outcomes[i] != null && outcomes[i].fillRatio >= BuildConfig.EARLY_EXIT_FILLED_THRESHOLD) {
+                break;
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Run variants on the bounded variant pool and score results as they arrive.
+     *
+     * Once variant {@code k} meets the early-exit threshold, every variant after {@code k} is
+     * cancelled (queued tasks are dropped, in-flight Vision calls are aborted). Variants before
+     * {@code k} are still awaited because the sequential path would have run them too, so the
+     * caller's in-order selection sees exactly the same outcomes.
+     *
+     * @param variants Variants in priority order
+     * @param base Downscaled source the variants are built from
+     * @param retained Receives the encoded JPEGs of the best-scoring variants
+     * @return Outcomes indexed like {@code variants}; null where a variant failed or was cancelled
+     */
+    private VariantOutcome[] runVariantsConcurrently(List<PreprocessVariant> variants, Bitmap base,
+                                                     RetainedJpegs retained) {
+        final int total = variants.size();
+        final VariantOutcome[] outcomes = new VariantOutcome[total];
+        final BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        final List<Future<?>> futures = new ArrayList<>(total);
+
+        Log.d(TAG, "Running " + total + " variants concurrently (parallelism=" +
+                BuildConfig.OCR_PARALLEL_VARIANTS + ")");
+
+        for (int i = 0; i < total; i++) {
+            final int index = i;
+            final PreprocessVariant variant = variants.get(i);
+            // done() also runs when the task is cancelled before it starts (including when
+            // close() drops it from the queue), so every index is reported exactly once
+            FutureTask<Void> task = new FutureTask<Void>(() -> {
+                if (variant.claim()) {
+                    outcomes[index] = processVariant(index, total, variant, base, retained);
+                }
+            }, null) {
+                @Override
+                protected void done() {
+                    completed.add(index);
+                }
+            };
+            futures.add(task);
+            try {
+                variantExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Processor closed mid-scan
+                task.cancel(false);
+            }
+        }
+
+        boolean[] done = new boolean[total];
+        int needed = total; // Variants [0, needed) must finish before selection is final
+        try {
+            while (!allDone(done, needed)) {
+                int index = completed.take();
+                done[index] = true;
+
+                VariantOutcome outcome = outcomes[index];
+                if (outcome != null && index < needed
+                        && outcome.fillRatio >= BuildConfig.EARLY_EXIT_FILLED_THRESHOLD) {
+                    needed = index + 1;
+                    Log.d(TAG, "Variant '" + outcome.variantName + "' met early-exit threshold, cancelling " +
+                            (total - needed) + " later variant(s)");
+                    for (int j = needed; j < total; j++) {
+                        cancelVariant(variants.get(j), futures.get(j));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while waiting for variants");
+            for (int j = 0; j < total; j++) {
+                cancelVariant(variants.get(j), futures.get(j));
+            }
+            Thread.currentThread().interrupt();
+        }
+
+        // Results that raced in after the cutoff must not influence selection
+        for (int j = needed; j < total; j++) {
+            outcomes[j] = null;
+        }
+        return outcomes;
+    }
+
+    private static boolean allDone(boolean[] done, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!done[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cancel a variant: mark it so it never starts, otherwise abort its Vision call.
+     */
+    private static void cancelVariant(PreprocessVariant variant, Future<?> future) {
+        variant.cancelled = true;
+        if (!variant.claim()) {
+            VisionBatchClient.PendingImage pending = variant.inFlight.get();
+            if (pending != null) pending.cancel();
+        }
+        future.cancel(false);
+    }
+
+    /**
+     * Materialize, compress, OCR, parse and score a single variant.
+     * The variant bitmap lives only for the duration of this call; its JPEG is offered to
+     * {@code retained} so a second pass does not have to rebuild it.
+     *
+     * @return Outcome, or null if the variant failed or was cancelled
+     */
+    private VariantOutcome processVariant(int index, int total, PreprocessVariant variant,
+                                          Bitmap base, RetainedJpegs retained) {
+        Bitmap variantBitmap = null;
+        try {
+            variantBitmap = variant.factory.create(base);
+            if (variantBitmap == null) {
+                Log.e(TAG, "Preprocessing failed for variant '" + variant.name + "'");
+                return null;
+            }
+            
+            // Compress to JPEG with higher quality (95% instead of 80%) and larger size (2048px instead of 1600px)
+            // This preserves more detail for poor quality images. Variants are already at this size.
+            byte[] jpegBytes = ImageUtil.resizeAndCompressHighQuality(variantBitmap, OCR_MAX_DIMENSION);
+            if (variant.ownsBitmap) {
+                // Only the JPEG is needed from here on; the bitmap can back the next variant
+                preprocessSession.releaseBitmap(variantBitmap);
+            }
+            variantBitmap = null;
+            if (variant.cancelled) return null;
+
+            // Call Vision API (DOCUMENT_TEXT_DETECTION)
+            String recognizedText = callVisionApi(jpegBytes, true, variant.inFlight);
+            if (variant.cancelled) return null;
+
+            if (recognizedText == null) {
+                recognizedText = "";
+            }
+
+            // Parse with smart parser
+            HashMap<Integer, String> parsed = parseAndFilterSmart(recognizedText);
+
+            // Score this variant
+            int score = scoreVariant(parsed, recognizedText);
+            int filledCount = countFilledAnswers(parsed);
+            float fillRatio = answerKey.isEmpty() ? 0 : (float) filledCount / answerKey.size();
+
+            Log.d(TAG, String.format("Variant %d/%d '%s': score=%d, filled=%d/%d (%.1f%%)",
+                    index + 1, total, variant.name, score,
+                    filledCount, answerKey.size(), fillRatio * 100));
+
+            retained.offer(new RetainedJpeg(index, variant.name, score, jpegBytes));
+            return new VariantOutcome(variant.name, parsed, recognizedText, score, fillRatio);
+
+        } catch (OutOfMemoryError oom) {
+            // Skip this variant; the remaining ones may still fit
+            Log.e(TAG, "OOM materializing variant '" + variant.name + "'", oom);
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, "Error processing variant '" + variant.name + "'", e);
+            return null;
+        } finally {
+            // Clean up bitmap if we bailed out before compressing
+            if (variantBitmap != null && variant.ownsBitmap) {
+                preprocessSession.releaseBitmap(variantBitmap);
+            }
+        }
+    }
+
     /**
      * Score a parsed variant based on:
      * - Number of non-empty answers that align with answer key
@@ -367,14 +682,122 @@ public class OcrProcessor {
      */
     private static class PreprocessVariant {
         final String name;
-        final Bitmap bitmap;
-        
-        PreprocessVariant(String name, Bitmap bitmap) {
+        final VariantFactory factory;
+        final boolean ownsBitmap;
+        // Set once by whoever gets to the variant first: the worker (to run it) or the canceller (to skip it)
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        // Vision request queued or executing for this variant, so it can be dropped on early exit
+        final AtomicReference<VisionBatchClient.PendingImage> inFlight = new AtomicReference<>();
+        volatile boolean cancelled;
+
+        PreprocessVariant(String name, VariantFactory factory, boolean ownsBitmap) {
             this.name = name;
-            this.bitmap = bitmap;
+            this.factory = factory;
+            this.ownsBitmap = ownsBitmap;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
         }
     }
-    
+
+    /**
+     * Deferred bitmap creation for a variant, from either the full OCR base or a thumbnail.
+     * (Own interface rather than java.util.function.Function, which needs API 24.)
+     */
+    private interface VariantFactory {
+        Bitmap create(Bitmap source);
+    }
+
+    /**
+     * Helper class to hold the scored result of one variant.
+     */
+    private static class VariantOutcome {
+        final String variantName;
+        final HashMap<Integer, String> parsed;
+        final String recognizedText;
+        final int score;
+        final float fillRatio;
+
+        VariantOutcome(String variantName, HashMap<Integer, String> parsed, String recognizedText,
+                       int score, float fillRatio) {
+            this.variantName = variantName;
+            this.parsed = parsed;
+            this.recognizedText = recognizedText;
+            this.score = score;
+            this.fillRatio = fillRatio;
+        }
+    }
+
+    /**
+     * Encoded JPEG of a scored variant, kept for the TEXT_DETECTION second pass.
+     */
+    private static class RetainedJpeg {
+        final int index;
+        final String variantName;
+        final int score;
+        final byte[] jpegBytes;
+
+        RetainedJpeg(int index, String variantName, int score, byte[] jpegBytes) {
+            this.index = index;
+            this.variantName = variantName;
+            this.score = score;
+            this.jpegBytes = jpegBytes;
+        }
+
+        /** Higher score first; ties go to the earlier (higher priority) variant. */
+        boolean ranksAbove(RetainedJpeg other) {
+            return score != other.score ? score > other.score : index < other.index;
+        }
+    }
+
+    /**
+     * Keeps only the best {@code capacity} variant JPEGs so memory stays bounded no matter how
+     * many variants run. Safe to offer from variant worker threads.
+     */
+    private static class RetainedJpegs {
+        private final int capacity;
+        private final List<RetainedJpeg> ranked = new ArrayList<>();
+
+        RetainedJpegs(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void offer(RetainedJpeg candidate) {
+            int pos = 0;
+            while (pos < ranked.size() && ranked.get(pos).ranksAbove(candidate)) {
+                pos++;
+            }
+            if (pos >= capacity) return;
+            ranked.add(pos, candidate);
+            if (ranked.size() > capacity) {
+                ranked.remove(ranked.size() - 1);
+            }
+        }
+
+        /** @return Retained JPEGs, best first */
+        synchronized List<RetainedJpeg> ranked() {
+            return new ArrayList<>(ranked);
+        }
+    }
+
+    /**
+     * Names variant worker threads and keeps them at background priority.
+     */
+    private static class VariantThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(() -> {
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "ocr-variant-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
     /**
      * Helper class to hold preprocessing result.
      */
@@ -435,65 +858,39 @@ public class OcrProcessor {
      * @return Recognized text or null on error
      */
     private String callVisionApi(byte[] jpegBytes, boolean useDocumentMode) {
+        return callVisionApi(jpegBytes, useDocumentMode, null);
+    }
+
+    /**
+     * Call Google Vision API for OCR, publishing the pending request so another thread can cancel it.
+     *
+     * @param inFlight Receives the queued/in-flight request while it executes (may be null)
+     */
+    private String callVisionApi(byte[] jpegBytes, boolean useDocumentMode,
+                                 AtomicReference<VisionBatchClient.PendingImage> inFlight) {
         if (visionApiKey == null || visionApiKey.trim().isEmpty()) {
             Log.d(TAG, "Vision API key not configured");
             return null;
         }
         
-        try {
-            String base64Image = Base64.encodeToString(jpegBytes, Base64.NO_WRAP);
-            String url = "https://vision.googleapis.com/v1/images:annotate?key=" + visionApiKey;
-            
-            JSONObject req = new JSONObject();
-            JSONArray requests = new JSONArray();
-            JSONObject image = new JSONObject();
-            image.put("content", base64Image);
-            
-            JSONObject feature = new JSONObject();
-            // Use DOCUMENT_TEXT_DETECTION for structured text, TEXT_DETECTION for general text
-            String detectionType = useDocumentMode ? "DOCUMENT_TEXT_DETECTION" : "TEXT_DETECTION";
-            feature.put("type", detectionType);
-            feature.put("maxResults", 1);
-            
-            JSONObject request = new JSONObject();
-            request.put("image", image);
-            request.put("features", new JSONArray().put(feature));
-            requests.put(request);
-            req.put("requests", requests);
-            
-            RequestBody body = RequestBody.create(req.toString(), MediaType.parse("application/json"));
-            Request httpReq = new Request.Builder().url(url).post(body).build();
-            
-            try (Response resp = httpClient.newCall(httpReq).execute()) {
-                if (!resp.isSuccessful()) {
-                    Log.e(TAG, "Vision API error: " + resp.code());
-                    return null;
-                }
-                
-                String respStr = resp.body().string();
-                JSONObject respJson = new JSONObject(respStr);
-                JSONArray responses = respJson.optJSONArray("responses");
-                if (responses == null || responses.length() == 0) return null;
-                
-                JSONObject first = responses.getJSONObject(0);
-                if (first.has("fullTextAnnotation")) {
-                    JSONObject fullText = first.getJSONObject("fullTextAnnotation");
-                    return fullText.optString("text", "");
-                } else if (first.has("textAnnotations")) {
-                    JSONArray textAnn = first.getJSONArray("textAnnotations");
-                    if (textAnn.length() > 0) {
-                        JSONObject top = textAnn.getJSONObject(0);
-                        return top.optString("description", "");
-                    }
-                }
-                return null;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Vision API call failed", e);
-            return null;
+        // Use DOCUMENT_TEXT_DETECTION for structured text, TEXT_DETECTION for general text
+        String detectionType = useDocumentMode ? "DOCUMENT_TEXT_DETECTION" : "TEXT_DETECTION";
+        
+        // Identical bytes + mode always give the same answer; skip the network on a cache hit
+        OcrResultCache cache = OcrResultCache.getShared();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = OcrResultCache.key(jpegBytes, detectionType);
+            String cached = cache.get(cacheKey);
+            if (cached != null) return cached;
         }
+        
+        // Queued with any other images in flight so they share one annotate request
+        String text = visionBatch.annotate(jpegBytes, detectionType, inFlight);
+        if (cache != null) cache.put(cacheKey, text);
+        return text;
     }
-    
+
     /**
      * Call Google Vision API for OCR (overload for backward compatibility).
      * Defaults to DOCUMENT_TEXT_DETECTION mode.
@@ -540,16 +937,18 @@ public class OcrProcessor {
         }
         
         try {
-            // Apply classroom preprocessing (includes Otsu binarization)
-            Bitmap preprocessed = ImagePreprocessor.preprocessForClassroom(bitmap);
+            // Apply classroom preprocessing (includes Otsu binarization) at the upload size
+            Bitmap base = ImageUtil.downscale(bitmap, FALLBACK_OCR_MAX_DIMENSION);
+            Bitmap preprocessed = ImagePreprocessor.preprocessForClassroom(base, preprocessSession);
+            if (base != bitmap) base.recycle();
             if (preprocessed == null) {
                 Log.e(TAG, "Classroom preprocessing failed");
                 return new HashMap<>();
             }
             
             // Compress to JPEG
-            byte[] jpegBytes = ImageUtil.resizeAndCompress(preprocessed, 1600);
-            preprocessed.recycle();
+            byte[] jpegBytes = ImageUtil.resizeAndCompress(preprocessed, FALLBACK_OCR_MAX_DIMENSION);
+            preprocessSession.releaseBitmap(preprocessed);
             
             // Call Vision API
             String recognizedText = callVisionApi(jpegBytes);
@@ -568,80 +967,144 @@ public class OcrProcessor {
     }
     
     /**
-     * Process image using two-column OCR mode.
-     * Splits image into left/right halves, processes each separately with preprocessing,
-     * then merges results (first non-blank answer wins).
+     * Process image column by column.
+     * Detects the column layout (1-3 columns) from the page's ink profile, crops each column
+     * tight, processes each separately with preprocessing, then merges results (first non-blank
+     * answer wins). A single-column page costs one OCR call on the cropped page.
      * 
      * @param bitmap Source bitmap
-     * @return Parsed answers merged from both columns
+     * @return Parsed answers merged from all columns
      */
     public HashMap<Integer, String> processImageTwoColumn(Bitmap bitmap) {
         if (bitmap == null) {
             Log.e(TAG, "Bitmap is null");
             return new HashMap<>();
         }
+        return processImageColumns(bitmap, ImageUtil.detectColumns(bitmap));
+    }
+    
+    /**
+     * Process image column by column with a layout the caller already detected, so a page tried
+     * in several modes is only analyzed once.
+     * 
+     * @param bitmap Source bitmap
+     * @param layout Layout of {@code bitmap} from {@link ImageUtil#detectColumns(Bitmap)}
+     * @return Parsed answers merged from all columns
+     */
+    HashMap<Integer, String> processImageColumns(Bitmap bitmap, ColumnLayout layout) {
+        if (bitmap == null) {
+            Log.e(TAG, "Bitmap is null");
+            return new HashMap<>();
+        }
         
         try {
-            // Split image vertically
-            Bitmap[] halves = ImageUtil.splitImageVertically(bitmap);
-            Bitmap leftHalf = halves[0];
-            Bitmap rightHalf = halves[1];
-            
-            if (leftHalf == null || rightHalf == null) {
+            // Split image at the detected gutters
+            final Bitmap[] columns = ImageUtil.splitIntoColumns(bitmap, layout);
+            if (columns.length == 0) {
                 Log.e(TAG, "Image split failed");
                 return new HashMap<>();
             }
+            Log.d(TAG, "Detected " + columns.length + " column(s)");
             
-            // Process left half with preprocessing
-            HashMap<Integer, String> leftAnswers = processHalfWithPreprocessing(leftHalf, "left");
-            leftHalf.recycle();
+            // Process the other columns on the variant pool while this thread does the first,
+            // so all Vision requests land in the same batch
+            List<Future<HashMap<Integer, String>>> futures = new ArrayList<>();
+            if (variantExecutor != null) {
+                for (int i = 1; i < columns.length; i++) {
+                    final int index = i;
+                    try {
+                        futures.add(variantExecutor.submit(() -> processColumn(bitmap, columns[index], index)));
+                    } catch (RejectedExecutionException e) {
+                        // Processor closed mid-scan
+                        futures.add(null);
+                    }
+                }
+            }
             
-            // Process right half with preprocessing
-            HashMap<Integer, String> rightAnswers = processHalfWithPreprocessing(rightHalf, "right");
-            rightHalf.recycle();
+            List<HashMap<Integer, String>> results = new ArrayList<>(columns.length);
+            results.add(processColumn(bitmap, columns[0], 0));
+            for (int i = 1; i < columns.length; i++) {
+                results.add(variantExecutor != null
+                        ? awaitColumn(futures.get(i - 1), bitmap, columns[i], i)
+                        : processColumn(bitmap, columns[i], i));
+            }
             
-            // Merge results: first non-blank answer wins
+            // Merge results left to right: first non-blank answer wins
             HashMap<Integer, String> merged = new HashMap<>();
-            
-            // Add left answers first
-            merged.putAll(leftAnswers);
-            
-            // Add right answers if not already present or if left was empty
-            for (Map.Entry<Integer, String> entry : rightAnswers.entrySet()) {
-                Integer q = entry.getKey();
-                String rightAns = entry.getValue();
-                
-                if (!merged.containsKey(q) || merged.get(q).trim().isEmpty()) {
-                    merged.put(q, rightAns);
+            StringBuilder sizes = new StringBuilder();
+            for (HashMap<Integer, String> answers : results) {
+                for (Map.Entry<Integer, String> entry : answers.entrySet()) {
+                    Integer q = entry.getKey();
+                    if (!merged.containsKey(q) || merged.get(q).trim().isEmpty()) {
+                        merged.put(q, entry.getValue());
+                    }
                 }
+                sizes.append(sizes.length() == 0 ? "" : ", ").append(answers.size());
             }
             
-            Log.d(TAG, "Two-column merge: left=" + leftAnswers.size() + 
-                    ", right=" + rightAnswers.size() + ", merged=" + merged.size());
+            Log.d(TAG, "Column merge: columns=[" + sizes + "], merged=" + merged.size());
             
             return merged;
             
         } catch (Exception e) {
-            Log.e(TAG, "Error processing two-column image", e);
+            Log.e(TAG, "Error processing multi-column image", e);
             return new HashMap<>();
         }
     }
     
     /**
-     * Process a single half of the image with classroom preprocessing (helper for two-column mode).
+     * Wait for a column submitted to the variant pool. A column that never ran (rejected, or
+     * dropped by close()) is recycled here since its task will not do it.
+     *
+     * @param future Column task, or null if it was rejected
+     * @return Parsed answers; empty if the column never ran or failed
+     */
+    private static HashMap<Integer, String> awaitColumn(Future<HashMap<Integer, String>> future,
+                                                        Bitmap page, Bitmap column, int index)
+            throws InterruptedException {
+        try {
+            if (future != null) {
+                return future.get();
+            }
+        } catch (CancellationException e) {
+            // Dropped from the queue before it started
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error processing column " + (index + 1), e.getCause());
+            return new HashMap<>();
+        }
+        Log.w(TAG, "Column " + (index + 1) + " skipped: processor closed");
+        if (column != page) column.recycle();
+        return new HashMap<>();
+    }
+
+    /**
+     * Process one column crop and recycle it (unless it is the source page itself).
+     */
+    private HashMap<Integer, String> processColumn(Bitmap page, Bitmap column, int index) {
+        try {
+            return processHalfWithPreprocessing(column, "column " + (index + 1));
+        } finally {
+            if (column != page) column.recycle();
+        }
+    }
+    
+    /**
+     * Process a single column of the image with classroom preprocessing (helper for column mode).
      */
     private HashMap<Integer, String> processHalfWithPreprocessing(Bitmap half, String side) {
         try {
-            // Apply classroom preprocessing
-            Bitmap preprocessed = ImagePreprocessor.preprocessForClassroom(half);
+            // Apply classroom preprocessing at the upload size
+            Bitmap base = ImageUtil.downscale(half, FALLBACK_OCR_MAX_DIMENSION);
+            Bitmap preprocessed = ImagePreprocessor.preprocessForClassroom(base, preprocessSession);
+            if (base != half) base.recycle();
             if (preprocessed == null) {
-                Log.e(TAG, "Preprocessing failed for " + side + " half");
+                Log.e(TAG, "Preprocessing failed for " + side);
                 return new HashMap<>();
             }
             
             // Compress to JPEG
-            byte[] jpegBytes = ImageUtil.resizeAndCompress(preprocessed, 1600);
-            preprocessed.recycle();
+            byte[] jpegBytes = ImageUtil.resizeAndCompress(preprocessed, FALLBACK_OCR_MAX_DIMENSION);
+            preprocessSession.releaseBitmap(preprocessed);
             
             // Call Vision API
             String recognizedText = callVisionApi(jpegBytes);
@@ -654,7 +1117,7 @@ public class OcrProcessor {
             return parseAndFilterSmart(recognizedText);
             
         } catch (Exception e) {
-            Log.e(TAG, "Error processing " + side + " half", e);
+            Log.e(TAG, "Error processing " + side, e);
             return new HashMap<>();
         }
     }
@@ -676,6 +1139,15 @@ public class OcrProcessor {
      * Close and cleanup resources.
      */
     public void close() {
-        // Nothing to close for now
+        if (variantExecutor != null) {
+            // Cancel the tasks shutdownNow() drops so callers waiting on them return
+            for (Runnable dropped : variantExecutor.shutdownNow()) {
+                if (dropped instanceof Future) {
+                    ((Future<?>) dropped).cancel(false);
+                }
+            }
+        }
+        visionBatch.close();
+        preprocessSession.clear();
     }
 }
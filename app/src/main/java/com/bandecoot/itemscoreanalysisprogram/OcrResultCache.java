@@ -0,0 +1,282 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Disk-backed LRU cache of Vision OCR results.
+ * Entries are keyed by the SHA-256 of the exact JPEG bytes sent plus the detection mode,
+ * so re-scanning the same crop or toggling OCR options never pays for the same request twice.
+ * Bounded by total size on disk and by entry age.
+ */
+public class OcrResultCache {
+    private static final String TAG = "ISA_OCR_CACHE";
+    private static final String CACHE_DIR_NAME = "ocr_cache";
+    private static final String ENTRY_SUFFIX = ".txt";
+
+    private static volatile OcrResultCache shared;
+
+    private final File dir;
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    // Entry name -> size in bytes, in least-recently-used-first order
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param dir Directory holding one file per entry (created if missing)
+     * @param maxBytes Total size cap; least recently used entries are evicted beyond it
+     * @param ttlMillis Maximum entry age; older entries count as misses and are deleted
+     */
+    public OcrResultCache(File dir, long maxBytes, long ttlMillis) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Create the app-wide cache under the app cache directory. Safe to call more than once.
+     */
+    public static void init(Context context) {
+        if (shared != null) return;
+        synchronized (OcrResultCache.class) {
+            if (shared == null) {
+                File dir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+                shared = new OcrResultCache(dir, BuildConfig.OCR_CACHE_MAX_BYTES,
+                        BuildConfig.OCR_CACHE_TTL_HOURS * 60L * 60L * 1000L);
+            }
+        }
+    }
+
+    /**
+     * @return The app-wide cache, or null if {@link #init(Context)} has not run (callers skip caching)
+     */
+    public static OcrResultCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Look up a cached result. Only the index lookup holds the lock; the entry is read outside it.
+     *
+     * @param key Entry key from {@link #key(byte[], String)}
+     * @return Cached text, or null on a miss
+     */
+    public String get(String key) {
+        synchronized (this) {
+            ensureLoaded();
+            // index.get (not containsKey) so the lookup refreshes the entry's LRU position
+            if (index.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        File file = new File(dir, key);
+        if (isExpired(file)) {
+            synchronized (this) {
+                remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            String text = new String(readFully(file), StandardCharsets.UTF_8);
+            hits.incrementAndGet();
+            Log.d(TAG, "Cache hit (" + hits.get() + " hits / " + misses.get() + " misses)");
+            return text;
+        } catch (IOException e) {
+            // Also reached when the entry was evicted between the lookup and the read
+            Log.e(TAG, "Error reading cache entry, dropping it", e);
+            synchronized (this) {
+                remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Store a result. Empty or null text is never cached. The entry is written outside the lock.
+     *
+     * @param key Entry key from {@link #key(byte[], String)}
+     */
+    public void put(String key, String text) {
+        if (text == null || text.isEmpty()) return;
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        if (data.length > maxBytes) return;
+
+        // Load first: loading deletes stray temp files, which must not include ours
+        synchronized (this) {
+            ensureLoaded();
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create cache dir " + dir);
+            return;
+        }
+
+        // Write to a per-thread temp file and rename so a crash never leaves a truncated entry
+        // and concurrent writers of the same key never share a temp file
+        File tmp = new File(dir, key + "." + Thread.currentThread().getId() + ".tmp");
+        File file = new File(dir, key);
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(data);
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("rename failed");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing cache entry", e);
+            tmp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            Long previous = index.put(key, (long) data.length);
+            if (previous != null) totalBytes -= previous;
+            totalBytes += data.length;
+            trimToSize();
+        }
+    }
+
+    /**
+     * Delete every entry and reset the counters.
+     */
+    public synchronized void clear() {
+        ensureLoaded();
+        for (String name : new ArrayList<>(index.keySet())) {
+            remove(name);
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return index.size();
+    }
+
+    public synchronized long sizeBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    /**
+     * Build the entry key, which is also the on-disk entry name: hex SHA-256 of the image
+     * followed by the detection type. Hashes the whole image, so compute it once per image and
+     * pass it to both {@link #get(String)} and {@link #put(String, String)}.
+     *
+     * @param jpegBytes Exact image bytes that would be sent to Vision
+     * @param detectionType Vision feature type (e.g. DOCUMENT_TEXT_DETECTION)
+     */
+    public static String key(byte[] jpegBytes, String detectionType) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(jpegBytes);
+            StringBuilder sb = new StringBuilder(hash.length * 2 + detectionType.length() + ENTRY_SUFFIX.length() + 1);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.append('_').append(detectionType).append(ENTRY_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory on every Java/Android runtime
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Rebuild the index from disk on first use, oldest entries first so they are evicted first.
+     */
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        List<File> entries = new ArrayList<>();
+        for (File f : files) {
+            if (f.getName().endsWith(ENTRY_SUFFIX)) {
+                entries.add(f);
+            } else {
+                f.delete(); // Leftover temp file from an interrupted write
+            }
+        }
+        java.util.Collections.sort(entries, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        for (File f : entries) {
+            if (isExpired(f)) {
+                f.delete();
+                continue;
+            }
+            index.put(f.getName(), f.length());
+            totalBytes += f.length();
+        }
+        trimToSize();
+        Log.d(TAG, "Loaded " + index.size() + " cached OCR results (" + totalBytes + " bytes)");
+    }
+
+    private boolean isExpired(File file) {
+        return System.currentTimeMillis() - file.lastModified() > ttlMillis;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            totalBytes -= eldest.getValue();
+            new File(dir, eldest.getKey()).delete();
+            it.remove();
+        }
+    }
+
+    private void remove(String name) {
+        Long size = index.remove(name);
+        if (size != null) totalBytes -= size;
+        new File(dir, name).delete();
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int off = 0;
+            while (off < data.length) {
+                int n = in.read(data, off, data.length - off);
+                if (n < 0) throw new IOException("Unexpected end of cache entry");
+                off += n;
+            }
+        }
+        return data;
+    }
+}
@@ -12,6 +12,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,48 +30,33 @@ public final class Parser {
     private static final int MAX_QUESTION_NUMBER = 200; // Maximum valid question number
     private static final int MAX_ANSWER_LENGTH = 40; // Maximum answer text length
     
-    // Range hints for type-specific parsing
-    private static Map<Integer, RangeHint.QuestionType> rangeHintsMap = null;
-    
-    // Regex pattern to split lines containing multiple numbered items
-    // Updated to handle compressed sequences like "1.A2.B3.C" or "1.A  3.Z  5.C"
-    // Pattern breakdown:
-    // - (?<=[\p{L}\p{N}''\\-]) : positive lookbehind for letter/digit/apostrophe/hyphen (end of previous answer)
-    // - (?=[\\s.]*\\d{1,3}[.):)]?[\\s-:]*[\\p{L}]) : positive lookahead for next number-answer pair
-    //   - [\\s.]* : optional whitespace or dots
-    //   - \\d{1,3} : 1-3 digit number
-    //   - [.):)]? : optional punctuation after number
-    //   - [\\s-:]* : optional separators
-    //   - [\\p{L}] : start of answer (Unicode letter)
-    private static final String MULTI_ITEM_SPLIT_PATTERN = "(?<=[\\p{L}\\p{N}''\\-])(?=[\\s.]*\\d{1,3}[.):)]?[\\s-:]*[\\p{L}])";
-    
-    // Pre-compiled regex patterns for performance
-    // Number-first pattern: "1.A", "2)B", "3-C", etc.
-    // Consolidated separator group for clarity: [.):)\-:,]?
-    // Answer pattern updated to support Unicode letters, digits, apostrophes, and hyphens
-    private static final Pattern NUMBER_FIRST_PATTERN = Pattern.compile(
-            "^\\s*(\\d{1,3})\\s*[.):)\\-:,]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\b");
-    
-    // Answer-first pattern: "True 1.", "A 1."
-    // Restrictive separator group to avoid matching unexpected characters
-    // Answer pattern updated to support Unicode letters, digits, apostrophes, and hyphens
-    private static final Pattern ANSWER_FIRST_PATTERN = Pattern.compile(
-            "^\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\b[\\s.,;:!?\\-]{0,3}(\\d{1,3})[.):)]?\\s*$");
-    
-    // Number-only pattern: "5." or "7" (for cross-line linking)
-    private static final Pattern NUMBER_ONLY_PATTERN = Pattern.compile(
-            "^\\s*(\\d{1,3})\\s*[.):)]?\\s*$");
-    
-    // Pattern to extract number-answer pairs from compressed lines
-    // Consolidated separator group for consistency
-    // Answer pattern updated to support Unicode letters, digits, apostrophes, and hyphens
-    private static final Pattern COMPRESSED_ITEM_PATTERN = Pattern.compile(
-            "\\s*(\\d{1,3})\\s*[.):)\\-:,]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})");
+    // Range hints for type-specific parsing; replaced whole, never mutated, and read by strategy threads
+    private static volatile Map<Integer, RangeHint.QuestionType> rangeHintsMap = null;
+
+    // Last compiled answer key; reused while the key and the hints stay the same
+    private static volatile AnswerKeyContext answerKeyContext = null;
+
+    // Helper threads for parseOcrTextSmartWithFallback (the caller runs one strategy itself).
+    // Variants and column halves already parse concurrently, so a couple are enough
+    private static final int STRATEGY_THREADS =
+            Math.min(2, Runtime.getRuntime().availableProcessors() - 1);
+    private static volatile ExecutorService strategyPool;
     
-    // Pattern to extract first valid answer token
-    // Updated to support Unicode letters, digits, apostrophes, and hyphens
-    private static final Pattern ANSWER_TOKEN_PATTERN = Pattern.compile(
-            "\\b([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\b");
+    // Patterns of parseOcrTextToAnswers (no answer key), applied over the whole text. The
+    // answer-key strategies match their item shapes over AnswerSheetLexer tokens instead
+    private static final Pattern MULTILINE_NUMBERED_ANSWER_PATTERN = Pattern.compile(
+            "^\\s*(\\d{1,3})\\s*[.):)]?\\s*[-:]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\b", Pattern.MULTILINE);
+    private static final Pattern INLINE_PAIR_PATTERN = Pattern.compile(
+            "(\\d{1,3})\\s*[.):)]\\s*[-:]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})");
+    private static final Pattern NUMBER_LETTER_PATTERN = Pattern.compile(
+            "(\\d{1,3})\\s+([A-Z])\\b");
+
+    // Roman numeral item markers at the start of a line; lowercase i/v/x accepted
+    private static final Pattern ROMAN_MULTILINE_PATTERN = Pattern.compile(
+            "(?i)(?:^|\\n)\\s*([ivx]+)\\s*[.):)]?\\s*", Pattern.MULTILINE);
+
+    private static final Pattern NOISE_PUNCTUATION_PATTERN = Pattern.compile("[•·–—_]+");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
 
     private Parser() {}
     
@@ -128,7 +120,7 @@ public final class Parser {
      * @param hintsMap Map from question number to question type
      */
     public static void setRangeHintsMap(Map<Integer, RangeHint.QuestionType> hintsMap) {
-        rangeHintsMap = hintsMap;
+        rangeHintsMap = hintsMap != null ? new HashMap<>(hintsMap) : null;
     }
     
     /**
@@ -156,32 +148,18 @@ public final class Parser {
     public static void clearRangeHints() {
         rangeHintsMap = null;
     }
-    
-    /**
-     * Get the question type for a specific question number.
-     * 
-     * @param questionNumber The question number
-     * @return The question type, or null if no hint for this question
-     */
-    private static RangeHint.QuestionType getQuestionType(int questionNumber) {
-        if (rangeHintsMap == null || rangeHintsMap.isEmpty()) {
-            return null;
-        }
-        return rangeHintsMap.get(questionNumber);
-    }
-
-    // Header/Instruction skipping patterns
-    private static final Pattern HEADER_PATTERN = Pattern.compile(
-            "(?i).*(LYCEUM|ALABANG|BASIC EDUCATION|SENIOR HIGH|COLLEGE|EMAIL|TEL|PHONE|ADDRESS).*");
-    private static final Pattern FIELD_PATTERN = Pattern.compile(
-            "(?i)^(name|strand|section|date|teacher|score|grade|year|level|subject)\\b.*");
-    private static final Pattern INSTRUCTION_PATTERN = Pattern.compile(
-            "(?i)^\\s*(instruction|direction|note|reminder).*");
-    // Matches number-first patterns (1. A, I. B) or answer-first patterns (True 1., A 1.)
-    // Updated to support Unicode letters, digits, apostrophes, and hyphens in answers
-    private static final Pattern NUMERIC_ANCHOR_PATTERN = Pattern.compile(
-            "^\\s*(?:[_\\s]*(?:[IVX]+|\\d{1,3})\\s*[.):)]?.*|[\\p{L}][\\p{L}\\p{N}''\\-]{0,39}\\b[\\s.,;:!?\\-]{0,3}\\d{1,3}[.):)]?.*)");
 
+    // Header/Instruction skipping keywords, matched ignoring ASCII case
+    // Header line: keyword anywhere
+    private static final String[] HEADER_KEYWORDS = {
+        "lyceum", "alabang", "basic education", "senior high", "college", "email", "tel", "phone", "address"
+    };
+    // Field label line: keyword as the first word
+    private static final String[] FIELD_KEYWORDS = {
+        "name", "strand", "section", "date", "teacher", "score", "grade", "year", "level", "subject"
+    };
+    // Instruction block: line starts with the keyword
+    private static final String[] INSTRUCTION_KEYWORDS = {"instruction", "direction", "note", "reminder"};
 
     // Roman numeral to digit conversion map
     private static final String[] ROMAN_NUMERALS = {
@@ -220,26 +198,26 @@ public final class Parser {
             }
             
             // Check if this is a header line
-            if (HEADER_PATTERN.matcher(trimmed).matches()) {
+            if (isHeaderLine(trimmed)) {
                 Log.d(TAG, "Skipping header line: " + trimmed.substring(0, Math.min(50, trimmed.length())));
                 continue;
             }
             
             // Check if this is a field label line
-            if (FIELD_PATTERN.matcher(trimmed).matches()) {
+            if (isFieldLine(trimmed)) {
                 Log.d(TAG, "Skipping field line: " + trimmed.substring(0, Math.min(50, trimmed.length())));
                 continue;
             }
             
             // Check if this starts an instruction block
-            if (INSTRUCTION_PATTERN.matcher(trimmed).matches()) {
+            if (isInstructionLine(trimmed)) {
                 Log.d(TAG, "Entering instruction block");
                 inInstructionBlock = true;
                 continue;
             }
             
             // Check if this line has a numeric anchor (first numbered item)
-            if (NUMERIC_ANCHOR_PATTERN.matcher(trimmed).matches()) {
+            if (isNumericAnchor(trimmed)) {
                 Log.d(TAG, "Found first numeric anchor, keeping remaining text");
                 foundFirstAnchor = true;
                 inInstructionBlock = false;
@@ -267,6 +245,105 @@ public final class Parser {
         return strippedResult + "\n";
     }
 
+    // The header checks below match whole lines; like the regex '.' they never run past a line
+    // terminator, so a line with one inside is not a header, field, instruction or anchor
+
+    /**
+     * @return True if the line holds a school header keyword ("LYCEUM", "SENIOR HIGH", "TEL", ...)
+     */
+    private static boolean isHeaderLine(String trimmed) {
+        if (lastLineTerminator(trimmed) >= 0) return false;
+        for (String keyword : HEADER_KEYWORDS) {
+            for (int i = 0; i + keyword.length() <= trimmed.length(); i++) {
+                if (regionMatchesAscii(trimmed, i, keyword)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return True if the line starts with a field label word ("NAME", "Section:", ...)
+     */
+    private static boolean isFieldLine(String trimmed) {
+        if (lastLineTerminator(trimmed) >= 0) return false;
+        for (String keyword : FIELD_KEYWORDS) {
+            if (keyword.length() <= trimmed.length() && regionMatchesAscii(trimmed, 0, keyword)
+                    && AnswerSheetLexer.isBoundary(trimmed, keyword.length(), 0, trimmed.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return True if the line starts an instruction block ("INSTRUCTIONS:", "Directions", ...)
+     */
+    private static boolean isInstructionLine(String trimmed) {
+        if (lastLineTerminator(trimmed) >= 0) return false;
+        for (String keyword : INSTRUCTION_KEYWORDS) {
+            if (keyword.length() <= trimmed.length() && regionMatchesAscii(trimmed, 0, keyword)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return True if the line starts a numbered item: a number or roman numeral ("1. A", "I. B",
+     *         "__ 3) C"), or an answer followed by its number ("True 1.")
+     */
+    private static boolean isNumericAnchor(String trimmed) {
+        int n = trimmed.length();
+        int lastTerminator = lastLineTerminator(trimmed);
+
+        // Number first, after optional underscores: the rest of the line past the number and the
+        // whitespace after it (three digits at most) must be one line
+        int p = 0;
+        while (p < n && (trimmed.charAt(p) == '_' || AnswerSheetLexer.isWhitespace(trimmed.charAt(p)))) p++;
+        if (p < n) {
+            char c = trimmed.charAt(p);
+            int end = p;
+            if (c == 'I' || c == 'V' || c == 'X') {
+                while (end < n && "IVX".indexOf(trimmed.charAt(end)) >= 0) end++;
+                if (lastTerminator < skipWhitespace(trimmed, end)) return true;
+            } else if (AnswerSheetLexer.isDigit(c)) {
+                while (end < n && AnswerSheetLexer.isDigit(trimmed.charAt(end))) end++;
+                int rest = end - p <= 3 ? skipWhitespace(trimmed, end) : p + 3;
+                if (lastTerminator < rest) return true;
+            }
+        }
+
+        // Answer first: the rest of the line from the number on must be one line
+        int answerEnd = AnswerSheetLexer.answerBeforeNumber(AnswerSheetLexer.line(trimmed));
+        return answerEnd >= 0 && lastTerminator < AnswerSheetLexer.numberAfter(trimmed, answerEnd, n);
+    }
+
+    /**
+     * @return Index of the last line terminator in {@code s}, or -1
+     */
+    private static int lastLineTerminator(String s) {
+        for (int i = s.length() - 1; i >= 0; i--) {
+            if (AnswerSheetLexer.isLineTerminator(s.charAt(i))) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param keyword Lowercase ASCII keyword
+     * @return True if {@code s} holds {@code keyword} at {@code offset}, ignoring ASCII case
+     */
+    private static boolean regionMatchesAscii(String s, int offset, String keyword) {
+        for (int j = 0; j < keyword.length(); j++) {
+            char c = s.charAt(offset + j);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != keyword.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(String s, int p) {
+        while (p < s.length() && AnswerSheetLexer.isWhitespace(s.charAt(p))) p++;
+        return p;
+    }
+
     // Parses OCR text into Q->Answer map with enhanced patterns and roman numeral support
     public static LinkedHashMap<Integer, String> parseOcrTextToAnswers(String text) {
         LinkedHashMap<Integer, String> map = new LinkedHashMap<>();
@@ -295,33 +372,36 @@ public final class Parser {
 
     private static String normalizeText(String text) {
         // Normalize line breaks and remove common artifacts
-        return text.replaceAll("[\r]", "\n")
-                  .replaceAll("[•·–—_]+", " ")  // Remove noise punctuation
-                  .replaceAll("\\s+", " ");     // Collapse multiple spaces
+        String lines = text.replace('\r', '\n');
+        String denoised = NOISE_PUNCTUATION_PATTERN.matcher(lines).replaceAll(" ");  // Remove noise punctuation
+        return WHITESPACE_PATTERN.matcher(denoised).replaceAll(" ");                 // Collapse multiple spaces
     }
 
     private static String convertRomanNumerals(String text) {
-        String result = text;
-        
         // Convert roman numerals at the start of lines followed by punctuation/space
-        // Case-insensitive to accept lowercase i/v/x
-        Pattern romanPattern = Pattern.compile("(?i)(?:^|\\n)\\s*([ivx]+)\\s*[.):)]?\\s*", Pattern.MULTILINE);
-        Matcher matcher = romanPattern.matcher(result);
-        
+        return replaceRomanMarkers(ROMAN_MULTILINE_PATTERN.matcher(text));
+    }
+
+    /**
+     * Replace group 1 of every match (a roman numeral up to XXX) with its digits; other matches
+     * are kept as they are.
+     */
+    private static String replaceRomanMarkers(Matcher matcher) {
         StringBuffer sb = new StringBuffer();
         while (matcher.find()) {
-            String roman = matcher.group(1);
-            String romanUpper = roman.toUpperCase();
-            int digit = romanToDigit(romanUpper);
+            int digit = romanToDigit(matcher.group(1).toUpperCase());
             if (digit > 0) {
-                String replacement = matcher.group().replaceFirst("(?i)" + matcher.group(1), String.valueOf(digit));
+                // Only whitespace precedes the numeral within the match, so splice it directly
+                String match = matcher.group();
+                int start = matcher.start(1) - matcher.start();
+                int end = matcher.end(1) - matcher.start();
+                String replacement = match.substring(0, start) + digit + match.substring(end);
                 matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
             } else {
                 matcher.appendReplacement(sb, Matcher.quoteReplacement(matcher.group()));
             }
         }
         matcher.appendTail(sb);
-        
         return sb.toString();
     }
 
@@ -338,16 +418,13 @@ public final class Parser {
         // Pattern 1: Multi-line format "number [punctuation] answer"
         // Supports: "1 A", "1. B", "1) C", "1 - D", "1: E"
         // Updated to support Unicode letters, digits, apostrophes, and hyphens
-        Pattern p1 = Pattern.compile("^\\s*(\\d{1,3})\\s*[.):)]?\\s*[-:]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\b", Pattern.MULTILINE);
-        extractWithPattern(p1, text, map);
+        extractWithPattern(MULTILINE_NUMBERED_ANSWER_PATTERN, text, map);
 
         // Pattern 2: Inline pairs "number punctuation answer"  
-        Pattern p2 = Pattern.compile("(\\d{1,3})\\s*[.):)]\\s*[-:]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})");
-        extractWithPattern(p2, text, map);
+        extractWithPattern(INLINE_PAIR_PATTERN, text, map);
 
         // Pattern 3: Simple number-letter pairs
-        Pattern p3 = Pattern.compile("(\\d{1,3})\\s+([A-Z])\\b");
-        extractWithPattern(p3, text, map);
+        extractWithPattern(NUMBER_LETTER_PATTERN, text, map);
     }
 
     private static void extractWithPattern(Pattern pattern, String text, LinkedHashMap<Integer, String> map) {
@@ -373,7 +450,7 @@ public final class Parser {
         if (answer == null) return "";
         
         // Trim and remove trailing punctuation/noise
-        String cleaned = answer.trim().replaceAll("[.,;!?]+$", "");
+        String cleaned = stripTrailingPunctuation(answer.trim());
         
         // Limit length to MAX_ANSWER_LENGTH
         if (cleaned.length() > MAX_ANSWER_LENGTH) {
@@ -391,6 +468,61 @@ public final class Parser {
         }
     }
 
+    /**
+     * Remove trailing sentence punctuation (same as {@code replaceAll("[.,;!?]+$", "")}, whose
+     * {@code $} also matches before one final line terminator).
+     */
+    private static String stripTrailingPunctuation(String s) {
+        int tail = s.length();
+        if (tail > 0 && AnswerSheetLexer.isLineTerminator(s.charAt(tail - 1))) {
+            tail--;
+            if (s.charAt(tail) == '\n' && tail > 0 && s.charAt(tail - 1) == '\r') tail--;
+        }
+        int end = tail;
+        while (end > 0) {
+            char c = s.charAt(end - 1);
+            if (c != '.' && c != ',' && c != ';' && c != '!' && c != '?') break;
+            end--;
+        }
+        return end == tail ? s : s.substring(0, end) + s.substring(tail);
+    }
+
+    /**
+     * @return True if {@code s} is non-empty and only ASCII letters
+     */
+    private static boolean isAsciiLetters(String s) {
+        if (s.isEmpty()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param trimmed Text without leading whitespace
+     * @return Text up to the first whitespace (same as {@code split("\\s+")[0]})
+     */
+    private static String firstWord(String trimmed) {
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (AnswerSheetLexer.isWhitespace(trimmed.charAt(i))) return trimmed.substring(0, i);
+        }
+        return trimmed;
+    }
+
+    /**
+     * @param trimmed Non-empty text without leading or trailing whitespace
+     * @return Number of whitespace-separated words (same as {@code split("\\s+").length})
+     */
+    private static int wordCount(String trimmed) {
+        int count = 1;
+        for (int i = 1; i < trimmed.length(); i++) {
+            if (!AnswerSheetLexer.isWhitespace(trimmed.charAt(i))
+                    && AnswerSheetLexer.isWhitespace(trimmed.charAt(i - 1))) count++;
+        }
+        return count;
+    }
+
     /**
      * Filter parsed answers to only include questions present in the answer key.
      * For questions in the key but not in parsed, add them with empty string.
@@ -412,12 +544,8 @@ public final class Parser {
             return filtered;
         }
         
-        // Get sorted list of answer key questions
-        java.util.List<Integer> keyQuestions = new java.util.ArrayList<>(answerKey.keySet());
-        java.util.Collections.sort(keyQuestions);
-        
-        // For each question in answer key, get parsed value or empty string
-        for (Integer q : keyQuestions) {
+        // For each question in answer key (sorted), get parsed value or empty string
+        for (int q : compileAnswerKey(answerKey).questions) {
             String parsedAnswer = (parsed != null && parsed.containsKey(q)) ? parsed.get(q) : "";
             filtered.put(q, parsedAnswer != null ? parsedAnswer : "");
         }
@@ -439,83 +567,66 @@ public final class Parser {
      * - Uses allowed-set for preference but doesn't reject candidates
      * - Resolves duplicates by "first non-blank wins" unless later matches allowed-set
      * 
-     * @param text OCR text to parse
-     * @param answerKey Answer key for validation and allowed-set building
+     * @param doc Prepared OCR text and answer key
      * @return Parsed answers map
      */
-    private static LinkedHashMap<Integer, String> parseNumberAnchoredRobust(
-            String text, java.util.Map<Integer, String> answerKey) {
-        
+    private static LinkedHashMap<Integer, String> parseNumberAnchoredRobust(Document doc) {
+
         LinkedHashMap<Integer, String> map = new LinkedHashMap<>();
-        if (text == null || text.trim().isEmpty()) return map;
-        if (answerKey == null || answerKey.isEmpty()) return map;
-        
-        // Build allowed answer set from answer key
-        java.util.Set<String> allowedSet = buildAllowedSet(answerKey);
-        
-        // Strip headers and instructions first
-        String stripped = stripHeadersAndInstructionsPreserveLines(text);
-        
-        // Normalize and convert roman numerals while preserving line structure
-        String normalized = normalizeTextPreserveLines(stripped);
-        String converted = convertRomanNumeralsPreserveLines(normalized);
-        
-        // Split into lines and process with cross-line linking
-        String[] lines = converted.split("\n");
+        AnswerKeyContext key = doc.key;
+
+        // Process lines with cross-line linking
         Integer pendingNumber = null; // For cross-line number-only pairing
         
-        for (int lineIdx = 0; lineIdx < lines.length; lineIdx++) {
-            String line = lines[lineIdx].trim();
+        for (AnswerSheetLexer.Line rawLine : doc.lines) {
+            AnswerSheetLexer.Line line = rawLine.trim();
             if (line.isEmpty()) continue;
             
             // First, try to split compressed multi-item lines like "1.A2.B3.C" or "1.A  3.Z  5.C"
-            java.util.List<String> segments = splitCompressedLine(line);
+            java.util.List<AnswerSheetLexer.Line> segments = splitCompressedLine(line);
             
-            for (String segment : segments) {
+            for (AnswerSheetLexer.Line segment : segments) {
                 segment = segment.trim();
                 if (segment.isEmpty()) continue;
                 
                 // Pattern 1: Number-first with various separators
                 // Matches: "1.A", "1)B", "1-C", "1:D", "1 WORD", etc.
-                Matcher m1 = NUMBER_FIRST_PATTERN.matcher(segment);
-                if (m1.find()) {
-                    int q = safeInt(m1.group(1));
-                    String answer = m1.group(2).trim();
+                AnswerSheetLexer.Item m1 = AnswerSheetLexer.numberFirst(segment);
+                if (m1 != null) {
+                    int q = m1.number;
+                    String answer = m1.answer.trim();
                     if (q >= 1 && q <= MAX_QUESTION_NUMBER) {
-                        addAnswerWithPreference(map, q, answer, allowedSet);
+                        addAnswerWithPreference(map, q, answer, key);
                         pendingNumber = null; // Clear pending
                         continue;
                     }
                 }
                 
                 // Pattern 2: Answer-first patterns like "True 1." or "A 1."
-                Matcher m2 = ANSWER_FIRST_PATTERN.matcher(segment);
-                if (m2.find()) {
-                    String answer = m2.group(1).trim();
-                    int q = safeInt(m2.group(2));
+                AnswerSheetLexer.Item m2 = AnswerSheetLexer.answerFirst(segment);
+                if (m2 != null) {
+                    String answer = m2.answer.trim();
+                    int q = m2.number;
                     if (q >= 1 && q <= MAX_QUESTION_NUMBER) {
-                        addAnswerWithPreference(map, q, answer, allowedSet);
+                        addAnswerWithPreference(map, q, answer, key);
                         pendingNumber = null; // Clear pending
                         continue;
                     }
                 }
                 
                 // Pattern 3: Number-only (for cross-line linking)
-                Matcher m3 = NUMBER_ONLY_PATTERN.matcher(segment);
-                if (m3.find()) {
-                    int q = safeInt(m3.group(1));
-                    if (q >= 1 && q <= MAX_QUESTION_NUMBER) {
-                        pendingNumber = q;
-                        continue;
-                    }
+                int q = AnswerSheetLexer.numberOnly(segment);
+                if (q >= 1 && q <= MAX_QUESTION_NUMBER) {
+                    pendingNumber = q;
+                    continue;
                 }
                 
                 // Pattern 4: Answer-only (pair with pending number if available)
                 if (pendingNumber != null) {
                     // Extract answer from this segment
-                    String answer = extractFirstValidAnswer(segment, pendingNumber);
+                    String answer = extractFirstValidAnswer(segment, key.typeOf(pendingNumber));
                     if (!answer.isEmpty()) {
-                        addAnswerWithPreference(map, pendingNumber, answer, allowedSet);
+                        addAnswerWithPreference(map, pendingNumber, answer, key);
                         pendingNumber = null;
                     }
                 }
@@ -531,51 +642,33 @@ public final class Parser {
      * into individual segments.
      * Uses a manual approach to ensure clean splits that preserve number-answer pairs.
      */
-    private static java.util.List<String> splitCompressedLine(String line) {
-        java.util.List<String> segments = new java.util.ArrayList<>();
-        
-        // Use pre-compiled pattern to find each number-answer pair
-        Matcher matcher = COMPRESSED_ITEM_PATTERN.matcher(line);
-        
-        boolean foundAny = false;
-        
-        while (matcher.find()) {
-            foundAny = true;
-            // Extract the matched segment
-            String segment = matcher.group().trim();
-            segments.add(segment);
-        }
-        
-        if (!foundAny) {
+    private static java.util.List<AnswerSheetLexer.Line> splitCompressedLine(AnswerSheetLexer.Line line) {
+        java.util.List<AnswerSheetLexer.Line> segments = AnswerSheetLexer.compressedItems(line);
+        if (segments.isEmpty()) {
             // No number-answer pairs found, return original
             segments.add(line);
         }
-        
         return segments;
     }
     
     /**
      * Extract the first valid answer token from text.
-     * If a question number is provided and a hint exists, applies type-specific extraction.
+     * If a type hint is provided, applies type-specific extraction.
      * 
      * @param text Text to extract answer from
-     * @param questionNumber Question number (0 if unknown)
+     * @param type Type hint for the question (null if none)
      * @return Extracted answer or empty string
      */
-    private static String extractFirstValidAnswer(String text, int questionNumber) {
-        if (text == null || text.trim().isEmpty()) return "";
-        
-        RangeHint.QuestionType type = getQuestionType(questionNumber);
+    private static String extractFirstValidAnswer(AnswerSheetLexer.Line text, RangeHint.QuestionType type) {
+        if (text == null || text.isBlank()) return "";
         
-        // Use pre-compiled pattern to match answer token
-        Matcher m = ANSWER_TOKEN_PATTERN.matcher(text);
-        if (m.find()) {
-            String answer = m.group(1);
+        String answer = AnswerSheetLexer.firstAnswer(text);
+        if (answer != null) {
             if (answer.length() > MAX_ANSWER_LENGTH) {
                 answer = answer.substring(0, MAX_ANSWER_LENGTH);
             }
             // Clean trailing punctuation
-            answer = answer.replaceAll("[.,;!?]+$", "");
+            answer = stripTrailingPunctuation(answer);
             
             // Apply type-specific handling if hint is available
             if (type != null) {
@@ -594,8 +687,8 @@ public final class Parser {
     /**
      * Overload for backward compatibility
      */
-    private static String extractFirstValidAnswer(String text) {
-        return extractFirstValidAnswer(text, 0);
+    private static String extractFirstValidAnswer(AnswerSheetLexer.Line text) {
+        return extractFirstValidAnswer(text, null);
     }
     
     /**
@@ -616,7 +709,7 @@ public final class Parser {
                     return answer.toUpperCase(Locale.US);
                 }
                 // If longer, only accept if it's clearly a letter choice (A-Z word)
-                if (answer.length() <= 3 && answer.matches("^[A-Za-z]+$")) {
+                if (answer.length() <= 3 && isAsciiLetters(answer)) {
                     return answer.toUpperCase(Locale.US);
                 }
                 // Otherwise keep as-is (fallback for unexpected formats)
@@ -670,12 +763,12 @@ public final class Parser {
             LinkedHashMap<Integer, String> map, 
             int question, 
             String answer, 
-            java.util.Set<String> allowedSet) {
+            AnswerKeyContext key) {
         
         if (answer == null || answer.trim().isEmpty()) return;
         
         // Clean and normalize answer
-        String cleaned = answer.trim().replaceAll("[.,;!?]+$", "");
+        String cleaned = stripTrailingPunctuation(answer.trim());
         if (cleaned.isEmpty()) return;
         
         // Limit length
@@ -684,7 +777,7 @@ public final class Parser {
         }
         
         // Apply type hint if available
-        RangeHint.QuestionType type = getQuestionType(question);
+        RangeHint.QuestionType type = key.typeOf(question);
         if (type != null) {
             cleaned = applyTypeHint(cleaned, type);
         } else {
@@ -694,8 +787,9 @@ public final class Parser {
             }
         }
         
+        java.util.Set<String> allowedSet = key.allowedSet;
         String canonicalNew = canonical(cleaned);
-        boolean newInAllowedSet = allowedSet != null && 
+        boolean newInAllowedSet = 
             (allowedSet.contains(canonicalNew) || allowedSet.contains(cleaned));
         
         if (!map.containsKey(question)) {
@@ -705,7 +799,7 @@ public final class Parser {
             // Duplicate: prefer allowed-set match
             String existing = map.get(question);
             String canonicalExisting = canonical(existing);
-            boolean existingInAllowedSet = allowedSet != null && 
+            boolean existingInAllowedSet = 
                 (allowedSet.contains(canonicalExisting) || allowedSet.contains(existing));
             
             if (newInAllowedSet && !existingInAllowedSet) {
@@ -722,9 +816,10 @@ public final class Parser {
      * This is the main entry point for the new multi-pass OCR pipeline.
      * 
      * Strategy:
-     * 1. Try robust number-anchored parsing (handles all formats, misalignment, compression)
-     * 2. Try gap-tolerant parsing (hybrid strategy)
-     * 3. Try number-aware parsing
+     * 1. Try robust number-anchored parsing (handles all formats, misalignment, compression);
+     *    stop here if it found as many answers as the key has
+     * 2. Try gap-tolerant parsing (hybrid strategy), on a helper thread when one is free
+     * 3. Try number-aware parsing, meanwhile
      * 4. If too few answers found, try order-only mode
      * 5. Return whichever yields most filled answers
      * 
@@ -737,23 +832,43 @@ public final class Parser {
         
         if (text == null || text.trim().isEmpty()) return new LinkedHashMap<>();
         if (answerKey == null || answerKey.isEmpty()) return new LinkedHashMap<>();
-        
+
+        // Strip, normalize and split once; every strategy reads the same lines
+        Document doc = prepare(text, answerKey);
+
         // Step 1: Try robust number-anchored parsing
-        LinkedHashMap<Integer, String> robustResult = parseNumberAnchoredRobust(text, answerKey);
+        LinkedHashMap<Integer, String> robustResult = parseNumberAnchoredRobust(doc);
         int robustFilledCount = countFilledAnswers(robustResult);
         
         Log.d(TAG, "Robust number-anchored parsing found " + robustFilledCount + " filled answers");
-        
-        // Step 2: Try gap-tolerant parsing (hybrid strategy)
-        LinkedHashMap<Integer, String> gapTolerantResult = parseGapTolerant(text, answerKey);
+
+        // As many answers as the key cannot be beaten: the other strategies only report key
+        // questions, a tie keeps the robust result and order-only is not tried
+        if (robustFilledCount >= answerKey.size()) {
+            return robustResult;
+        }
+
+        // Steps 2 and 3 are independent: gap-tolerant goes to a helper thread while
+        // number-aware runs here
+        FutureTask<LinkedHashMap<Integer, String>> gapTolerantTask =
+                new FutureTask<>(() -> parseGapTolerant(doc));
+        ExecutorService pool = strategyPool();
+        if (pool != null) {
+            pool.execute(gapTolerantTask);
+        }
+
+        // Step 3: Try number-aware parsing
+        LinkedHashMap<Integer, String> numberAwareResult = parseNumberAware(doc);
+        int numberAwareFilledCount = countFilledAnswers(numberAwareResult);
+
+        // Step 2: Try gap-tolerant parsing (hybrid strategy); runs here unless a helper already
+        // picked it up, in which case run() does nothing and we wait for it
+        gapTolerantTask.run();
+        LinkedHashMap<Integer, String> gapTolerantResult = await(gapTolerantTask);
         int gapFilledCount = countFilledAnswers(gapTolerantResult);
         
         Log.d(TAG, "Gap-tolerant parsing found " + gapFilledCount + " filled answers");
         
-        // Step 3: Try number-aware parsing
-        LinkedHashMap<Integer, String> numberAwareResult = parseNumberAware(text, answerKey);
-        int numberAwareFilledCount = countFilledAnswers(numberAwareResult);
-        
         Log.d(TAG, "Number-aware parsing found " + numberAwareFilledCount + " filled answers");
         
         // Find the best result so far
@@ -775,7 +890,7 @@ public final class Parser {
         
         if (bestFilledCount < expectedCount * ORDER_ONLY_FALLBACK_THRESHOLD) {
             Log.d(TAG, "Trying order-only fallback (below " + (ORDER_ONLY_FALLBACK_THRESHOLD * 100) + "% threshold)");
-            LinkedHashMap<Integer, String> orderOnlyResult = parseOrderOnly(text, answerKey);
+            LinkedHashMap<Integer, String> orderOnlyResult = parseOrderOnly(doc);
             int orderFilledCount = countFilledAnswers(orderOnlyResult);
             
             Log.d(TAG, "Order-only parsing found " + orderFilledCount + " filled answers");
@@ -789,6 +904,58 @@ public final class Parser {
         return bestResult;
     }
     
+    /**
+     * Wait for a strategy task, rethrowing its failure on this thread.
+     */
+    private static <T> T await(FutureTask<T> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    // The task is already running on a helper; its result is still needed
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            throw new IllegalStateException(t);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return Shared pool for strategy tasks, or null on a single-core device
+     */
+    private static ExecutorService strategyPool() {
+        if (STRATEGY_THREADS < 1) return null;
+        ExecutorService p = strategyPool;
+        if (p == null) {
+            synchronized (Parser.class) {
+                p = strategyPool;
+                if (p == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(STRATEGY_THREADS, STRATEGY_THREADS,
+                            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                                Thread t = new Thread(r, "parser-strategy-" + threadCount.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            });
+                    executor.allowCoreThreadTimeOut(true);
+                    p = executor;
+                    strategyPool = p;
+                }
+            }
+        }
+        return p;
+    }
+
     /**
      * Gap-tolerant parser with hybrid strategy:
      * - Normalize text, split/join lines, strip numbering tokens
@@ -796,40 +963,22 @@ public final class Parser {
      * - Build two maps: byNumber (explicit numbers) and byOrder (sequence)
      * - Merge by filling gaps using orphan lines
      * 
-     * @param text OCR text to parse
-     * @param answerKey Current answer key for validation
+     * @param doc Prepared OCR text and answer key
      * @return Parsed answers map with gaps filled
      */
-    private static LinkedHashMap<Integer, String> parseGapTolerant(
-            String text, java.util.Map<Integer, String> answerKey) {
-        
-        if (text == null || text.trim().isEmpty()) return new LinkedHashMap<>();
-        if (answerKey == null || answerKey.isEmpty()) return new LinkedHashMap<>();
-        
-        // Build allowed answer set from answer key
-        java.util.Set<String> allowedSet = buildAllowedSet(answerKey);
-        
-        // Strip headers and instructions first
-        String stripped = stripHeadersAndInstructionsPreserveLines(text);
-        
-        // Get sorted list of answer key questions
-        java.util.List<Integer> keyQuestions = new java.util.ArrayList<>(answerKey.keySet());
-        java.util.Collections.sort(keyQuestions);
-        
-        // Normalize and convert roman numerals
-        String normalized = normalizeTextPreserveLines(stripped);
-        String converted = convertRomanNumeralsPreserveLines(normalized);
-        
+    private static LinkedHashMap<Integer, String> parseGapTolerant(Document doc) {
+
+        AnswerKeyContext key = doc.key;
+
         // Split lines that accidentally contain multiple numbered items
         // E.g., "1. A 2. B" becomes ["1. A", "2. B"]
-        String[] rawLines = converted.split("\n");
-        java.util.List<String> splitLines = new java.util.ArrayList<>();
-        for (String line : rawLines) {
+        java.util.List<AnswerSheetLexer.Line> splitLines = new java.util.ArrayList<>();
+        for (AnswerSheetLexer.Line line : doc.lines) {
             // Try to split if line contains multiple question patterns
-            String[] parts = line.split(MULTI_ITEM_SPLIT_PATTERN);
-            for (String part : parts) {
-                if (!part.trim().isEmpty()) {
-                    splitLines.add(part.trim());
+            for (AnswerSheetLexer.Line part : AnswerSheetLexer.splitItems(line)) {
+                AnswerSheetLexer.Line trimmed = part.trim();
+                if (!trimmed.isEmpty()) {
+                    splitLines.add(trimmed);
                 }
             }
         }
@@ -838,22 +987,19 @@ public final class Parser {
         LinkedHashMap<Integer, String> byNumber = new LinkedHashMap<>();
         java.util.List<String> orphanLines = new java.util.ArrayList<>();
         
-        for (String line : splitLines) {
-            if (line.trim().isEmpty()) continue;
-            
+        for (AnswerSheetLexer.Line line : splitLines) {
             // Try to extract question number and answer
             // Strip numbering tokens: "1.", "2)", "3 -", "4:", etc.
-            Pattern numberPattern = Pattern.compile("^\\s*(\\d{1,3})\\s*[.):)]?\\s*[-:]?\\s*(.*)$");
-            Matcher matcher = numberPattern.matcher(line);
+            AnswerSheetLexer.Item numbered = AnswerSheetLexer.leadingNumber(line);
             
-            if (matcher.find()) {
-                int q = safeInt(matcher.group(1));
-                String answerPart = matcher.group(2).trim();
+            if (numbered != null) {
+                int q = numbered.number;
+                String answerPart = numbered.answer.trim();
                 
                 // Extract answer (single letter or short text)
-                String answer = extractAnswer(answerPart, allowedSet, q);
+                String answer = extractAnswer(answerPart, key.typeOf(q));
                 
-                if (q >= 1 && q <= MAX_QUESTION_NUMBER && answerKey.containsKey(q) && !answer.isEmpty() && !byNumber.containsKey(q)) {
+                if (q >= 1 && q <= MAX_QUESTION_NUMBER && key.answerKey.containsKey(q) && !answer.isEmpty() && !byNumber.containsKey(q)) {
                     byNumber.put(q, answer);
                 } else if (!answer.isEmpty()) {
                     // Valid answer but not matched to a question - add to orphans
@@ -861,7 +1007,7 @@ public final class Parser {
                 }
             } else {
                 // No number found, try to extract answer only
-                String answer = extractAnswer(line, allowedSet, 0);
+                String answer = extractAnswer(line.toString(), null);
                 if (!answer.isEmpty()) {
                     orphanLines.add(answer);
                 }
@@ -874,7 +1020,7 @@ public final class Parser {
         LinkedHashMap<Integer, String> merged = new LinkedHashMap<>();
         int orphanIndex = 0;
         
-        for (Integer q : keyQuestions) {
+        for (int q : key.questions) {
             if (byNumber.containsKey(q)) {
                 // Use explicitly numbered answer
                 merged.put(q, byNumber.get(q));
@@ -889,29 +1035,24 @@ public final class Parser {
         }
         
         int filledCount = countFilledAnswers(merged);
-        Log.d(TAG, "Gap-tolerant merge: filled " + filledCount + "/" + keyQuestions.size() + " questions");
+        Log.d(TAG, "Gap-tolerant merge: filled " + filledCount + "/" + key.questions.length + " questions");
         
         return merged;
     }
     
     /**
      * Extract answer from text, accepting single letters (A-Z) or short words.
-     * Prefers answers in allowed set but doesn't reject others.
-     * Applies type-specific extraction if hint is available.
+     * Applies type-specific extraction if a hint is available.
      * 
      * @param text Text to extract answer from
-     * @param allowedSet Set of allowed answers (canonical form) - used for preference, not rejection
-     * @param questionNumber Question number for hint lookup (0 if unknown)
+     * @param type Type hint for the question (null if none)
      * @return Extracted answer or empty string
      */
-    private static String extractAnswer(String text, java.util.Set<String> allowedSet, int questionNumber) {
+    private static String extractAnswer(String text, RangeHint.QuestionType type) {
         if (text == null || text.trim().isEmpty()) return "";
         
         // Trim and take first word
-        String[] words = text.trim().split("\\s+");
-        if (words.length == 0) return "";
-        
-        String candidate = words[0];
+        String candidate = firstWord(text.trim());
         
         // Limit length to MAX_ANSWER_LENGTH
         if (candidate.length() > MAX_ANSWER_LENGTH) {
@@ -919,12 +1060,11 @@ public final class Parser {
         }
         
         // Remove trailing punctuation
-        candidate = candidate.replaceAll("[.,;!?]+$", "");
+        candidate = stripTrailingPunctuation(candidate);
         
         if (candidate.isEmpty()) return "";
         
         // Apply type hint if available
-        RangeHint.QuestionType type = getQuestionType(questionNumber);
         if (type != null) {
             return applyTypeHint(candidate, type);
         }
@@ -937,46 +1077,25 @@ public final class Parser {
         return candidate;
     }
     
-    /**
-     * Overload for backward compatibility (no question number)
-     */
-    private static String extractAnswer(String text, java.util.Set<String> allowedSet) {
-        return extractAnswer(text, allowedSet, 0);
-    }
-    
     /**
      * Number-aware parser: looks for numbered patterns like "1. A", "2) B", etc.
      * Strips leading numbers and extracts answers.
      * Updated to prefer allowed-set matches but not reject others.
      */
-    private static LinkedHashMap<Integer, String> parseNumberAware(
-            String text, java.util.Map<Integer, String> answerKey) {
-        
+    private static LinkedHashMap<Integer, String> parseNumberAware(Document doc) {
+
         LinkedHashMap<Integer, String> map = new LinkedHashMap<>();
-        java.util.Set<String> allowedSet = buildAllowedSet(answerKey);
-        
-        // Strip headers and instructions first
-        String stripped = stripHeadersAndInstructionsPreserveLines(text);
-        
-        // Normalize and convert roman numerals
-        String normalized = normalizeTextPreserveLines(stripped);
-        String converted = convertRomanNumeralsPreserveLines(normalized);
-        
+        java.util.Map<Integer, String> answerKey = doc.key.answerKey;
+
         // Parse line by line
-        String[] lines = converted.split("\n");
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
-            
+        for (AnswerSheetLexer.Line line : doc.lines) {
             // Try patterns: "1. A", "1) B", "1 A", "1- A", "1: A"
             // Updated to support Unicode letters, digits, apostrophes, and hyphens
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(
-                    "^\\s*(\\d{1,3})\\s*[.):)]?\\s*[-:]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\b");
-            java.util.regex.Matcher m = p.matcher(line);
+            AnswerSheetLexer.Item m = AnswerSheetLexer.numberedAnswer(line);
             
-            if (m.find()) {
-                int q = safeInt(m.group(1));
-                String answer = m.group(2).trim();
-                String canonical = canonical(answer);
+            if (m != null) {
+                int q = m.number;
+                String answer = m.answer.trim();
                 
                 if (q >= 1 && q <= MAX_QUESTION_NUMBER && answerKey.containsKey(q) && !map.containsKey(q)) {
                     // Accept all answers, allowed-set or not (preference handled in deduplication elsewhere)
@@ -992,41 +1111,27 @@ public final class Parser {
      * Order-only parser: ignores numbers, maps each line sequentially to answer key questions.
      * Useful when OCR dropped numbering but preserved answer order.
      */
-    private static LinkedHashMap<Integer, String> parseOrderOnly(
-            String text, java.util.Map<Integer, String> answerKey) {
-        
+    private static LinkedHashMap<Integer, String> parseOrderOnly(Document doc) {
+
         LinkedHashMap<Integer, String> map = new LinkedHashMap<>();
-        java.util.Set<String> allowedSet = buildAllowedSet(answerKey);
-        
-        // Get sorted list of answer key questions
-        java.util.List<Integer> keyQuestions = new java.util.ArrayList<>(answerKey.keySet());
-        java.util.Collections.sort(keyQuestions);
-        
-        // Strip headers and instructions first
-        String stripped = stripHeadersAndInstructionsPreserveLines(text);
-        
-        // Normalize text
-        String normalized = normalizeTextPreserveLines(stripped);
-        String converted = convertRomanNumeralsPreserveLines(normalized);
-        
+        java.util.Set<String> allowedSet = doc.key.allowedSet;
+        int[] keyQuestions = doc.key.questions;
+
         // Extract candidate answers (lines that look like answers)
         java.util.List<String> candidates = new java.util.ArrayList<>();
-        String[] lines = converted.split("\n");
-        
-        for (String line : lines) {
-            line = line.trim();
+
+        for (AnswerSheetLexer.Line rawLine : doc.lines) {
+            AnswerSheetLexer.Line line = rawLine.trim();
             if (line.isEmpty()) continue;
             
             // Strip any leading numbering (e.g., "1. ", "2) ", etc.)
-            String cleaned = line.replaceFirst("^\\s*\\d{1,3}\\s*[.):)]?\\s*[-:]?\\s*", "");
-            cleaned = cleaned.trim();
+            String cleaned = line.text.substring(AnswerSheetLexer.numberingEnd(line), line.end).trim();
             
             if (cleaned.isEmpty()) continue;
             
             // Check if it looks like an answer (single word or single letter)
-            String[] words = cleaned.split("\\s+");
-            if (words.length <= 3) { // Accept up to 3 words as potential answer
-                String candidate = words[0]; // Take first word
+            if (wordCount(cleaned) <= 3) { // Accept up to 3 words as potential answer
+                String candidate = firstWord(cleaned); // Take first word
                 String canonicalCandidate = canonical(candidate);
                 
                 // Only accept if it's in allowed set
@@ -1039,9 +1144,9 @@ public final class Parser {
         Log.d(TAG, "Order-only found " + candidates.size() + " candidate answers");
         
         // Map candidates to answer key questions in order
-        int minCount = Math.min(candidates.size(), keyQuestions.size());
+        int minCount = Math.min(candidates.size(), keyQuestions.length);
         for (int i = 0; i < minCount; i++) {
-            Integer q = keyQuestions.get(i);
+            int q = keyQuestions[i];
             String answer = candidates.get(i);
             map.put(q, answer);
         }
@@ -1082,31 +1187,19 @@ public final class Parser {
         if (text == null || text.trim().isEmpty()) return map;
         if (answerKey == null || answerKey.isEmpty()) return map;
 
-        // Build allowed answer set from answer key
-        java.util.Set<String> allowedSet = buildAllowedSet(answerKey);
+        // Strip headers, normalize (preserving line breaks), convert roman numerals
+        Document doc = prepare(text, answerKey);
+        java.util.Set<String> allowedSet = doc.key.allowedSet;
         Log.d(TAG, "Smart parser allowed set: " + allowedSet);
 
-        // Strip headers and instructions first
-        String stripped = stripHeadersAndInstructionsPreserveLines(text);
-
-        // Normalize text but preserve line breaks
-        String normalized = normalizeTextPreserveLines(stripped);
-        
-        // Convert roman numerals to digits
-        String converted = convertRomanNumeralsPreserveLines(normalized);
-        
         // Parse line by line
-        String[] lines = converted.split("\n");
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
-            
+        for (AnswerSheetLexer.Line line : doc.lines) {
             // Try number-first pattern: "1. A" or "1 ) B"
             // Updated to support Unicode letters, digits, apostrophes, and hyphens
-            Pattern p1 = Pattern.compile("^\\s*(\\d{1,3})\\s*[.):)]?\\s*[-:]?\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\b");
-            Matcher m1 = p1.matcher(line);
-            if (m1.find()) {
-                int q = safeInt(m1.group(1));
-                String answer = m1.group(2).trim();
+            AnswerSheetLexer.Item m1 = AnswerSheetLexer.numberedAnswer(line);
+            if (m1 != null) {
+                int q = m1.number;
+                String answer = m1.answer.trim();
                 String canonical = canonical(answer);
                 
                 if (q >= 1 && q <= MAX_QUESTION_NUMBER && allowedSet.contains(canonical) && !map.containsKey(q)) {
@@ -1116,11 +1209,10 @@ public final class Parser {
             }
             
             // Try answer-first pattern: "True 1." or "FALSE 2)"
-            Pattern p2 = Pattern.compile("^\\s*([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})\\s+(\\d{1,3})\\s*[.):)]?");
-            Matcher m2 = p2.matcher(line);
-            if (m2.find()) {
-                String answer = m2.group(1).trim();
-                int q = safeInt(m2.group(2));
+            AnswerSheetLexer.Item m2 = AnswerSheetLexer.answerNumbered(line);
+            if (m2 != null) {
+                String answer = m2.answer.trim();
+                int q = m2.number;
                 String canonical = canonical(answer);
                 
                 if (q >= 1 && q <= MAX_QUESTION_NUMBER && allowedSet.contains(canonical) && !map.containsKey(q)) {
@@ -1133,38 +1225,166 @@ public final class Parser {
         return map;
     }
 
+    /**
+     * OCR text prepared once and shared by every answer-key strategy: headers and instructions
+     * stripped, noise punctuation removed, roman numerals converted, lexed and cut into lines
+     * (untrimmed), plus the compiled answer key.
+     */
+    private static final class Document {
+        final List<AnswerSheetLexer.Line> lines;
+        final AnswerKeyContext key;
+
+        Document(List<AnswerSheetLexer.Line> lines, AnswerKeyContext key) {
+            this.lines = lines;
+            this.key = key;
+        }
+    }
+
+    /**
+     * An answer key compiled for parsing: a snapshot of the key, its allowed set, its questions
+     * in ascending order, and the type hint of every question number up to MAX_QUESTION_NUMBER.
+     * Immutable, so one instance serves every scan and strategy thread until the key or the
+     * hints change.
+     */
+    private static final class AnswerKeyContext {
+        final java.util.Map<Integer, String> answerKey;
+        final Map<Integer, RangeHint.QuestionType> hints;
+        final java.util.Set<String> allowedSet;
+        final int[] questions;
+        private final RangeHint.QuestionType[] typeHints;
+
+        AnswerKeyContext(java.util.Map<Integer, String> answerKey, Map<Integer, RangeHint.QuestionType> hints) {
+            this.answerKey = java.util.Collections.unmodifiableMap(new HashMap<>(answerKey));
+            this.hints = hints;
+            this.allowedSet = java.util.Collections.unmodifiableSet(buildAllowedSet(answerKey));
+
+            int[] sorted = new int[answerKey.size()];
+            int i = 0;
+            for (Integer q : answerKey.keySet()) {
+                sorted[i++] = q;
+            }
+            java.util.Arrays.sort(sorted);
+            this.questions = sorted;
+
+            this.typeHints = new RangeHint.QuestionType[MAX_QUESTION_NUMBER + 1];
+            if (hints != null) {
+                for (Map.Entry<Integer, RangeHint.QuestionType> hint : hints.entrySet()) {
+                    int q = hint.getKey();
+                    if (q >= 0 && q <= MAX_QUESTION_NUMBER) {
+                        typeHints[q] = hint.getValue();
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return The type hint for the question, or null if it has none
+         */
+        RangeHint.QuestionType typeOf(int question) {
+            return question >= 0 && question <= MAX_QUESTION_NUMBER ? typeHints[question] : null;
+        }
+    }
+
+    /**
+     * Compile the answer key against the current range hints, reusing the last compiled key
+     * while neither has changed.
+     * 
+     * @param answerKey Answer key to compile
+     * @return The compiled answer key
+     */
+    private static AnswerKeyContext compileAnswerKey(java.util.Map<Integer, String> answerKey) {
+        Map<Integer, RangeHint.QuestionType> hints = rangeHintsMap;
+        AnswerKeyContext cached = answerKeyContext;
+        if (cached != null && cached.hints == hints && cached.answerKey.equals(answerKey)) {
+            return cached;
+        }
+        AnswerKeyContext compiled = new AnswerKeyContext(answerKey, hints);
+        answerKeyContext = compiled;
+        return compiled;
+    }
+
+    /**
+     * @param text Non-empty OCR text
+     * @param answerKey Non-empty answer key
+     * @return The text prepared for line-by-line parsing
+     */
+    private static Document prepare(String text, java.util.Map<Integer, String> answerKey) {
+        String stripped = stripHeadersAndInstructionsPreserveLines(text);
+        String normalized = normalizeTextPreserveLines(stripped);
+        String converted = convertRomanNumeralsPreserveLines(normalized);
+        return new Document(AnswerSheetLexer.lines(converted), compileAnswerKey(answerKey));
+    }
+
     /**
      * Normalize text but preserve line breaks for line-by-line parsing.
      */
     private static String normalizeTextPreserveLines(String text) {
-        return text.replaceAll("\r\n", "\n")
-                   .replaceAll("\r", "\n")
-                   .replaceAll("[•·–—_]+", " ");
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean inNoise = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '•' || c == '·' || c == '–' || c == '—' || c == '_') {
+                // A run of noise punctuation becomes one space
+                if (!inNoise) sb.append(' ');
+                inNoise = true;
+                continue;
+            }
+            inNoise = false;
+            if (c == '\r') {
+                // \r\n and lone \r both become \n
+                sb.append('\n');
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n') i++;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
     }
 
     /**
      * Convert roman numerals but preserve line structure.
+     *
+     * A marker is a run of i/v/x (any case) after only whitespace from the start of a line, with
+     * optional punctuation; each one up to XXX becomes its digits, like repeated finds of
+     * {@code (?i)(?:^|\n)\s*([ivx]+)\s*[.):)]?\s*}. The whitespace after a marker belongs to it,
+     * so when it reaches the next line that line's start is not looked at.
      */
     private static String convertRomanNumeralsPreserveLines(String text) {
-        String result = text;
-        // Case-insensitive to accept lowercase i/v/x
-        Pattern romanPattern = Pattern.compile("(?i)(?:^|\\n)\\s*([ivx]+)\\s*[.):)]?\\s*");
-        Matcher matcher = romanPattern.matcher(result);
-        
-        StringBuffer sb = new StringBuffer();
-        while (matcher.find()) {
-            String roman = matcher.group(1);
-            String romanUpper = roman.toUpperCase();
-            int digit = romanToDigit(romanUpper);
-            if (digit > 0) {
-                String replacement = matcher.group().replaceFirst("(?i)" + matcher.group(1), String.valueOf(digit));
-                matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        int n = text.length();
+        StringBuilder sb = null;
+        int copied = 0;
+        int from = 0;
+        boolean atStart = true;
+        while (true) {
+            int p;
+            if (atStart) {
+                p = 0;
+                atStart = false;
             } else {
-                matcher.appendReplacement(sb, Matcher.quoteReplacement(matcher.group()));
+                int newline = text.indexOf('\n', from);
+                if (newline < 0) break;
+                p = newline + 1;
+            }
+            int start = skipWhitespace(text, p);
+            int end = start;
+            while (end < n && "IVXivx".indexOf(text.charAt(end)) >= 0) end++;
+            if (end == start) {
+                from = start;
+                continue;
+            }
+
+            int digit = romanToDigit(text.substring(start, end).toUpperCase());
+            if (digit > 0) {
+                if (sb == null) sb = new StringBuilder(n);
+                sb.append(text, copied, start).append(digit);
+                copied = end;
             }
+            int markerEnd = skipWhitespace(text, end);
+            if (markerEnd < n && ".):)".indexOf(text.charAt(markerEnd)) >= 0) markerEnd++;
+            from = skipWhitespace(text, markerEnd);
         }
-        matcher.appendTail(sb);
-        return sb.toString();
+        if (sb == null) return text;
+        return sb.append(text, copied, n).toString();
     }
 
     /**
@@ -0,0 +1,41 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+/**
+ * Per-pixel primitives the fused preprocessing pipelines are built from (grayscale, lookup-table
+ * contrast/threshold, 3x3 sharpen). {@link PreprocessKernels#JAVA} is the reference
+ * implementation; an accelerated backend must reproduce it exactly, which
+ * {@link PreprocessBackendParity} checks before the backend is used.
+ */
+interface PreprocessBackend {
+    /**
+     * @return Short name for logging
+     */
+    String name();
+
+    /**
+     * Integer luminance of ARGB pixels, as {@link GrayImage#luma} / {@link GrayImage#deYellowLuma}.
+     *
+     * @param argb Source pixels, row-major, at least {@code out.width * out.height}
+     * @param deYellow Apply the de-yellow filter before taking luminance
+     * @param out Receives the gray levels
+     */
+    void gray(int[] argb, boolean deYellow, GrayImage out);
+
+    /**
+     * Map every pixel through a 256-entry lookup table in place.
+     */
+    void applyTable(GrayImage image, byte[] table);
+
+    /**
+     * Map every pixel through a lookup table in place and count the mapped levels.
+     *
+     * @return Histogram of the image after mapping
+     */
+    int[] mapAndCount(GrayImage image, byte[] table);
+
+    /**
+     * 3x3 sharpen (5 centre, -1 for each 4-neighbour, clamped; border pixels unchanged), then
+     * map through a lookup table, in place.
+     */
+    void sharpen(GrayImage image, byte[] table);
+}
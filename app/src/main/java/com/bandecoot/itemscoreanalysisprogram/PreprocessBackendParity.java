@@ -0,0 +1,107 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.Arrays;
+
+/**
+ * Parity harness for {@link PreprocessBackend}s: runs every primitive of a candidate backend and
+ * of the reference on the same synthetic images and requires bit-identical output.
+ *
+ * The test images cover the awkward cases for a GPU implementation: widths that are not a
+ * multiple of four (packed bytes), one-row and one-column images (sharpen borders), the full
+ * 0..255 range, and colored pixels for the de-yellow filter.
+ */
+final class PreprocessBackendParity {
+    private static final int[][] SIZES = {{67, 45}, {1, 9}, {9, 1}, {128, 64}};
+
+    private PreprocessBackendParity() {}
+
+    /**
+     * @param reference Trusted backend (normally {@link PreprocessKernels#JAVA})
+     * @param candidate Backend under test
+     * @return null when every primitive matches, otherwise a description of the first mismatch
+     */
+    static String check(PreprocessBackend reference, PreprocessBackend candidate) {
+        byte[] identity = new byte[256];
+        byte[] contrast = new byte[256];
+        byte[] threshold = new byte[256];
+        for (int v = 0; v < 256; v++) {
+            identity[v] = (byte) v;
+            contrast[v] = (byte) PreprocessKernels.matrix(1.5f * v - 64);
+            threshold[v] = (byte) (v < 128 ? 0 : 255);
+        }
+
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            int[] argb = testPixels(width, height);
+            String where = " at " + width + "x" + height;
+
+            for (boolean deYellow : new boolean[]{false, true}) {
+                GrayImage expected = new GrayImage(width, height);
+                GrayImage actual = new GrayImage(width, height);
+                reference.gray(argb, deYellow, expected);
+                candidate.gray(argb, deYellow, actual);
+                if (!same(expected, actual)) return "gray(deYellow=" + deYellow + ")" + where;
+            }
+
+            GrayImage source = new GrayImage(width, height);
+            reference.gray(argb, false, source);
+
+            for (byte[] table : new byte[][]{identity, contrast, threshold}) {
+                GrayImage expected = copy(source);
+                GrayImage actual = copy(source);
+                reference.applyTable(expected, table);
+                candidate.applyTable(actual, table);
+                if (!same(expected, actual)) return "applyTable" + where;
+
+                expected = copy(source);
+                actual = copy(source);
+                int[] expectedHistogram = reference.mapAndCount(expected, table);
+                int[] actualHistogram = candidate.mapAndCount(actual, table);
+                if (!same(expected, actual)) return "mapAndCount pixels" + where;
+                if (!Arrays.equals(expectedHistogram, actualHistogram)) return "mapAndCount histogram" + where;
+
+                expected = copy(source);
+                actual = copy(source);
+                reference.sharpen(expected, table);
+                candidate.sharpen(actual, table);
+                if (!same(expected, actual)) return "sharpen" + where;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deterministic colored noise over a gradient, with pure black and white corners.
+     */
+    static int[] testPixels(int width, int height) {
+        int[] argb = new int[width * height];
+        int seed = 12345;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                seed = seed * 1103515245 + 12345;
+                int noise = (seed >>> 16) & 0xFF;
+                int base = (x * 255) / Math.max(1, width - 1);
+                int r = (base + noise) & 0xFF;
+                int g = (base * 3 + noise / 2) & 0xFF;
+                int b = (noise * 7 + y) & 0xFF;
+                argb[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        argb[0] = 0xFF000000;
+        argb[argb.length - 1] = 0xFFFFFFFF;
+        return argb;
+    }
+
+    private static GrayImage copy(GrayImage image) {
+        return new GrayImage(image.width, image.height, image.pixels.clone());
+    }
+
+    private static boolean same(GrayImage a, GrayImage b) {
+        int count = a.width * a.height;
+        for (int i = 0; i < count; i++) {
+            if (a.pixels[i] != b.pixels[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,447 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.Arrays;
+
+/**
+ * Fused, pure-Java preprocessing pipelines operating in place on a {@link GrayImage}.
+ *
+ * Each pipeline reproduces one of the chained {@link ImagePreprocessor} variants (contrast,
+ * Otsu, sharpen, CLAHE) on the 8-bit luminance buffer: per-pixel stages are folded into
+ * lookup tables and no full-size intermediates are allocated. Grayscale (and de-yellow) happen
+ * once, when the GrayImage is built from the source pixels.
+ * Color-matrix stages follow the ColorMatrix definition (float multiply-add, clamp to 0..255,
+ * round to nearest), which matches the Canvas path to within one level.
+ *
+ * Every pass is split into row bands by {@link StripedExecutor}: histograms are counted per band
+ * and merged, and the sharpen convolution reads saved halo rows at band edges, so the output is
+ * identical to a single-threaded pass.
+ *
+ * The per-pixel primitives (grayscale, lookup tables, sharpen) go through a
+ * {@link PreprocessBackend}; {@link #JAVA} is the reference implementation of them.
+ */
+final class PreprocessKernels {
+    private PreprocessKernels() {}
+
+    // Adaptive threshold: window side is 1/8 of the longer image side, pixels 15% below the
+    // local mean turn black (Bradley & Roth)
+    static final int ADAPTIVE_WINDOW_DIVISOR = 8;
+    static final int ADAPTIVE_T_PERCENT = 15;
+
+    // CLAHE: tile grid per side and histogram clip limit (multiple of the mean bin height)
+    static final int CLAHE_TILES = 8;
+    static final float CLAHE_CLIP_LIMIT = 3.0f;
+
+    // Contrast stages on an 8-bit gray level
+    private static final byte[] CONTRAST = new byte[256];
+    private static final byte[] ULTRA_CONTRAST = new byte[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            CONTRAST[v] = (byte) matrix(1.5f * v - 64);
+            ULTRA_CONTRAST[v] = (byte) matrix(2.0f * v - 128);
+        }
+    }
+
+    /**
+     * Reference backend: the banded pure-Java primitives.
+     */
+    static final PreprocessBackend JAVA = new PreprocessBackend() {
+        @Override
+        public String name() {
+            return "java";
+        }
+
+        @Override
+        public void gray(int[] argb, boolean deYellow, GrayImage out) {
+            byte[] px = out.pixels;
+            int width = out.width;
+            StripedExecutor.forEachBand(out.height, (band, startRow, endRow) -> {
+                for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                    px[i] = (byte) (deYellow ? GrayImage.deYellowLuma(argb[i]) : GrayImage.luma(argb[i]));
+                }
+            });
+        }
+
+        @Override
+        public void applyTable(GrayImage image, byte[] table) {
+            PreprocessKernels.applyTable(image, table);
+        }
+
+        @Override
+        public int[] mapAndCount(GrayImage image, byte[] table) {
+            return PreprocessKernels.mapAndCount(image, table);
+        }
+
+        @Override
+        public void sharpen(GrayImage image, byte[] table) {
+            PreprocessKernels.sharpen(image, table);
+        }
+    };
+
+    /**
+     * One color-matrix output channel: clamp to 0..255 and round to nearest.
+     */
+    static int matrix(float value) {
+        if (value <= 0f) return 0;
+        if (value >= 255f) return 255;
+        return (int) (value + 0.5f);
+    }
+
+    private static void applyTable(GrayImage image, byte[] table) {
+        byte[] px = image.pixels;
+        int width = image.width;
+        StripedExecutor.forEachBand(image.height, (band, startRow, endRow) -> {
+            for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                px[i] = table[px[i] & 0xFF];
+            }
+        });
+    }
+
+    /**
+     * Map every pixel through {@code table} and count the mapped levels.
+     *
+     * @return Histogram of the image after mapping
+     */
+    private static int[] mapAndCount(GrayImage image, byte[] table) {
+        byte[] px = image.pixels;
+        int width = image.width;
+        int bands = StripedExecutor.bandCount(image.height);
+        int[][] partial = new int[bands][256];
+        StripedExecutor.forEachBand(image.height, bands, (band, startRow, endRow) -> {
+            int[] histogram = partial[band];
+            for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                int v = table[px[i] & 0xFF] & 0xFF;
+                px[i] = (byte) v;
+                histogram[v]++;
+            }
+        });
+        return merge(partial);
+    }
+
+    /**
+     * Sum per-band histograms.
+     */
+    static int[] merge(int[][] partial) {
+        int[] histogram = partial[0];
+        for (int b = 1; b < partial.length; b++) {
+            for (int v = 0; v < 256; v++) {
+                histogram[v] += partial[b][v];
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Contrast and Otsu binarization (classroom variant; the image is already de-yellowed gray).
+     */
+    static void classroom(GrayImage image) {
+        classroom(image, JAVA);
+    }
+
+    static void classroom(GrayImage image, PreprocessBackend backend) {
+        int[] histogram = backend.mapAndCount(image, CONTRAST);
+        int threshold = otsuThreshold(histogram, image.width * image.height);
+        byte[] binarize = new byte[256];
+        for (int v = 0; v < 256; v++) {
+            binarize[v] = (byte) (v < threshold ? 0 : 255);
+        }
+        backend.applyTable(image, binarize);
+    }
+
+    /**
+     * Standard contrast (light variant).
+     */
+    static void light(GrayImage image) {
+        light(image, JAVA);
+    }
+
+    static void light(GrayImage image, PreprocessBackend backend) {
+        backend.applyTable(image, CONTRAST);
+    }
+
+    /**
+     * Ultra contrast (ultra_contrast variant).
+     */
+    static void ultraContrast(GrayImage image) {
+        ultraContrast(image, JAVA);
+    }
+
+    static void ultraContrast(GrayImage image, PreprocessBackend backend) {
+        backend.applyTable(image, ULTRA_CONTRAST);
+    }
+
+    /**
+     * 3x3 sharpen followed by standard contrast (sharpened variant).
+     */
+    static void sharpened(GrayImage image) {
+        sharpened(image, JAVA);
+    }
+
+    static void sharpened(GrayImage image, PreprocessBackend backend) {
+        backend.sharpen(image, CONTRAST);
+    }
+
+    /**
+     * 3x3 sharpen, then {@code table}. Works in place using two saved rows per band; border
+     * pixels are not sharpened.
+     */
+    private static void sharpen(GrayImage image, byte[] table) {
+        int width = image.width;
+        int height = image.height;
+        byte[] px = image.pixels;
+        int bands = StripedExecutor.bandCount(height);
+
+        // Halo rows: the original row above and below each band, saved before any band writes
+        byte[][] above = new byte[bands][];
+        byte[][] below = new byte[bands][];
+        for (int b = 0; b < bands; b++) {
+            int start = StripedExecutor.bandStart(b, bands, height);
+            int end = StripedExecutor.bandStart(b + 1, bands, height);
+            above[b] = new byte[width];
+            if (start > 0) System.arraycopy(px, (start - 1) * width, above[b], 0, width);
+            if (end < height) {
+                below[b] = new byte[width];
+                System.arraycopy(px, end * width, below[b], 0, width);
+            }
+        }
+
+        StripedExecutor.forEachBand(height, bands, (band, startRow, endRow) ->
+                sharpenRows(px, width, height, startRow, endRow, above[band], below[band], table));
+    }
+
+    /**
+     * Sharpen rows [startRow, endRow) and map them through {@code table} in place.
+     *
+     * @param above Original row startRow - 1 (reused as scratch once consumed)
+     * @param below Original row endRow, or null at the bottom of the image
+     */
+    private static void sharpenRows(byte[] px, int width, int height, int startRow, int endRow,
+                                    byte[] above, byte[] below, byte[] table) {
+        // Rows y-1 and y as they were before sharpening; row y+1 is still untouched in px
+        // (or saved in 'below' when it belongs to the next band)
+        byte[] previous = above;
+        byte[] current = new byte[width];
+        for (int y = startRow; y < endRow; y++) {
+            int row = y * width;
+            System.arraycopy(px, row, current, 0, width);
+            boolean border = y == 0 || y == height - 1;
+            byte[] next = y + 1 < endRow ? null : below;
+            int nextRow = row + width;
+            for (int x = 0; x < width; x++) {
+                int v = current[x] & 0xFF;
+                if (!border && x > 0 && x < width - 1) {
+                    int down = next != null ? next[x] & 0xFF : px[nextRow + x] & 0xFF;
+                    int sharp = 5 * v - (previous[x] & 0xFF) - down
+                            - (current[x - 1] & 0xFF) - (current[x + 1] & 0xFF);
+                    v = sharp < 0 ? 0 : (sharp > 255 ? 255 : sharp);
+                }
+                px[row + x] = table[v];
+            }
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    /**
+     * Contrast-limited adaptive histogram equalization (adaptive_histogram variant).
+     * The image is split into a {@link #CLAHE_TILES}x{@link #CLAHE_TILES} grid; each tile gets its
+     * own clipped-histogram lookup table, and every pixel blends the tables of the four nearest
+     * tile centres bilinearly so no tile seams appear. Tile tables are built in parallel, and the
+     * blending pass runs in row bands.
+     */
+    static void adaptiveHistogram(GrayImage image) {
+        int width = image.width;
+        int height = image.height;
+        byte[] px = image.pixels;
+        if (width == 0 || height == 0) return;
+
+        int tilesX = Math.min(CLAHE_TILES, width);
+        int tilesY = Math.min(CLAHE_TILES, height);
+        byte[][] luts = new byte[tilesX * tilesY][];
+
+        // One lookup table per tile, tile rows spread over the cores
+        int bands = Math.min(StripedExecutor.bandCount(height), tilesY);
+        StripedExecutor.forEachBand(tilesY, bands, (band, firstTileRow, endTileRow) -> {
+            int[] histogram = new int[256];
+            for (int ty = firstTileRow; ty < endTileRow; ty++) {
+                int y0 = StripedExecutor.bandStart(ty, tilesY, height);
+                int y1 = StripedExecutor.bandStart(ty + 1, tilesY, height);
+                for (int tx = 0; tx < tilesX; tx++) {
+                    int x0 = StripedExecutor.bandStart(tx, tilesX, width);
+                    int x1 = StripedExecutor.bandStart(tx + 1, tilesX, width);
+                    Arrays.fill(histogram, 0);
+                    for (int y = y0; y < y1; y++) {
+                        for (int i = y * width + x0, end = y * width + x1; i < end; i++) {
+                            histogram[px[i] & 0xFF]++;
+                        }
+                    }
+                    luts[ty * tilesX + tx] = claheLut(histogram, (x1 - x0) * (y1 - y0));
+                }
+            }
+        });
+
+        // Horizontal neighbours and weights are the same for every row
+        int[] left = new int[width];
+        int[] right = new int[width];
+        float[] rightWeight = new float[width];
+        for (int x = 0; x < width; x++) {
+            float gx = (x + 0.5f) * tilesX / width - 0.5f;
+            int t = (int) Math.floor(gx);
+            left[x] = Math.max(0, t);
+            right[x] = Math.min(tilesX - 1, t + 1);
+            rightWeight[x] = Math.max(0f, Math.min(1f, gx - t));
+        }
+
+        StripedExecutor.forEachBand(height, (band, startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                float gy = (y + 0.5f) * tilesY / height - 0.5f;
+                int t = (int) Math.floor(gy);
+                int topRow = Math.max(0, t) * tilesX;
+                int bottomRow = Math.min(tilesY - 1, t + 1) * tilesX;
+                float wy = Math.max(0f, Math.min(1f, gy - t));
+                int row = y * width;
+                for (int x = 0; x < width; x++) {
+                    int v = px[row + x] & 0xFF;
+                    float wx = rightWeight[x];
+                    float top = (1f - wx) * (luts[topRow + left[x]][v] & 0xFF)
+                            + wx * (luts[topRow + right[x]][v] & 0xFF);
+                    float bottom = (1f - wx) * (luts[bottomRow + left[x]][v] & 0xFF)
+                            + wx * (luts[bottomRow + right[x]][v] & 0xFF);
+                    px[row + x] = (byte) (int) ((1f - wy) * top + wy * bottom + 0.5f);
+                }
+            }
+        });
+    }
+
+    /**
+     * Equalization table of one tile: clip the histogram at {@link #CLAHE_CLIP_LIMIT} times the
+     * mean bin height, spread the clipped excess evenly, then scale the CDF to 0..255.
+     * Modifies {@code histogram}.
+     */
+    static byte[] claheLut(int[] histogram, int pixels) {
+        int clip = Math.max(1, (int) (CLAHE_CLIP_LIMIT * pixels / 256));
+        int excess = 0;
+        for (int v = 0; v < 256; v++) {
+            if (histogram[v] > clip) {
+                excess += histogram[v] - clip;
+                histogram[v] = clip;
+            }
+        }
+        int perBin = excess / 256;
+        int residual = excess % 256;
+        for (int v = 0; v < 256; v++) {
+            histogram[v] += perBin;
+        }
+        if (residual > 0) {
+            int step = Math.max(1, 256 / residual);
+            for (int v = 0; v < 256 && residual > 0; v += step, residual--) {
+                histogram[v]++;
+            }
+        }
+
+        byte[] lut = new byte[256];
+        long cdf = 0;
+        for (int v = 0; v < 256; v++) {
+            cdf += histogram[v];
+            lut[v] = (byte) Math.min(255, (cdf * 255 + pixels / 2) / pixels);
+        }
+        return lut;
+    }
+
+    /**
+     * Local mean (Bradley) thresholding over a summed-area table (adaptive_threshold variant).
+     * A pixel turns black when it is more than {@link #ADAPTIVE_T_PERCENT}% darker than the mean
+     * of the window around it, so a shadow over part of the sheet moves the threshold with it.
+     * Every window sum is four table lookups regardless of the window size.
+     */
+    static void adaptiveThreshold(GrayImage image) {
+        adaptiveThreshold(image, BufferPool.NONE);
+    }
+
+    /**
+     * @param pool Supplies the summed-area table
+     */
+    static void adaptiveThreshold(GrayImage image, BufferPool pool) {
+        int width = image.width;
+        int height = image.height;
+        byte[] px = image.pixels;
+        if (width == 0 || height == 0) return;
+
+        // Summed-area table with a zero row/column in front. Entries may wrap past
+        // Integer.MAX_VALUE on huge images; window sums are still exact because each one fits
+        // in an int and two's-complement differences cancel the wrap.
+        int stride = width + 1;
+        int[] integral = pool.acquireInts(stride * (height + 1));
+        try {
+            Arrays.fill(integral, 0, stride, 0);
+            for (int y = 0; y < height; y++) {
+                int rowSum = 0;
+                int row = y * width;
+                int out = (y + 1) * stride;
+                integral[out] = 0;
+                for (int x = 0; x < width; x++) {
+                    rowSum += px[row + x] & 0xFF;
+                    integral[out + x + 1] = integral[out - stride + x + 1] + rowSum;
+                }
+            }
+
+            int half = Math.max(1, Math.max(width, height) / ADAPTIVE_WINDOW_DIVISOR) / 2;
+            StripedExecutor.forEachBand(height, (band, startRow, endRow) -> {
+                for (int y = startRow; y < endRow; y++) {
+                    int y1 = Math.max(0, y - half);
+                    int y2 = Math.min(height - 1, y + half);
+                    int top = y1 * stride;
+                    int bottom = (y2 + 1) * stride;
+                    int row = y * width;
+                    for (int x = 0; x < width; x++) {
+                        int x1 = Math.max(0, x - half);
+                        int x2 = Math.min(width - 1, x + half);
+                        int count = (x2 - x1 + 1) * (y2 - y1 + 1);
+                        int sum = integral[bottom + x2 + 1] - integral[bottom + x1]
+                                - integral[top + x2 + 1] + integral[top + x1];
+                        long scaled = (long) (px[row + x] & 0xFF) * count * 100;
+                        px[row + x] = scaled <= (long) sum * (100 - ADAPTIVE_T_PERCENT) ? 0 : (byte) 255;
+                    }
+                }
+            });
+        } finally {
+            pool.release(integral);
+        }
+    }
+
+    /**
+     * Otsu threshold; maximizes between-class variance.
+     */
+    static int otsuThreshold(int[] histogram, int totalPixels) {
+        float sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += i * histogram[i];
+        }
+
+        float sumB = 0;
+        int wB = 0;
+        int wF;
+        float varMax = 0;
+        int threshold = 0;
+
+        for (int i = 0; i < 256; i++) {
+            wB += histogram[i];
+            if (wB == 0) continue;
+
+            wF = totalPixels - wB;
+            if (wF == 0) break;
+
+            sumB += i * histogram[i];
+            float mB = sumB / wB;
+            float mF = (sum - sumB) / wF;
+
+            float varBetween = (float) wB * wF * (mB - mF) * (mB - mF);
+            if (varBetween > varMax) {
+                varMax = varBetween;
+                threshold = i;
+            }
+        }
+        return threshold;
+    }
+}
@@ -0,0 +1,88 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Reusable preprocessing memory for one OCR session (one {@link OcrProcessor}).
+ * Holds the {@link BufferPool} for gray buffers and kernel scratch, plus idle mutable
+ * ARGB_8888 output bitmaps keyed by size, so the variants of a scan and the pages of a batch
+ * import stop allocating a fresh full-size buffer and bitmap for every variant.
+ */
+public final class PreprocessSession {
+    private static final String TAG = "PreprocessSession";
+
+    private final BufferPool buffers;
+    private final long maxBitmapBytes;
+    private final ArrayDeque<Bitmap> idleBitmaps = new ArrayDeque<>();
+    private long idleBitmapBytes;
+
+    /**
+     * @param maxBytes Memory budget for idle buffers and bitmaps (a quarter goes to buffers)
+     */
+    public PreprocessSession(long maxBytes) {
+        this.buffers = new BufferPool(maxBytes / 4);
+        this.maxBitmapBytes = maxBytes - maxBytes / 4;
+    }
+
+    BufferPool buffers() {
+        return buffers;
+    }
+
+    /**
+     * @return A mutable ARGB_8888 bitmap of exactly this size with undefined contents
+     */
+    Bitmap acquireBitmap(int width, int height) {
+        synchronized (this) {
+            for (Iterator<Bitmap> it = idleBitmaps.iterator(); it.hasNext(); ) {
+                Bitmap bitmap = it.next();
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    it.remove();
+                    idleBitmapBytes -= bitmap.getByteCount();
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Hand back a variant bitmap that is no longer needed. It is kept for reuse when it is a
+     * mutable ARGB_8888 bitmap and fits the budget (oldest idle bitmaps are recycled to make
+     * room), otherwise recycled right away.
+     */
+    public void releaseBitmap(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        if (!bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888
+                || bitmap.getByteCount() > maxBitmapBytes) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            while (idleBitmapBytes + bitmap.getByteCount() > maxBitmapBytes) {
+                Bitmap oldest = idleBitmaps.pollLast();
+                idleBitmapBytes -= oldest.getByteCount();
+                oldest.recycle();
+            }
+            idleBitmaps.push(bitmap);
+            idleBitmapBytes += bitmap.getByteCount();
+        }
+    }
+
+    /**
+     * Recycle idle bitmaps and drop idle buffers. Call when the session ends.
+     */
+    public synchronized void clear() {
+        Log.d(TAG, "Clearing session pools (buffer hits " + buffers.stats() + ", " +
+                idleBitmaps.size() + " idle bitmaps)");
+        for (Bitmap bitmap : idleBitmaps) {
+            bitmap.recycle();
+        }
+        idleBitmaps.clear();
+        idleBitmapBytes = 0;
+        buffers.clear();
+    }
+}
@@ -0,0 +1,149 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits per-pixel kernels into horizontal row bands and runs them across the available cores.
+ *
+ * The calling thread claims bands too, so a kernel always makes progress even when the shared
+ * pool is busy with another variant's bands, and nested calls from a pool thread simply run
+ * inline. Small images (fewer than {@link #MIN_ROWS_PER_BAND} rows per band) are not split.
+ */
+final class StripedExecutor {
+    // Below this many rows a band costs more to hand off than to run
+    static final int MIN_ROWS_PER_BAND = 32;
+
+    private static final int CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    // Band count used instead of the core count when > 0 (tests force splitting on small images)
+    static volatile int bandsOverride = 0;
+
+    private static final ThreadLocal<Boolean> IN_POOL = new ThreadLocal<>();
+    private static volatile ExecutorService pool;
+
+    private StripedExecutor() {}
+
+    /**
+     * Work for the rows [startRow, endRow) of one band.
+     */
+    interface Band {
+        void run(int band, int startRow, int endRow);
+    }
+
+    /**
+     * @param height Image height in rows
+     * @return Number of bands {@link #forEachBand} will split this height into
+     */
+    static int bandCount(int height) {
+        int override = bandsOverride;
+        if (override > 0) {
+            return Math.max(1, Math.min(override, height));
+        }
+        return Math.max(1, Math.min(CORES, height / MIN_ROWS_PER_BAND));
+    }
+
+    /**
+     * Start row of a band; band {@code bands} is the end of the image.
+     */
+    static int bandStart(int band, int bands, int height) {
+        return (int) ((long) height * band / bands);
+    }
+
+    /**
+     * Run {@code work} once per band and wait for all of them.
+     * Exceptions thrown by a band are rethrown on the calling thread.
+     *
+     * @param height Image height in rows
+     * @param bands Band count, normally {@link #bandCount(int)}
+     * @param work Band body; must only write rows of its own band
+     */
+    static void forEachBand(int height, int bands, Band work) {
+        if (bands <= 1 || Boolean.TRUE.equals(IN_POOL.get())) {
+            for (int b = 0; b < bands; b++) {
+                work.run(b, bandStart(b, bands, height), bandStart(b + 1, bands, height));
+            }
+            return;
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(bands);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable claimer = () -> {
+            int b;
+            while ((b = next.getAndIncrement()) < bands) {
+                try {
+                    work.run(b, bandStart(b, bands, height), bandStart(b + 1, bands, height));
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+
+        ExecutorService executor = pool();
+        for (int i = 1; i < bands; i++) {
+            executor.execute(claimer);
+        }
+        claimer.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                // Bands write into the caller's buffer; never return while one is still running
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        if (t != null) throw new IllegalStateException(t);
+    }
+
+    /**
+     * Convenience overload splitting by {@link #bandCount(int)}.
+     */
+    static void forEachBand(int height, Band work) {
+        forEachBand(height, bandCount(height), work);
+    }
+
+    private static ExecutorService pool() {
+        ExecutorService p = pool;
+        if (p == null) {
+            synchronized (StripedExecutor.class) {
+                p = pool;
+                if (p == null) {
+                    // The caller runs one band itself, so CORES - 1 helpers keep every core busy
+                    int threads = Math.max(1, CORES - 1);
+                    AtomicInteger threadCount = new AtomicInteger();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                                Thread t = new Thread(() -> {
+                                    IN_POOL.set(Boolean.TRUE);
+                                    r.run();
+                                }, "preprocess-band-" + threadCount.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            });
+                    executor.allowCoreThreadTimeOut(true);
+                    p = executor;
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+}
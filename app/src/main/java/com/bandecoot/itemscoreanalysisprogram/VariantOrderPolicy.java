@@ -0,0 +1,184 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Learns which preprocessing variant tends to win for each image-quality bucket on this device
+ * and reorders the planned variants so the likely winner runs first (and early-exits sooner).
+ *
+ * Each variant's win rate is a smoothed frequency: the planned position acts as a prior worth
+ * {@link #PRIOR_WEIGHT} scans, so with no history the fixed order is kept, and a variant has to
+ * actually win to move ahead. Counts are halved once a variant has {@link #MAX_TRIALS} trials so
+ * recent sheets (this classroom's lighting and paper) outweigh old ones. Persisted on-device.
+ */
+public final class VariantOrderPolicy {
+    private static final String TAG = "VariantOrderPolicy";
+    private static final String PREFS_NAME = "VariantOrderPolicy";
+    private static final String PREFS_KEY = "stats";
+
+    // Strength of the planned-order prior, in scans
+    static final float PRIOR_WEIGHT = 2f;
+    // Trials after which counts are halved
+    static final int MAX_TRIALS = 40;
+
+    /**
+     * Where the statistics are persisted.
+     */
+    interface Store {
+        String load();
+        void save(String data);
+    }
+
+    private static volatile VariantOrderPolicy shared;
+
+    private final Store store;
+    // bucket -> variant -> {wins, trials}
+    private final Map<String, Map<String, int[]>> stats = new HashMap<>();
+
+    VariantOrderPolicy(Store store) {
+        this.store = store;
+        String data = store.load();
+        if (data != null) {
+            decode(data, stats);
+        }
+    }
+
+    /**
+     * Create the app-wide policy backed by SharedPreferences. Safe to call more than once.
+     */
+    public static void init(Context context) {
+        if (shared != null) return;
+        synchronized (VariantOrderPolicy.class) {
+            if (shared == null) {
+                final SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                shared = new VariantOrderPolicy(new Store() {
+                    @Override
+                    public String load() {
+                        return prefs.getString(PREFS_KEY, null);
+                    }
+
+                    @Override
+                    public void save(String data) {
+                        prefs.edit().putString(PREFS_KEY, data).apply();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * @return The app-wide policy, or null if {@link #init(Context)} has not run (fixed order is used)
+     */
+    public static VariantOrderPolicy getShared() {
+        return shared;
+    }
+
+    /**
+     * Order variants by learned win rate for this bucket.
+     *
+     * @param bucket Image-quality bucket
+     * @param planned Variant names in the fixed priority order
+     * @return The same names, most likely winner first (ties keep the planned order)
+     */
+    public synchronized List<String> order(String bucket, List<String> planned) {
+        Map<String, int[]> counts = stats.get(bucket);
+        final Map<String, Float> rate = new HashMap<>();
+        for (int i = 0; i < planned.size(); i++) {
+            String name = planned.get(i);
+            int[] c = counts != null ? counts.get(name) : null;
+            int wins = c != null ? c[0] : 0;
+            int trials = c != null ? c[1] : 0;
+            // Prior: earlier planned positions are assumed to win more often
+            float prior = 1f / (i + 2);
+            rate.put(name, (wins + PRIOR_WEIGHT * prior) / (trials + PRIOR_WEIGHT));
+        }
+        List<String> ordered = new ArrayList<>(planned);
+        // Stable sort, so equal rates keep the planned order
+        Collections.sort(ordered, (a, b) -> Float.compare(rate.get(b), rate.get(a)));
+        return ordered;
+    }
+
+    /**
+     * Record the outcome of one scan.
+     *
+     * @param bucket Image-quality bucket
+     * @param ran Variants that produced an OCR result, plus a planned leader that pre-scoring
+     *            dropped (counted as a trial without a win)
+     * @param winner Selected variant (should be one of {@code ran})
+     */
+    public synchronized void record(String bucket, List<String> ran, String winner) {
+        Map<String, int[]> counts = stats.get(bucket);
+        if (counts == null) {
+            counts = new HashMap<>();
+            stats.put(bucket, counts);
+        }
+        for (String name : ran) {
+            int[] c = counts.get(name);
+            if (c == null) {
+                c = new int[2];
+                counts.put(name, c);
+            }
+            if (name.equals(winner)) c[0]++;
+            c[1]++;
+            if (c[1] > MAX_TRIALS) {
+                c[0] /= 2;
+                c[1] /= 2;
+            }
+        }
+        try {
+            store.save(encode(stats));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to persist variant statistics", e);
+        }
+    }
+
+    /**
+     * @return {wins, trials} for a variant in a bucket (zeros when unseen)
+     */
+    synchronized int[] counts(String bucket, String variant) {
+        Map<String, int[]> counts = stats.get(bucket);
+        int[] c = counts != null ? counts.get(variant) : null;
+        return c != null ? c.clone() : new int[2];
+    }
+
+    /**
+     * One "bucket \t variant \t wins \t trials" line per entry.
+     */
+    static String encode(Map<String, Map<String, int[]>> stats) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Map<String, int[]>> bucket : stats.entrySet()) {
+            for (Map.Entry<String, int[]> variant : bucket.getValue().entrySet()) {
+                sb.append(bucket.getKey()).append('\t').append(variant.getKey()).append('\t')
+                        .append(variant.getValue()[0]).append('\t').append(variant.getValue()[1]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    static void decode(String data, Map<String, Map<String, int[]>> into) {
+        for (String line : data.split("\n")) {
+            String[] parts = line.split("\t");
+            if (parts.length != 4) continue;
+            try {
+                int wins = Integer.parseInt(parts[2]);
+                int trials = Integer.parseInt(parts[3]);
+                Map<String, int[]> counts = into.get(parts[0]);
+                if (counts == null) {
+                    counts = new HashMap<>();
+                    into.put(parts[0], counts);
+                }
+                counts.put(parts[1], new int[]{wins, trials});
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Skipping malformed statistics line: " + line);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.Arrays;
+
+/**
+ * On-device estimate of how OCR-friendly a preprocessing variant is, computed on a small
+ * thumbnail of the variant so weak variants can be dropped before paying for a Vision call.
+ *
+ * The thumbnail is binarized (Otsu) and scored on four cheap signals:
+ * - foreground ratio: pages of handwriting are mostly background with a few percent ink
+ * - edge density: ink/background transitions per pixel, i.e. how much text-like detail survived
+ * - stroke-width consistency: pen strokes have similar widths; noise and blobs do not
+ * - connected components in the left (question number) column versus the expected count
+ */
+final class VariantPreScorer {
+    // Weights of the individual signals; they sum to 1
+    private static final float WEIGHT_FOREGROUND = 0.2f;
+    private static final float WEIGHT_EDGES = 0.2f;
+    private static final float WEIGHT_STROKES = 0.25f;
+    private static final float WEIGHT_COMPONENTS = 0.35f;
+
+    // Plausible ink coverage of a written answer sheet
+    private static final float MIN_FOREGROUND = 0.02f;
+    private static final float MAX_FOREGROUND = 0.25f;
+
+    // Edge density at which the edge signal saturates
+    private static final float FULL_EDGE_DENSITY = 0.08f;
+
+    // Mean horizontal run above which "strokes" are really blobs (thumbnail pixels)
+    private static final float MAX_STROKE_WIDTH = 8f;
+
+    // Share of the width searched for question numbers, and digit-sized component bounds
+    private static final float NUMBER_COLUMN_FRACTION = 0.25f;
+    private static final int MIN_COMPONENT_AREA = 4;
+    private static final int MAX_COMPONENT_AREA = 400;
+
+    // Expected number-column components are capped; long keys don't fit a thumbnail anyway
+    private static final int MAX_EXPECTED_COMPONENTS = 20;
+
+    private VariantPreScorer() {}
+
+    /**
+     * @param thumbnail Gray thumbnail of the variant
+     * @param expectedAnswers Number of questions in the answer key (0 if unknown)
+     * @return Score in 0..1, higher is more likely to OCR well
+     */
+    static float score(GrayImage thumbnail, int expectedAnswers) {
+        int width = thumbnail.width;
+        int height = thumbnail.height;
+        int count = width * height;
+        if (count == 0) return 0f;
+
+        boolean[] ink = binarize(thumbnail);
+
+        // Foreground ratio, edge transitions and horizontal stroke runs in one pass
+        int foreground = 0;
+        int edges = 0;
+        long runSum = 0;
+        long runSquares = 0;
+        int runs = 0;
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int run = 0;
+            for (int x = 0; x < width; x++) {
+                boolean on = ink[row + x];
+                if (on) {
+                    foreground++;
+                    run++;
+                } else if (run > 0) {
+                    runSum += run;
+                    runSquares += (long) run * run;
+                    runs++;
+                    run = 0;
+                }
+                if (x > 0 && on != ink[row + x - 1]) edges++;
+                if (y > 0 && on != ink[row - width + x]) edges++;
+            }
+            if (run > 0) {
+                runSum += run;
+                runSquares += (long) run * run;
+                runs++;
+            }
+        }
+
+        float foregroundRatio = (float) foreground / count;
+        float foregroundScore;
+        if (foregroundRatio < MIN_FOREGROUND) {
+            foregroundScore = foregroundRatio / MIN_FOREGROUND;
+        } else if (foregroundRatio > MAX_FOREGROUND) {
+            foregroundScore = Math.max(0f, 1f - (foregroundRatio - MAX_FOREGROUND) / MAX_FOREGROUND);
+        } else {
+            foregroundScore = 1f;
+        }
+
+        float edgeScore = Math.min(1f, (float) edges / count / FULL_EDGE_DENSITY);
+
+        float strokeScore = 0f;
+        if (runs > 0) {
+            double mean = (double) runSum / runs;
+            double variance = Math.max(0, (double) runSquares / runs - mean * mean);
+            double cv = Math.sqrt(variance) / mean;
+            strokeScore = (float) (1 / (1 + cv));
+            if (mean > MAX_STROKE_WIDTH) {
+                strokeScore *= MAX_STROKE_WIDTH / (float) mean;
+            }
+        }
+
+        int expected = Math.max(5, Math.min(MAX_EXPECTED_COMPONENTS, expectedAnswers));
+        int components = countDigitComponents(ink, width, height,
+                Math.max(1, Math.round(width * NUMBER_COLUMN_FRACTION)));
+        float componentScore;
+        if (components <= expected) {
+            componentScore = (float) components / expected;
+        } else {
+            // Far more blobs than questions means speckle noise rather than numbers
+            componentScore = Math.max(0f, 1f - (float) (components - expected) / (3 * expected));
+        }
+
+        return WEIGHT_FOREGROUND * foregroundScore + WEIGHT_EDGES * edgeScore
+                + WEIGHT_STROKES * strokeScore + WEIGHT_COMPONENTS * componentScore;
+    }
+
+    /**
+     * Dark pixels up to the Otsu threshold are ink. Images that are already binary keep their split.
+     */
+    private static boolean[] binarize(GrayImage image) {
+        byte[] px = image.pixels;
+        int count = image.width * image.height;
+        int[] histogram = new int[256];
+        for (int i = 0; i < count; i++) {
+            histogram[px[i] & 0xFF]++;
+        }
+        // Otsu's lower class [0, threshold] is ink; a binary image splits exactly at 0
+        int threshold = PreprocessKernels.otsuThreshold(histogram, count);
+        boolean[] ink = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            ink[i] = (px[i] & 0xFF) <= threshold;
+        }
+        return ink;
+    }
+
+    /**
+     * Count 4-connected ink components of digit size whose pixels all lie in columns [0, columnWidth).
+     */
+    static int countDigitComponents(boolean[] ink, int width, int height, int columnWidth) {
+        boolean[] seen = new boolean[ink.length];
+        int[] stack = new int[64];
+        int found = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < columnWidth; x++) {
+                int start = y * width + x;
+                if (!ink[start] || seen[start]) continue;
+
+                int area = 0;
+                boolean inColumn = true;
+                int top = y;
+                int bottom = y;
+                int size = 0;
+                stack[size++] = start;
+                seen[start] = true;
+                while (size > 0) {
+                    int p = stack[--size];
+                    int px = p % width;
+                    int py = p / width;
+                    area++;
+                    if (px >= columnWidth) inColumn = false;
+                    if (py > bottom) bottom = py;
+                    if (py < top) top = py;
+                    if (stack.length < size + 4) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    if (px > 0 && ink[p - 1] && !seen[p - 1]) { seen[p - 1] = true; stack[size++] = p - 1; }
+                    if (px < width - 1 && ink[p + 1] && !seen[p + 1]) { seen[p + 1] = true; stack[size++] = p + 1; }
+                    if (py > 0 && ink[p - width] && !seen[p - width]) { seen[p - width] = true; stack[size++] = p - width; }
+                    if (py < height - 1 && ink[p + width] && !seen[p + width]) { seen[p + width] = true; stack[size++] = p + width; }
+                }
+
+                int componentHeight = bottom - top + 1;
+                if (inColumn && area >= MIN_COMPONENT_AREA && area <= MAX_COMPONENT_AREA
+                        && componentHeight >= 3) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adaptive cut-off: keep every candidate within {@code keepRatio} of the best score, but at
+     * least {@code minK} of them. A clear winner means few Vision calls; a close field keeps more.
+     *
+     * @param scores Pre-scores in candidate order
+     * @return Number of top-scoring candidates to send to Vision
+     */
+    static int adaptiveTopK(float[] scores, int minK, float keepRatio) {
+        if (scores.length <= minK) return scores.length;
+        float best = 0f;
+        for (float score : scores) {
+            best = Math.max(best, score);
+        }
+        int k = 0;
+        for (float score : scores) {
+            if (score >= best * keepRatio) k++;
+        }
+        return Math.max(minK, k);
+    }
+}
@@ -0,0 +1,274 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Batching client for Vision {@code images:annotate}.
+ *
+ * Callers block in {@link #annotate} as if each image were sent on its own. Images arriving within
+ * a short linger window (from concurrent variants, two-column halves or imported pages) are packed
+ * into one request of up to VISION_BATCH_MAX_IMAGES images / VISION_BATCH_MAX_BYTES of payload,
+ * and each response is handed back to the caller that submitted it.
+ */
+public class VisionBatchClient {
+    private static final String TAG = "ISA_VISION_BATCH";
+    // Per-image JSON wrapper around the base64 content ({"image":{"content":""},"features":[...]})
+    private static final int REQUEST_OVERHEAD_BYTES = 128;
+    // Threads that both run the linger timer and execute batch requests (max batches in flight)
+    private static final int SENDER_THREADS = 2;
+
+    private final OkHttpClient httpClient;
+    private final String apiKey;
+    private final int maxImages;
+    private final long maxPayloadBytes;
+    private final long lingerMillis;
+
+    private final Object lock = new Object();
+    private final List<PendingImage> queue = new ArrayList<>();
+    private long queuedBytes;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+    private final ScheduledThreadPoolExecutor sender;
+
+    public VisionBatchClient(OkHttpClient httpClient, String apiKey) {
+        this(httpClient, apiKey, BuildConfig.VISION_BATCH_MAX_IMAGES,
+                BuildConfig.VISION_BATCH_MAX_BYTES, BuildConfig.VISION_BATCH_LINGER_MS);
+    }
+
+    public VisionBatchClient(OkHttpClient httpClient, String apiKey, int maxImages,
+                             long maxPayloadBytes, long lingerMillis) {
+        this.httpClient = httpClient;
+        this.apiKey = apiKey;
+        this.maxImages = Math.max(1, maxImages);
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.lingerMillis = lingerMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = new ScheduledThreadPoolExecutor(SENDER_THREADS, r -> {
+            Thread t = new Thread(r, "vision-batch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.sender.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Handle for one queued image. Cancelling drops the image from the queue if it has not been
+     * sent yet, and releases the waiting caller either way.
+     */
+    public static class PendingImage {
+        final byte[] jpegBytes;
+        final String detectionType;
+        final long payloadBytes;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile String text;
+        private volatile boolean cancelled;
+        private volatile Batch batch;
+
+        PendingImage(byte[] jpegBytes, String detectionType) {
+            this.jpegBytes = jpegBytes;
+            this.detectionType = detectionType;
+            this.payloadBytes = VisionRequestBody.base64Length(jpegBytes.length) + REQUEST_OVERHEAD_BYTES;
+        }
+
+        void complete(String result) {
+            text = result;
+            done.countDown();
+        }
+
+        public void cancel() {
+            cancelled = true;
+            done.countDown();
+            Batch sentIn = batch;
+            if (sentIn != null) sentIn.onMemberCancelled();
+        }
+    }
+
+    /**
+     * One HTTP request carrying several images. The call is aborted once every member is cancelled.
+     */
+    private static class Batch {
+        final List<PendingImage> members;
+        volatile Call call;
+
+        Batch(List<PendingImage> members) {
+            this.members = members;
+        }
+
+        void onMemberCancelled() {
+            for (PendingImage p : members) {
+                if (!p.cancelled) return;
+            }
+            Call c = call;
+            if (c != null) c.cancel();
+        }
+    }
+
+    /**
+     * Queue an image and wait for its text.
+     *
+     * @param jpegBytes Image bytes
+     * @param detectionType DOCUMENT_TEXT_DETECTION or TEXT_DETECTION
+     * @param handle Receives the pending image so another thread can cancel it (may be null)
+     * @return Recognized text, or null on error / cancellation / after {@link #close}
+     */
+    public String annotate(byte[] jpegBytes, String detectionType,
+                           AtomicReference<PendingImage> handle) {
+        PendingImage pending = new PendingImage(jpegBytes, detectionType);
+        if (handle != null) handle.set(pending);
+        try {
+            if (!enqueue(pending)) return null;
+            pending.done.await();
+            return pending.cancelled ? null : pending.text;
+        } catch (InterruptedException e) {
+            pending.cancel();
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (handle != null) handle.set(null);
+        }
+    }
+
+    /**
+     * @return false if the client is closed and the image was not queued
+     */
+    private boolean enqueue(PendingImage pending) {
+        synchronized (lock) {
+            if (closed) return false;
+            queue.add(pending);
+            queuedBytes += pending.payloadBytes;
+            if (queue.size() >= maxImages || queuedBytes >= maxPayloadBytes) {
+                // Full: send right away
+                scheduleFlushLocked(0);
+            } else if (scheduledFlush == null) {
+                scheduleFlushLocked(lingerMillis);
+            }
+            return true;
+        }
+    }
+
+    private void scheduleFlushLocked(long delayMillis) {
+        if (scheduledFlush != null) scheduledFlush.cancel(false);
+        try {
+            scheduledFlush = sender.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Sender already stopped: nothing will ever send the queue, so fail it now
+            scheduledFlush = null;
+            for (PendingImage p : queue) p.complete(null);
+            queue.clear();
+            queuedBytes = 0;
+        }
+    }
+
+    /**
+     * Take up to one batch worth of images off the queue and send it.
+     */
+    private void flush() {
+        List<PendingImage> members = new ArrayList<>();
+        synchronized (lock) {
+            scheduledFlush = null;
+            long bytes = 0;
+            while (!queue.isEmpty() && members.size() < maxImages) {
+                PendingImage next = queue.get(0);
+                // Always take at least one image, even if it alone exceeds the payload cap
+                if (!members.isEmpty() && bytes + next.payloadBytes > maxPayloadBytes) break;
+                queue.remove(0);
+                queuedBytes -= next.payloadBytes;
+                if (next.cancelled) continue;
+                members.add(next);
+                bytes += next.payloadBytes;
+            }
+            if (!queue.isEmpty()) {
+                // Leftovers form the next batch immediately
+                scheduleFlushLocked(0);
+            }
+        }
+        if (!members.isEmpty()) {
+            send(new Batch(members));
+        }
+    }
+
+    private void send(Batch batch) {
+        List<PendingImage> members = batch.members;
+        for (PendingImage p : members) p.batch = batch;
+        Log.d(TAG, "Sending Vision batch of " + members.size() + " image(s)");
+
+        String[] results = new String[members.size()];
+        try {
+            List<byte[]> images = new ArrayList<>(members.size());
+            List<String> detectionTypes = new ArrayList<>(members.size());
+            for (PendingImage p : members) {
+                images.add(p.jpegBytes);
+                detectionTypes.add(p.detectionType);
+            }
+
+            // JPEGs are base64-encoded straight into the connection
+            Request httpReq = new Request.Builder()
+                    .url("https://vision.googleapis.com/v1/images:annotate?key=" + apiKey)
+                    .post(new VisionRequestBody(images, detectionTypes))
+                    .build();
+            Call call = httpClient.newCall(httpReq);
+            batch.call = call;
+            // Members may have been cancelled while the request was being built
+            batch.onMemberCancelled();
+
+            try (Response resp = call.execute()) {
+                if (!resp.isSuccessful()) {
+                    Log.e(TAG, "Vision API error: " + resp.code());
+                } else if (resp.body() != null) {
+                    // Stream-parse: only the text fields are materialized, geometry is skipped
+                    List<String> texts = VisionResponseReader.readTexts(resp.body().charStream());
+                    for (int i = 0; i < texts.size() && i < results.length; i++) {
+                        results[i] = texts.get(i);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Call call = batch.call;
+            if (call == null || !call.isCanceled()) Log.e(TAG, "Vision batch failed", e);
+        } catch (Exception e) {
+            Log.e(TAG, "Vision batch failed", e);
+        } finally {
+            // Fan responses back out; failed or missing entries get null
+            for (int i = 0; i < members.size(); i++) {
+                members.get(i).complete(results[i]);
+            }
+        }
+    }
+
+    /**
+     * Fail any queued images and stop the sender threads. Later calls to {@link #annotate}
+     * return null without queueing.
+     */
+    public void close() {
+        List<PendingImage> dropped;
+        synchronized (lock) {
+            closed = true;
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            queuedBytes = 0;
+        }
+        for (PendingImage p : dropped) p.complete(null);
+        sender.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Vision {@code images:annotate} request body that streams the JSON envelope and base64-encodes
+ * each JPEG straight into the sink. Avoids building the base64 String, the JSONObject tree and
+ * its serialized copy for every upload; the only buffer is a small fixed encode chunk.
+ */
+public class VisionRequestBody extends RequestBody {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private static final byte[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    // Input bytes encoded per chunk (multiple of 3 so only the last chunk needs padding)
+    private static final int CHUNK_INPUT = 3 * 1024;
+
+    private static final byte[] ENVELOPE_START = ascii("{\"requests\":[");
+    private static final byte[] IMAGE_START = ascii("{\"image\":{\"content\":\"");
+    private static final byte[] FEATURE_START = ascii("\"},\"features\":[{\"type\":\"");
+    private static final byte[] FEATURE_END = ascii("\",\"maxResults\":1}]}");
+    private static final byte[] SEPARATOR = ascii(",");
+    private static final byte[] ENVELOPE_END = ascii("]}");
+
+    private final List<byte[]> images;
+    private final List<String> detectionTypes;
+
+    /**
+     * @param images JPEG bytes, one per annotate request
+     * @param detectionTypes Vision feature type for each image (same order as {@code images})
+     */
+    public VisionRequestBody(List<byte[]> images, List<String> detectionTypes) {
+        if (images.size() != detectionTypes.size()) {
+            throw new IllegalArgumentException("images and detectionTypes differ in size");
+        }
+        this.images = images;
+        this.detectionTypes = detectionTypes;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        long length = ENVELOPE_START.length + ENVELOPE_END.length;
+        for (int i = 0; i < images.size(); i++) {
+            if (i > 0) length += SEPARATOR.length;
+            length += IMAGE_START.length + base64Length(images.get(i).length)
+                    + FEATURE_START.length + detectionTypes.get(i).length() + FEATURE_END.length;
+        }
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        writeJson(sink.outputStream());
+    }
+
+    /**
+     * Write the request JSON to {@code out}. Exactly {@link #contentLength()} bytes are written.
+     */
+    void writeJson(OutputStream out) throws IOException {
+        byte[] chunk = new byte[CHUNK_INPUT / 3 * 4];
+        out.write(ENVELOPE_START);
+        for (int i = 0; i < images.size(); i++) {
+            if (i > 0) out.write(SEPARATOR);
+            out.write(IMAGE_START);
+            writeBase64(images.get(i), out, chunk);
+            out.write(FEATURE_START);
+            out.write(ascii(detectionTypes.get(i)));
+            out.write(FEATURE_END);
+        }
+        out.write(ENVELOPE_END);
+        out.flush();
+    }
+
+    /**
+     * Standard base64 with padding and no line breaks (same output as Base64.NO_WRAP).
+     */
+    static void writeBase64(byte[] data, OutputStream out, byte[] chunk) throws IOException {
+        int pos = 0;
+        while (pos < data.length) {
+            int end = Math.min(data.length, pos + CHUNK_INPUT);
+            int o = 0;
+            int i = pos;
+            for (; i + 2 < end; i += 3) {
+                int v = ((data[i] & 0xFF) << 16) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] & 0xFF);
+                chunk[o++] = BASE64_ALPHABET[(v >>> 18) & 0x3F];
+                chunk[o++] = BASE64_ALPHABET[(v >>> 12) & 0x3F];
+                chunk[o++] = BASE64_ALPHABET[(v >>> 6) & 0x3F];
+                chunk[o++] = BASE64_ALPHABET[v & 0x3F];
+            }
+            int remaining = end - i;
+            if (remaining > 0) {
+                // Only possible in the final chunk
+                int v = (data[i] & 0xFF) << 16;
+                if (remaining == 2) v |= (data[i + 1] & 0xFF) << 8;
+                chunk[o++] = BASE64_ALPHABET[(v >>> 18) & 0x3F];
+                chunk[o++] = BASE64_ALPHABET[(v >>> 12) & 0x3F];
+                chunk[o++] = remaining == 2 ? BASE64_ALPHABET[(v >>> 6) & 0x3F] : (byte) '=';
+                chunk[o++] = '=';
+            }
+            out.write(chunk, 0, o);
+            pos = end;
+        }
+    }
+
+    static long base64Length(int inputLength) {
+        return ((inputLength + 2L) / 3L) * 4L;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
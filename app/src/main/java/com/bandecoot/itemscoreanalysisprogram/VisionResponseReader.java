@@ -0,0 +1,115 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for Vision {@code images:annotate} responses.
+ * DOCUMENT_TEXT_DETECTION responses carry page/block/word/symbol geometry that can run to
+ * several MB; this pulls out only {@code fullTextAnnotation.text} (or the first
+ * {@code textAnnotations[].description}) and skips everything else without building a tree.
+ */
+public final class VisionResponseReader {
+    private static final String TAG = "ISA_VISION_NET";
+
+    private VisionResponseReader() {}
+
+    /**
+     * Read the recognized text of every entry in the {@code responses} array.
+     *
+     * @param in Response body character stream (not closed here)
+     * @return One entry per response, in request order; null where the response had an error or no text
+     */
+    public static List<String> readTexts(Reader in) throws IOException {
+        List<String> texts = new ArrayList<>();
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("responses".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    texts.add(readResponse(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return texts;
+    }
+
+    /**
+     * Read one AnnotateImageResponse object.
+     */
+    private static String readResponse(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String fullText = null;
+        String firstDescription = null;
+        boolean hasError = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("fullTextAnnotation".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                fullText = readStringField(reader, "text");
+                if (fullText == null) fullText = "";
+            } else if ("textAnnotations".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    // The first annotation holds the whole text; the rest are individual words
+                    firstDescription = reader.peek() == JsonToken.BEGIN_OBJECT
+                            ? readStringField(reader, "description") : skip(reader);
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            } else if ("error".equals(name)) {
+                hasError = true;
+                reader.skipValue();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (hasError) {
+            Log.e(TAG, "Vision returned an error for an image");
+            return null;
+        }
+        return fullText != null ? fullText : firstDescription;
+    }
+
+    /**
+     * Read a single string field from the current object, skipping all other fields.
+     */
+    private static String readStringField(JsonReader reader, String field) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (field.equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                value = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    private static String skip(JsonReader reader) throws IOException {
+        reader.skipValue();
+        return null;
+    }
+}
@@ -8,6 +8,7 @@ import android.util.Base64;
 import android.util.Log;
 
 import com.bandecoot.itemscoreanalysisprogram.BuildConfig;
+import com.bandecoot.itemscoreanalysisprogram.HttpClientProvider;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -30,7 +31,7 @@ public class CloudVisionOcrEngine implements OcrEngine {
     private static final String TAG = "CloudVisionOcrEngine";
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private final Executor executor = Executors.newSingleThreadExecutor();
-    private final OkHttpClient client = new OkHttpClient();
+    private final OkHttpClient client = HttpClientProvider.get();
 
     @Override public String name() { return "Cloud Vision"; }
 
@@ -8,17 +8,20 @@ import android.util.Log;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import com.bandecoot.itemscoreanalysisprogram.HttpClientProvider;
+
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
 /**
  * Simple OCR.Space engine implementation for the app's OcrEngine interface.
- * Uses HttpURLConnection and sends the image as x-www-form-urlencoded base64Image parameter.
+ * Uses the shared OkHttp client and sends the image as x-www-form-urlencoded base64Image parameter.
  *
  * Note: keep your OCR_SPACE_API_KEY out of source control (use local.properties -> BuildConfig).
  */
@@ -26,6 +29,7 @@ public class OcrSpaceEngine implements OcrEngine {
     private static final String TAG = "OcrSpaceEngine";
     private final Executor executor = Executors.newSingleThreadExecutor();
     private final android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
+    private final OkHttpClient client = HttpClientProvider.get();
     private final String apiKey;
     private final String endpoint;
 
@@ -45,7 +49,6 @@ public class OcrSpaceEngine implements OcrEngine {
     public void recognize(Context ctx, Bitmap bitmap, Callback cb) {
         if (bitmap == null) { postError(cb, new IllegalArgumentException("Bitmap is null")); return; }
         executor.execute(() -> {
-            HttpURLConnection conn = null;
             try {
                 java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
                 bitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos);
@@ -55,34 +58,26 @@ public class OcrSpaceEngine implements OcrEngine {
                         + "&language=eng"
                         + "&isOverlayRequired=false";
 
-                URL url = new URL(endpoint);
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setConnectTimeout(20000);
-                conn.setReadTimeout(60000);
-                conn.setRequestMethod("POST");
-                conn.setDoOutput(true);
-                conn.setRequestProperty("apikey", apiKey);
-                conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-
-                byte[] out = body.getBytes("UTF-8");
-                conn.setFixedLengthStreamingMode(out.length);
-                try (OutputStream os = conn.getOutputStream()) { os.write(out); }
-
-                int code = conn.getResponseCode();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(
-                        code >= 200 && code < 300 ? conn.getInputStream() : conn.getErrorStream()
-                ));
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) sb.append(line);
-                reader.close();
+                Request request = new Request.Builder()
+                        .url(endpoint)
+                        .post(RequestBody.create(body,
+                                MediaType.parse("application/x-www-form-urlencoded; charset=UTF-8")))
+                        .addHeader("apikey", apiKey)
+                        .build();
+
+                String respStr;
+                int code;
+                try (Response resp = client.newCall(request).execute()) {
+                    code = resp.code();
+                    respStr = resp.body() != null ? resp.body().string() : "";
+                }
 
                 if (code < 200 || code >= 300) {
-                    postError(cb, new RuntimeException("OCR.Space returned " + code + ": " + sb.toString()));
+                    postError(cb, new RuntimeException("OCR.Space returned " + code + ": " + respStr));
                     return;
                 }
 
-                JSONObject root = new JSONObject(sb.toString());
+                JSONObject root = new JSONObject(respStr);
                 JSONArray parsed = root.optJSONArray("ParsedResults");
                 String text = "";
                 if (parsed != null && parsed.length() > 0) {
@@ -93,8 +88,6 @@ public class OcrSpaceEngine implements OcrEngine {
             } catch (Exception e) {
                 Log.e(TAG, "ocrspace failed", e);
                 postError(cb, e instanceof Exception ? (Exception) e : new RuntimeException(e));
-            } finally {
-                if (conn != null) try { conn.disconnect(); } catch (Throwable ignored) {}
             }
         });
     }
@@ -0,0 +1,158 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class AnswerSheetLexerTest {
+
+    // The regular expressions the item shapes replace, as the parser used them
+    private static final String ANSWER = "([\\p{L}][\\p{L}\\p{N}''\\-]{0,39})";
+    private static final Pattern NUMBER_FIRST = Pattern.compile(
+            "^\\s*(\\d{1,3})\\s*[.):)\\-:,]?\\s*" + ANSWER + "\\b");
+    private static final Pattern ANSWER_FIRST = Pattern.compile(
+            "^\\s*" + ANSWER + "\\b[\\s.,;:!?\\-]{0,3}(\\d{1,3})[.):)]?\\s*$");
+    private static final Pattern NUMBER_ONLY = Pattern.compile("^\\s*(\\d{1,3})\\s*[.):)]?\\s*$");
+    private static final Pattern COMPRESSED_ITEM = Pattern.compile(
+            "\\s*(\\d{1,3})\\s*[.):)\\-:,]?\\s*" + ANSWER);
+    private static final Pattern ANSWER_TOKEN = Pattern.compile("\\b" + ANSWER + "\\b");
+    private static final Pattern MULTI_ITEM_SPLIT = Pattern.compile(
+            "(?<=[\\p{L}\\p{N}''\\-])(?=[\\s.]*\\d{1,3}[.):)]?[\\s-:]*[\\p{L}])");
+    private static final Pattern LEADING_NUMBER = Pattern.compile(
+            "^\\s*(\\d{1,3})\\s*[.):)]?\\s*[-:]?\\s*(.*)$");
+    private static final Pattern NUMBERED_ANSWER = Pattern.compile(
+            "^\\s*(\\d{1,3})\\s*[.):)]?\\s*[-:]?\\s*" + ANSWER + "\\b");
+    private static final Pattern ANSWER_NUMBERED = Pattern.compile(
+            "^\\s*" + ANSWER + "\\s+(\\d{1,3})\\s*[.):)]?");
+    private static final Pattern NUMBERING_PREFIX = Pattern.compile("^\\s*\\d{1,3}\\s*[.):)]?\\s*[-:]?\\s*");
+
+    // Pieces of random lines (no \n: lines never hold one), including surrogates, combining
+    // marks, non-ASCII numbers and answers longer than 40 characters
+    private static final String[] PIECES = {
+        "1", "12", "123", "1234", "0", "7", "A", "b", "x", "iv", "XII", "True", "don't", "x-ray",
+        "\u00E9", "e\u0301", "\u0301", "_", " ", "  ", "\t", "\u000B", "\f", ".", ")", ":", "-",
+        ",", "!", "?", ";", "'", "(", "\u2028", "\u0085", "\r", "\u0660", "\u217B", "\u00B2", "\u03A9",
+        "\uD835\uDC00", "\uD83D\uDE00", "\uD835", "Photosynthesis",
+        "Abcdefghijabcdefghijabcdefghijabcdefghij12", "1.A2.B3.C", "5)", "9:", "A 1."
+    };
+
+    private static String randomLine(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int count = random.nextInt(9);
+        for (int i = 0; i < count; i++) {
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String item(AnswerSheetLexer.Item item) {
+        return item == null ? null : item.number + "=" + item.answer;
+    }
+
+    private static String item(Matcher m, int numberGroup, int answerGroup) {
+        return m.find() ? Integer.parseInt(m.group(numberGroup)) + "=" + m.group(answerGroup) : null;
+    }
+
+    private static String strings(List<AnswerSheetLexer.Line> lines) {
+        List<String> out = new ArrayList<>();
+        for (AnswerSheetLexer.Line line : lines) {
+            out.add(line.toString());
+        }
+        return out.toString();
+    }
+
+    private static void assertSameAsRegex(String s, AnswerSheetLexer.Line line) {
+        String where = "\"" + s + "\"";
+        assertEquals(where, item(NUMBER_FIRST.matcher(s), 1, 2), item(AnswerSheetLexer.numberFirst(line)));
+        assertEquals(where, item(ANSWER_FIRST.matcher(s), 2, 1), item(AnswerSheetLexer.answerFirst(line)));
+        assertEquals(where, item(NUMBERED_ANSWER.matcher(s), 1, 2), item(AnswerSheetLexer.numberedAnswer(line)));
+        assertEquals(where, item(ANSWER_NUMBERED.matcher(s), 2, 1), item(AnswerSheetLexer.answerNumbered(line)));
+        assertEquals(where, item(LEADING_NUMBER.matcher(s), 1, 2), item(AnswerSheetLexer.leadingNumber(line)));
+
+        Matcher numberOnly = NUMBER_ONLY.matcher(s);
+        assertEquals(where, numberOnly.find() ? Integer.parseInt(numberOnly.group(1)) : -1,
+                AnswerSheetLexer.numberOnly(line));
+
+        Matcher token = ANSWER_TOKEN.matcher(s);
+        assertEquals(where, token.find() ? token.group(1) : null, AnswerSheetLexer.firstAnswer(line));
+
+        List<String> compressed = new ArrayList<>();
+        Matcher items = COMPRESSED_ITEM.matcher(s);
+        while (items.find()) {
+            compressed.add(items.group().trim());
+        }
+        assertEquals(where, compressed.toString(), strings(AnswerSheetLexer.compressedItems(line)));
+
+        List<String> parts = new ArrayList<>();
+        for (String part : MULTI_ITEM_SPLIT.split(s)) {
+            parts.add(part);
+        }
+        assertEquals(where, parts.toString(), strings(AnswerSheetLexer.splitItems(line)));
+
+        Matcher prefix = NUMBERING_PREFIX.matcher(s);
+        assertEquals(where, prefix.find() ? prefix.end() : 0, AnswerSheetLexer.numberingEnd(line) - line.start);
+    }
+
+    @Test
+    public void lex_tokenKinds() {
+        String text = "12. True-ish x\tIV\n3)B7";
+        List<AnswerSheetLexer.Token> tokens = AnswerSheetLexer.lex(text);
+        assertEquals("[NUMBER[0,2), SEPARATOR[2,3), WORD[4,12), ROMAN[13,14), ROMAN[15,17), NEWLINE[17,18),"
+                + " NUMBER[18,19), SEPARATOR[19,20), WORD[20,21), NUMBER[21,22)]", tokens.toString());
+    }
+
+    @Test
+    public void lex_wordKeepsApostropheHyphenAndNonAsciiNumbers() {
+        List<AnswerSheetLexer.Token> tokens = AnswerSheetLexer.lex("don't x-ray a\u00B2 -b");
+        assertEquals("[WORD[0,5), WORD[6,11), WORD[12,14), SEPARATOR[15,16), WORD[16,17)]", tokens.toString());
+    }
+
+    @Test
+    public void lines_cutAtNewlines() {
+        List<AnswerSheetLexer.Line> lines = AnswerSheetLexer.lines("1. A\n\n2) B");
+        assertEquals("[1. A, , 2) B]", strings(lines));
+        assertEquals(3, lines.get(0).tokens.size());
+        assertEquals(0, lines.get(1).tokens.size());
+        assertEquals(3, lines.get(2).tokens.size());
+    }
+
+    @Test
+    public void itemShapes_onTypicalLines() {
+        assertEquals("1=A", item(AnswerSheetLexer.numberFirst(AnswerSheetLexer.line("1.A"))));
+        assertEquals("12=Photosynthesis",
+                item(AnswerSheetLexer.numberedAnswer(AnswerSheetLexer.line("12) - Photosynthesis"))));
+        assertEquals("3=True", item(AnswerSheetLexer.answerFirst(AnswerSheetLexer.line("True 3."))));
+        assertEquals("4=FALSE", item(AnswerSheetLexer.answerNumbered(AnswerSheetLexer.line("FALSE 4) x"))));
+        assertEquals(5, AnswerSheetLexer.numberOnly(AnswerSheetLexer.line("5.")));
+        assertNull(AnswerSheetLexer.numberFirst(AnswerSheetLexer.line("1234.A")));
+        assertEquals("[1.A, 3.Z, 5.C]",
+                strings(AnswerSheetLexer.compressedItems(AnswerSheetLexer.line("1.A  3.Z  5.C"))));
+        // Answers may hold digits, so "A2" is one answer
+        assertEquals("[1.A2, 3.C]",
+                strings(AnswerSheetLexer.compressedItems(AnswerSheetLexer.line("1.A2.B3.C"))));
+        assertEquals("[1. A,  2. B]", strings(AnswerSheetLexer.splitItems(AnswerSheetLexer.line("1. A 2. B"))));
+    }
+
+    @Test
+    public void itemShapes_matchRegexOnRandomLines() {
+        Random random = new Random(2024);
+        for (int i = 0; i < 20000; i++) {
+            String s = randomLine(random);
+            AnswerSheetLexer.Line line = AnswerSheetLexer.line(s);
+            assertSameAsRegex(s, line);
+
+            // Views inside a longer line must not see past their edges
+            int from = s.isEmpty() ? 0 : random.nextInt(s.length() + 1);
+            int to = from + random.nextInt(s.length() - from + 1);
+            assertSameAsRegex(s.substring(from, to), line.sub(from, to));
+            assertSameAsRegex(s.trim(), line.trim());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void bucketSize_roundsUpWithBoundedWaste() {
+        assertEquals(64, BufferPool.bucketSize(1));
+        assertEquals(64, BufferPool.bucketSize(64));
+        assertEquals(72, BufferPool.bucketSize(65));
+        assertEquals(1 << 20, BufferPool.bucketSize(1 << 20));
+        for (int length : new int[]{100, 1000, 2048 * 1536, 2049 * 1537, 3_000_001}) {
+            int size = BufferPool.bucketSize(length);
+            assertTrue(size >= length);
+            assertTrue("waste for " + length, size <= length + length / 8 + 1);
+            assertEquals(size, BufferPool.bucketSize(size));
+        }
+    }
+
+    @Test
+    public void releasedBuffer_isReusedForSameBucket() {
+        BufferPool pool = new BufferPool(1 << 20);
+        byte[] first = pool.acquireBytes(1000);
+        pool.release(first);
+        assertSame(first, pool.acquireBytes(990));
+        assertEquals(0, pool.retainedBytes());
+
+        int[] ints = pool.acquireInts(5000);
+        pool.release(ints);
+        assertEquals(4L * ints.length, pool.retainedBytes());
+        assertSame(ints, pool.acquireInts(5000));
+        assertEquals("2/4", pool.stats());
+    }
+
+    @Test
+    public void release_respectsByteLimitAndIgnoresForeignArrays() {
+        BufferPool pool = new BufferPool(1024);
+        byte[] big = pool.acquireBytes(2000);
+        pool.release(big);
+        assertEquals(0, pool.retainedBytes());
+        assertNotSame(big, pool.acquireBytes(2000));
+
+        // Not a bucket size, so it cannot have come from a pool
+        pool.release(new byte[100]);
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @Test
+    public void none_neverRetains() {
+        byte[] buffer = BufferPool.NONE.acquireBytes(64);
+        BufferPool.NONE.release(buffer);
+        assertEquals(0, BufferPool.NONE.retainedBytes());
+    }
+
+    @Test
+    public void pooledScratch_givesSameResultAsFreshScratch() {
+        BufferPool pool = new BufferPool(1 << 20);
+        // Dirty the pooled table so a missing reset would show up
+        int[] dirty = pool.acquireInts(41 * 31);
+        Arrays.fill(dirty, 12345);
+        pool.release(dirty);
+
+        GrayImage fresh = new GrayImage(40, 30);
+        for (int i = 0; i < fresh.pixels.length; i++) fresh.pixels[i] = (byte) (i * 37);
+        GrayImage pooled = new GrayImage(40, 30, fresh.pixels.clone());
+        PreprocessKernels.adaptiveThreshold(fresh);
+        PreprocessKernels.adaptiveThreshold(pooled, pool);
+        assertArrayEquals(fresh.pixels, pooled.pixels);
+    }
+}
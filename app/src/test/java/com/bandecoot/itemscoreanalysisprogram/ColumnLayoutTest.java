@@ -0,0 +1,128 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ColumnLayoutTest {
+
+    private static final byte PAPER = (byte) 235;
+    private static final byte INK = (byte) 30;
+
+    private static GrayImage page(int width, int height) {
+        GrayImage image = new GrayImage(width, height);
+        Arrays.fill(image.pixels, PAPER);
+        return image;
+    }
+
+    private static void fill(GrayImage image, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                image.pixels[y * image.width + x] = INK;
+            }
+        }
+    }
+
+    /**
+     * Handwriting-like lines of "words" between x0 and x1, from y0 to y1.
+     */
+    private static void text(GrayImage image, int x0, int x1, int y0, int y1) {
+        for (int y = y0; y + 4 <= y1; y += 12) {
+            for (int x = x0; x + 6 <= x1; x += 9) {
+                fill(image, x, y, x + 6, y + 4);
+            }
+        }
+    }
+
+    @Test
+    public void singleColumn_isCroppedTight() {
+        GrayImage image = page(400, 300);
+        text(image, 60, 340, 40, 260);
+        ColumnLayout layout = ColumnLayout.detect(image);
+        assertEquals(1, layout.columns.size());
+        ColumnLayout.Column column = layout.columns.get(0);
+        // 1% margin of the longer side (4 px) around the ink
+        assertEquals(56, column.left);
+        assertEquals(36, column.top);
+        assertTrue(column.right >= 335 && column.right <= 344);
+        assertTrue(column.bottom >= 252 && column.bottom <= 264);
+    }
+
+    @Test
+    public void twoColumns_withSpanningTitle() {
+        GrayImage image = page(400, 300);
+        fill(image, 40, 10, 360, 16);
+        text(image, 20, 180, 30, 290);
+        text(image, 220, 380, 30, 290);
+        ColumnLayout layout = ColumnLayout.detect(image);
+        assertEquals(2, layout.columns.size());
+        ColumnLayout.Column left = layout.columns.get(0);
+        ColumnLayout.Column right = layout.columns.get(1);
+        assertTrue(left.toString(), left.right >= 176 && left.right <= 200);
+        assertTrue(right.toString(), right.left >= 200 && right.left <= 220);
+        assertTrue(left.left <= 20 && right.right >= 377);
+    }
+
+    @Test
+    public void threeColumns() {
+        GrayImage image = page(600, 300);
+        text(image, 20, 170, 20, 280);
+        text(image, 220, 370, 20, 280);
+        text(image, 420, 580, 20, 280);
+        ColumnLayout layout = ColumnLayout.detect(image);
+        assertEquals(3, layout.columns.size());
+        for (int c = 1; c < 3; c++) {
+            assertTrue(layout.columns.get(c - 1).right <= layout.columns.get(c).left);
+        }
+    }
+
+    @Test
+    public void fourColumns_areCappedAtThree() {
+        GrayImage image = page(800, 300);
+        for (int c = 0; c < 4; c++) {
+            text(image, 20 + c * 200, 160 + c * 200, 20, 280);
+        }
+        assertEquals(ColumnLayout.MAX_COLUMNS, ColumnLayout.detect(image).columns.size());
+    }
+
+    @Test
+    public void narrowGap_betweenWords_isNotAGutter() {
+        GrayImage image = page(400, 300);
+        // Question numbers followed by answers with a small, consistent gap
+        text(image, 30, 60, 20, 280);
+        text(image, 66, 370, 20, 280);
+        assertEquals(1, ColumnLayout.detect(image).columns.size());
+    }
+
+    @Test
+    public void sliverColumn_isMerged() {
+        GrayImage image = page(400, 300);
+        text(image, 20, 350, 20, 280);
+        // Page-number strip at the far right, separated by a gap
+        text(image, 375, 385, 20, 280);
+        assertEquals(1, ColumnLayout.detect(image).columns.size());
+    }
+
+    @Test
+    public void blankPage_isOneFullColumn() {
+        ColumnLayout layout = ColumnLayout.detect(page(200, 100));
+        assertEquals(1, layout.columns.size());
+        ColumnLayout.Column column = layout.columns.get(0);
+        assertEquals(0, column.left);
+        assertEquals(0, column.top);
+        assertEquals(200, column.right);
+        assertEquals(100, column.bottom);
+    }
+
+    @Test
+    public void scale_mapsOutwardAndClamps() {
+        ColumnLayout.Column column = new ColumnLayout.Column(3, 5, 97, 100).scale(4.1f, 400, 400);
+        assertEquals(12, column.left);
+        assertEquals(20, column.top);
+        assertEquals(398, column.right);
+        assertEquals(400, column.bottom);
+    }
+}
@@ -0,0 +1,150 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ImageStatsTest {
+
+    private static GrayImage randomGrid(int width, int height, long seed) {
+        Random random = new Random(seed);
+        GrayImage grid = new GrayImage(width, height);
+        random.nextBytes(grid.pixels);
+        return grid;
+    }
+
+    @Test
+    public void measure_matchesTwoPassComputation() {
+        GrayImage grid = randomGrid(23, 17, 3);
+        int count = grid.width * grid.height;
+
+        double mean = 0;
+        for (int i = 0; i < count; i++) mean += grid.pixels[i] & 0xFF;
+        mean /= count;
+        double variance = 0;
+        for (int i = 0; i < count; i++) {
+            double d = (grid.pixels[i] & 0xFF) - mean;
+            variance += d * d;
+        }
+        variance /= count;
+
+        int lapCount = (grid.width - 2) * (grid.height - 2);
+        double[] laps = new double[lapCount];
+        double lapMean = 0;
+        int n = 0;
+        for (int y = 1; y < grid.height - 1; y++) {
+            for (int x = 1; x < grid.width - 1; x++) {
+                laps[n] = grid.get(x - 1, y) + grid.get(x + 1, y) + grid.get(x, y - 1)
+                        + grid.get(x, y + 1) - 4 * grid.get(x, y);
+                lapMean += laps[n++];
+            }
+        }
+        lapMean /= lapCount;
+        double lapVariance = 0;
+        for (double lap : laps) lapVariance += (lap - lapMean) * (lap - lapMean);
+        lapVariance /= lapCount;
+
+        ImageStats stats = ImageStats.measure(grid);
+        assertEquals(mean, stats.mean, 1e-3);
+        assertEquals(Math.sqrt(variance), stats.stdDev, 1e-3);
+        assertEquals(lapVariance, stats.laplacianVariance, 1e-1);
+    }
+
+    @Test
+    public void measure_flatGridHasNoContrastOrEdges() {
+        GrayImage grid = new GrayImage(10, 10);
+        Arrays.fill(grid.pixels, (byte) 200);
+        ImageStats stats = ImageStats.measure(grid);
+        assertEquals(200f, stats.mean, 0f);
+        assertEquals(0f, stats.stdDev, 0f);
+        assertEquals(0f, stats.laplacianVariance, 0f);
+    }
+
+    @Test
+    public void measure_blurLowersLaplacianVariance() {
+        GrayImage sharp = randomGrid(40, 40, 9);
+        GrayImage blurred = new GrayImage(40, 40);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 40; x++) {
+                int sum = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        sum += sharp.get(Math.max(0, Math.min(39, x + dx)), Math.max(0, Math.min(39, y + dy)));
+                    }
+                }
+                blurred.pixels[y * 40 + x] = (byte) (sum / 9);
+            }
+        }
+        assertTrue(ImageStats.measure(blurred).laplacianVariance
+                < ImageStats.measure(sharp).laplacianVariance / 4);
+    }
+
+    @Test
+    public void measure_tinyGridsHaveNoLaplacian() {
+        assertEquals(0f, ImageStats.measure(randomGrid(2, 5, 1)).laplacianVariance, 0f);
+        assertEquals(0f, ImageStats.measure(new GrayImage(0, 0)).mean, 0f);
+    }
+
+    /** Paper with slight noise and lines of 3-pixel dark pen strokes. */
+    private static GrayImage strokePage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        GrayImage page = new GrayImage(width, height);
+        for (int i = 0; i < width * height; i++) {
+            page.pixels[i] = (byte) (215 + random.nextInt(11));
+        }
+        for (int top = 80; top < height - 100; top += 60) {
+            for (int x0 = 60; x0 < width - 80; x0 += 24 + random.nextInt(20)) {
+                int length = 8 + random.nextInt(20);
+                boolean vertical = random.nextBoolean();
+                for (int t = 0; t < length; t++) {
+                    for (int k = 0; k < 3; k++) {
+                        int x = vertical ? x0 + k : x0 + t;
+                        int y = vertical ? top + t : top + 10 + k;
+                        page.pixels[y * width + x] = (byte) (35 + random.nextInt(20));
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    /** Mean over a (2 * radius + 1) square window, clamped at the edges. */
+    private static GrayImage boxBlur(GrayImage src, int radius) {
+        GrayImage out = new GrayImage(src.width, src.height);
+        for (int y = 0; y < src.height; y++) {
+            for (int x = 0; x < src.width; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        int sx = Math.max(0, Math.min(src.width - 1, x + dx));
+                        int sy = Math.max(0, Math.min(src.height - 1, y + dy));
+                        sum += src.get(sx, sy);
+                        count++;
+                    }
+                }
+                out.pixels[y * src.width + x] = (byte) (sum / count);
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void measure_sampledPageSeparatesBlurredFromSharp() {
+        // Sampled like analyzeImageQuality: about 100 samples across
+        int width = 1024, height = 1365, step = width / 100;
+        GrayImage sharp = strokePage(width, height, 7);
+
+        ImageStats sharpStats = ImageStats.measure(sharp, step);
+        assertFalse("sharp: " + sharpStats.laplacianVariance, sharpStats.isBlurry());
+        for (int radius = 1; radius <= 2; radius++) {
+            ImageStats blurred = ImageStats.measure(boxBlur(sharp, radius), step);
+            assertTrue("radius " + radius + ": " + blurred.laplacianVariance, blurred.isBlurry());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OcrResultCacheTest {
+
+    private static final long ONE_HOUR = 60L * 60L * 1000L;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("ocr_cache_test").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    private static String key(String seed, String detectionType) {
+        return OcrResultCache.key(seed.getBytes(StandardCharsets.UTF_8), detectionType);
+    }
+
+    @Test
+    public void putThenGet_returnsTextAndCountsHitsAndMisses() {
+        OcrResultCache cache = new OcrResultCache(dir, 1024 * 1024, ONE_HOUR);
+
+        assertNull(cache.get(key("sheet-1", "DOCUMENT_TEXT_DETECTION")));
+        cache.put(key("sheet-1", "DOCUMENT_TEXT_DETECTION"), "1. A\n2. B");
+
+        assertEquals("1. A\n2. B", cache.get(key("sheet-1", "DOCUMENT_TEXT_DETECTION")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void detectionModeIsPartOfKey() {
+        OcrResultCache cache = new OcrResultCache(dir, 1024 * 1024, ONE_HOUR);
+        cache.put(key("sheet-1", "DOCUMENT_TEXT_DETECTION"), "document");
+
+        assertNull(cache.get(key("sheet-1", "TEXT_DETECTION")));
+        assertEquals("document", cache.get(key("sheet-1", "DOCUMENT_TEXT_DETECTION")));
+    }
+
+    @Test
+    public void emptyTextIsNotCached() {
+        OcrResultCache cache = new OcrResultCache(dir, 1024 * 1024, ONE_HOUR);
+        cache.put(key("sheet-1", "DOCUMENT_TEXT_DETECTION"), "");
+        cache.put(key("sheet-2", "DOCUMENT_TEXT_DETECTION"), null);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void sizeCap_evictsLeastRecentlyUsed() {
+        // Room for two 10-byte entries
+        OcrResultCache cache = new OcrResultCache(dir, 25, ONE_HOUR);
+        cache.put(key("a", "DOCUMENT_TEXT_DETECTION"), "aaaaaaaaaa");
+        cache.put(key("b", "DOCUMENT_TEXT_DETECTION"), "bbbbbbbbbb");
+
+        // Touch "a" so "b" becomes the eviction candidate
+        assertEquals("aaaaaaaaaa", cache.get(key("a", "DOCUMENT_TEXT_DETECTION")));
+        cache.put(key("c", "DOCUMENT_TEXT_DETECTION"), "cccccccccc");
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.sizeBytes() <= 25);
+        assertNull(cache.get(key("b", "DOCUMENT_TEXT_DETECTION")));
+        assertEquals("aaaaaaaaaa", cache.get(key("a", "DOCUMENT_TEXT_DETECTION")));
+        assertEquals("cccccccccc", cache.get(key("c", "DOCUMENT_TEXT_DETECTION")));
+    }
+
+    @Test
+    public void expiredEntry_isMissAndDeleted() {
+        OcrResultCache cache = new OcrResultCache(dir, 1024 * 1024, ONE_HOUR);
+        cache.put(key("old", "DOCUMENT_TEXT_DETECTION"), "stale");
+
+        File entry = new File(dir, key("old", "DOCUMENT_TEXT_DETECTION"));
+        assertTrue(entry.setLastModified(System.currentTimeMillis() - 2 * ONE_HOUR));
+
+        assertNull(cache.get(key("old", "DOCUMENT_TEXT_DETECTION")));
+        assertEquals(0, cache.size());
+        assertTrue(!entry.exists());
+    }
+
+    @Test
+    public void entriesSurviveReopen() {
+        new OcrResultCache(dir, 1024 * 1024, ONE_HOUR)
+                .put(key("sheet-1", "TEXT_DETECTION"), "persisted");
+
+        OcrResultCache reopened = new OcrResultCache(dir, 1024 * 1024, ONE_HOUR);
+        assertEquals(1, reopened.size());
+        assertEquals("persisted", reopened.get(key("sheet-1", "TEXT_DETECTION")));
+    }
+
+    @Test
+    public void concurrentPutsOfSameKey_leaveOneReadableEntry() throws Exception {
+        OcrResultCache cache = new OcrResultCache(dir, 1024 * 1024, ONE_HOUR);
+        String key = key("sheet-1", "DOCUMENT_TEXT_DETECTION");
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    cache.put(key, "1. A\n2. B");
+                    cache.get(key);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, cache.size());
+        assertEquals(9, cache.sizeBytes());
+        assertEquals("1. A\n2. B", cache.get(key));
+        assertEquals(1, dir.listFiles().length);
+    }
+}
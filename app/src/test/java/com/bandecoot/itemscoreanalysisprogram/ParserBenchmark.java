@@ -0,0 +1,34 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Timing harness for the answer-key parser. Not part of the unit suite; remove the
+ * {@code @Ignore} locally to run it.
+ */
+@Ignore("Timing harness, run manually")
+public class ParserBenchmark {
+
+    @Test
+    public void smartWithFallbackOnLongSheet() {
+        Parser.clearRangeHints();
+        Map<Integer, String> answerKey = new HashMap<>();
+        String text = ParserTest.longSheet(answerKey);
+
+        for (int i = 0; i < 200; i++) {
+            Parser.parseOcrTextSmartWithFallback(text, answerKey);
+        }
+        int runs = 500;
+        long time = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            Parser.parseOcrTextSmartWithFallback(text, answerKey);
+        }
+        time = System.nanoTime() - time;
+
+        System.out.println(String.format("parseOcrTextSmartWithFallback 60 items: %.3f ms", time / 1e6 / runs));
+    }
+}
@@ -2,6 +2,8 @@ package com.bandecoot.itemscoreanalysisprogram;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -588,6 +590,37 @@ public class ParserTest {
         assertEquals("C", parsed.get(3));
     }
     
+    @Test
+    public void answerKeyAndHintChangesApplyOnNextParse() {
+        Parser.clearRangeHints();
+        String text = "21. T\n22. Maybe";
+
+        Map<Integer, String> answerKey = new HashMap<>();
+        answerKey.put(21, "TRUE");
+        answerKey.put(22, "FALSE");
+
+        assertEquals("T", Parser.parseOcrTextSmartWithFallback(text, answerKey).get(21));
+        assertNull(Parser.parseOcrTextToAnswersSmart(text, answerKey).get(22));
+
+        // Hints set after a parse apply to the same key
+        List<RangeHint> hints = new ArrayList<>();
+        hints.add(new RangeHint(21, 30, RangeHint.QuestionType.TRUE_FALSE));
+        Parser.setRangeHintsList(hints);
+        assertEquals("TRUE", Parser.parseOcrTextSmartWithFallback(text, answerKey).get(21));
+
+        // Editing the key in place updates the allowed set and the questions
+        answerKey.put(22, "Maybe");
+        answerKey.put(23, "TRUE");
+        assertEquals("Maybe", Parser.parseOcrTextToAnswersSmart(text, answerKey).get(22));
+        LinkedHashMap<Integer, String> filtered =
+                Parser.filterToAnswerKey(Parser.parseOcrTextSmartWithFallback(text, answerKey), answerKey);
+        assertEquals(3, filtered.size());
+        assertEquals("", filtered.get(23));
+
+        Parser.clearRangeHints();
+        assertEquals("T", Parser.parseOcrTextSmartWithFallback(text, answerKey).get(21));
+    }
+
     @Test
     public void rangeHints_emptyHintsJsonDisablesHints() {
         Parser.setRangeHintsList(new ArrayList<RangeHint>());
@@ -606,4 +639,104 @@ public class ParserTest {
         
         Parser.clearRangeHints();
     }
+    
+    @Test
+    public void parseOcrTextSmartWithFallback_concurrentCallersAgree() throws Exception {
+        Parser.clearRangeHints();
+        // Numbering lost after item 1: robust stays short, so gap-tolerant runs on a helper
+        String text = "1. A\nB\nC\nD\n";
+        Map<Integer, String> answerKey = new HashMap<>();
+        answerKey.put(1, "A");
+        answerKey.put(2, "B");
+        answerKey.put(3, "C");
+        answerKey.put(4, "D");
+        LinkedHashMap<Integer, String> expected = Parser.parseOcrTextSmartWithFallback(text, answerKey);
+        assertEquals("B", expected.get(2));
+        assertEquals("D", expected.get(4));
+
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = java.util.Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 6; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        assertEquals(expected, Parser.parseOcrTextSmartWithFallback(text, answerKey));
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(new ArrayList<Throwable>(), failures);
+    }
+
+    /**
+     * Header, instructions, then 60 items in the formats the fixtures above cover.
+     * Fills {@code answerKey} with the matching key.
+     */
+    static String longSheet(Map<Integer, String> answerKey) {
+        StringBuilder sb = new StringBuilder("LYCEUM OF ALABANG\nName: Juan\nINSTRUCTIONS: Write the letter\n");
+        String[] letters = {"A", "B", "C", "D"};
+        for (int q = 1; q <= 60; q++) {
+            String answer = q % 10 == 0 ? "Photosynthesis" : letters[q % 4];
+            answerKey.put(q, answer);
+            if (q % 3 == 0) {
+                sb.append(q).append(".").append(answer).append(" ");
+            } else if (q % 5 == 0) {
+                sb.append(answer).append(" ").append(q).append(".\n");
+            } else {
+                sb.append(q).append(") ").append(answer).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void parseOcrTextSmartWithFallback_longMixedSheet() {
+        Parser.clearRangeHints();
+        Map<Integer, String> answerKey = new HashMap<>();
+        String text = longSheet(answerKey);
+
+        LinkedHashMap<Integer, String> parsed = Parser.parseOcrTextSmartWithFallback(text, answerKey);
+
+        assertEquals("B", parsed.get(1));
+        assertEquals("Photosynthesis", parsed.get(20));
+        assertEquals("D", parsed.get(59));
+    }
+
+    /** Best of five parses of one line holding {@code items} "N.B" items, in nanoseconds. */
+    private static long timeOneLineSheet(int items, Map<Integer, String> answerKey) {
+        StringBuilder sb = new StringBuilder();
+        for (int q = 1; q <= items; q++) {
+            sb.append(q).append(".B ");
+        }
+        String text = sb.toString();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long time = System.nanoTime();
+            Parser.parseOcrTextSmartWithFallback(text, answerKey);
+            best = Math.min(best, System.nanoTime() - time);
+        }
+        return best;
+    }
+
+    @Test
+    public void parseOcrTextSmartWithFallback_scalesLinearlyWithLineLength() {
+        Parser.clearRangeHints();
+        Map<Integer, String> answerKey = new HashMap<>();
+        for (int q = 1; q <= 60; q++) {
+            answerKey.put(q, "B");
+        }
+        timeOneLineSheet(2000, answerKey); // Warm up
+
+        // Eight times the items: about 8x when linear, about 64x when cutting the line is quadratic
+        long small = timeOneLineSheet(2000, answerKey);
+        long large = timeOneLineSheet(16000, answerKey);
+        assertTrue(small + " ns -> " + large + " ns", large < small * 20);
+    }
 }
@@ -0,0 +1,149 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PreprocessBackendParityTest {
+
+    /**
+     * Per-pixel implementation written the way the compute shaders work: each output pixel is
+     * computed independently from an untouched copy of the input.
+     */
+    private static class PerPixelBackend implements PreprocessBackend {
+        @Override
+        public String name() {
+            return "per-pixel";
+        }
+
+        @Override
+        public void gray(int[] argb, boolean deYellow, GrayImage out) {
+            for (int i = 0; i < out.width * out.height; i++) {
+                int r = (argb[i] >> 16) & 0xFF;
+                int g = (argb[i] >> 8) & 0xFF;
+                int b = argb[i] & 0xFF;
+                if (deYellow) {
+                    r = Math.min(255, (r * 85 + 50) / 100);
+                    g = Math.min(255, (g * 85 + 50) / 100);
+                    b = Math.min(255, (b * 6 + 2) / 5);
+                }
+                out.pixels[i] = (byte) ((55 * r + 183 * g + 18 * b + 128) >> 8);
+            }
+        }
+
+        @Override
+        public void applyTable(GrayImage image, byte[] table) {
+            for (int i = 0; i < image.width * image.height; i++) {
+                image.pixels[i] = table[image.pixels[i] & 0xFF];
+            }
+        }
+
+        @Override
+        public int[] mapAndCount(GrayImage image, byte[] table) {
+            applyTable(image, table);
+            int[] histogram = new int[256];
+            for (int i = 0; i < image.width * image.height; i++) {
+                histogram[image.pixels[i] & 0xFF]++;
+            }
+            return histogram;
+        }
+
+        @Override
+        public void sharpen(GrayImage image, byte[] table) {
+            int width = image.width;
+            int height = image.height;
+            byte[] src = image.pixels.clone();
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    int v = src[i] & 0xFF;
+                    if (y > 0 && y + 1 < height && x > 0 && x + 1 < width) {
+                        int sharp = 5 * v - (src[i - width] & 0xFF) - (src[i + width] & 0xFF)
+                                - (src[i - 1] & 0xFF) - (src[i + 1] & 0xFF);
+                        v = Math.max(0, Math.min(255, sharp));
+                    }
+                    image.pixels[i] = table[v];
+                }
+            }
+        }
+    }
+
+    @Test
+    public void javaBackend_matchesItself() {
+        assertNull(PreprocessBackendParity.check(PreprocessKernels.JAVA, PreprocessKernels.JAVA));
+    }
+
+    @Test
+    public void perPixelBackend_matchesJavaReference() {
+        assertNull(PreprocessBackendParity.check(PreprocessKernels.JAVA, new PerPixelBackend()));
+    }
+
+    @Test
+    public void perPixelBackend_matchesBandedReference() {
+        StripedExecutor.bandsOverride = 3;
+        try {
+            assertNull(PreprocessBackendParity.check(PreprocessKernels.JAVA, new PerPixelBackend()));
+        } finally {
+            StripedExecutor.bandsOverride = 0;
+        }
+    }
+
+    @Test
+    public void sharpenBorderMistake_isReported() {
+        PreprocessBackend broken = new PerPixelBackend() {
+            @Override
+            public void sharpen(GrayImage image, byte[] table) {
+                // Sharpens the last column too, reading into the next row
+                int width = image.width;
+                byte[] src = image.pixels.clone();
+                super.sharpen(image, table);
+                for (int y = 1; y + 1 < image.height; y++) {
+                    int i = y * width + width - 1;
+                    if (width < 2 || i + 1 >= src.length) continue;
+                    int sharp = 5 * (src[i] & 0xFF) - (src[i - width] & 0xFF) - (src[i + width] & 0xFF)
+                            - (src[i - 1] & 0xFF) - (src[i + 1] & 0xFF);
+                    image.pixels[i] = table[Math.max(0, Math.min(255, sharp))];
+                }
+            }
+        };
+        String mismatch = PreprocessBackendParity.check(PreprocessKernels.JAVA, broken);
+        assertNotNull(mismatch);
+        assertTrue(mismatch, mismatch.startsWith("sharpen"));
+    }
+
+    @Test
+    public void deYellowMistake_isReported() {
+        PreprocessBackend broken = new PerPixelBackend() {
+            @Override
+            public void gray(int[] argb, boolean deYellow, GrayImage out) {
+                super.gray(argb, false, out);
+            }
+        };
+        assertEquals("gray(deYellow=true) at 67x45", PreprocessBackendParity.check(PreprocessKernels.JAVA, broken));
+    }
+
+    @Test
+    public void kernels_matchAcrossBackends() {
+        int width = 90;
+        int height = 70;
+        int[] argb = PreprocessBackendParity.testPixels(width, height);
+        PreprocessBackend perPixel = new PerPixelBackend();
+
+        GrayImage expected = GrayImage.fromArgb(argb, width, height, true);
+        GrayImage actual = new GrayImage(width, height);
+        perPixel.gray(argb, true, actual);
+        PreprocessKernels.classroom(expected);
+        PreprocessKernels.classroom(actual, perPixel);
+        assertArrayEquals(expected.pixels, actual.pixels);
+
+        expected = GrayImage.fromArgb(argb, width, height, false);
+        actual = GrayImage.fromArgb(argb, width, height, false);
+        PreprocessKernels.sharpened(expected);
+        PreprocessKernels.sharpened(actual, perPixel);
+        assertArrayEquals(expected.pixels, actual.pixels);
+    }
+}
@@ -0,0 +1,47 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static com.bandecoot.itemscoreanalysisprogram.PreprocessKernelsTest.enhanceContrast;
+import static com.bandecoot.itemscoreanalysisprogram.PreprocessKernelsTest.fused;
+import static com.bandecoot.itemscoreanalysisprogram.PreprocessKernelsTest.integerGray;
+import static com.bandecoot.itemscoreanalysisprogram.PreprocessKernelsTest.otsu;
+import static com.bandecoot.itemscoreanalysisprogram.PreprocessKernelsTest.paperImage;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Timing harness comparing the fused classroom kernel with the staged chain it replaced.
+ * Not part of the unit suite; remove the {@code @Ignore} locally to run it.
+ */
+@Ignore("Timing harness, run manually")
+public class PreprocessKernelsBenchmark {
+
+    @Test
+    public void fusedVsStaged() {
+        int width = 1024, height = 1024;
+        int[] src = paperImage(width, height);
+
+        // Warm up both paths
+        for (int i = 0; i < 3; i++) {
+            otsu(enhanceContrast(integerGray(src, true)));
+            fused(src, width, height, true, PreprocessKernels::classroom);
+        }
+
+        int runs = 5;
+        long staged = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            otsu(enhanceContrast(integerGray(src, true)));
+        }
+        staged = System.nanoTime() - staged;
+
+        long fusedTime = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            GrayImage image = GrayImage.fromArgb(src, width, height, true);
+            PreprocessKernels.classroom(image);
+        }
+        fusedTime = System.nanoTime() - fusedTime;
+
+        System.out.println(String.format("classroom %dx%d: staged %.1f ms, fused %.1f ms",
+                width, height, staged / 1e6 / runs, fusedTime / 1e6 / runs));
+    }
+}
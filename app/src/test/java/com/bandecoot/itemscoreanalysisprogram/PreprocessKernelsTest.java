@@ -0,0 +1,378 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+/**
+ * Checks the fused kernels against the original stage-by-stage chains, where every stage
+ * allocates a full ARGB intermediate exactly like the old ImagePreprocessor code did.
+ * Canvas/ColorMatrix stages are modelled per channel with PreprocessKernels.matrix.
+ * Both paths start from the same integer grayscale; the float grayscale it replaced is
+ * checked separately to stay within one level.
+ */
+public class PreprocessKernelsTest {
+
+    // ---- Reference stages (one full-size ARGB array per stage) ----
+
+    private static int[] colorMatrixStage(int[] src, float[] m) {
+        int[] out = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            int r = (src[i] >> 16) & 0xFF, g = (src[i] >> 8) & 0xFF, b = src[i] & 0xFF;
+            int nr = PreprocessKernels.matrix(m[0] * r + m[1] * g + m[2] * b + m[4]);
+            int ng = PreprocessKernels.matrix(m[5] * r + m[6] * g + m[7] * b + m[9]);
+            int nb = PreprocessKernels.matrix(m[10] * r + m[11] * g + m[12] * b + m[14]);
+            out[i] = 0xFF000000 | (nr << 16) | (ng << 8) | nb;
+        }
+        return out;
+    }
+
+    private static int[] deYellow(int[] src) {
+        return colorMatrixStage(src, new float[]{0.85f, 0, 0, 0, 0, 0, 0.85f, 0, 0, 0, 0, 0, 1.2f, 0, 0});
+    }
+
+    private static int[] toGrayscale(int[] src) {
+        float r = 0.213f, g = 0.715f, b = 0.072f;
+        return colorMatrixStage(src, new float[]{r, g, b, 0, 0, r, g, b, 0, 0, r, g, b, 0, 0});
+    }
+
+    static int[] enhanceContrast(int[] src) {
+        return colorMatrixStage(src, new float[]{1.5f, 0, 0, 0, -64, 0, 1.5f, 0, 0, -64, 0, 0, 1.5f, 0, -64});
+    }
+
+    private static int[] ultraContrast(int[] src) {
+        return colorMatrixStage(src, new float[]{2f, 0, 0, 0, -128, 0, 2f, 0, 0, -128, 0, 0, 2f, 0, -128});
+    }
+
+    /** Luminance of a gray ARGB pixel (integer pipeline: the gray level itself). */
+    private static int luma(int c) {
+        return (c >> 16) & 0xFF;
+    }
+
+    static int[] integerGray(int[] src, boolean deYellow) {
+        int[] out = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            int v = deYellow ? GrayImage.deYellowLuma(src[i]) : GrayImage.luma(src[i]);
+            out[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+        return out;
+    }
+
+    static int[] fused(int[] src, int width, int height, boolean deYellow,
+                       Consumer<GrayImage> kernel) {
+        GrayImage image = GrayImage.fromArgb(src, width, height, deYellow);
+        kernel.accept(image);
+        return image.toArgb();
+    }
+
+    static int[] otsu(int[] src) {
+        int[] gray = new int[src.length];
+        int[] histogram = new int[256];
+        for (int i = 0; i < src.length; i++) {
+            gray[i] = luma(src[i]);
+            histogram[gray[i]]++;
+        }
+        int threshold = PreprocessKernels.otsuThreshold(histogram, src.length);
+        int[] out = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            out[i] = gray[i] < threshold ? 0xFF000000 : 0xFFFFFFFF;
+        }
+        return out;
+    }
+
+    private static int[] sharpen(int[] px, int width, int height) {
+        int[] out = new int[px.length];
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int idx = y * width + x;
+                int v = 5 * ((px[idx] >> 16) & 0xFF)
+                        - ((px[idx - width] >> 16) & 0xFF) - ((px[idx + width] >> 16) & 0xFF)
+                        - ((px[idx - 1] >> 16) & 0xFF) - ((px[idx + 1] >> 16) & 0xFF);
+                v = Math.max(0, Math.min(255, v));
+                out[idx] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            out[x] = px[x];
+            out[(height - 1) * width + x] = px[(height - 1) * width + x];
+        }
+        for (int y = 0; y < height; y++) {
+            out[y * width] = px[y * width];
+            out[y * width + width - 1] = px[y * width + width - 1];
+        }
+        return out;
+    }
+
+    /** CLAHE straight from the definition: per-pixel tile lookup and bilinear blend. */
+    private static int[] clahe(int[] px, int width, int height) {
+        int tilesX = Math.min(PreprocessKernels.CLAHE_TILES, width);
+        int tilesY = Math.min(PreprocessKernels.CLAHE_TILES, height);
+        byte[][] luts = new byte[tilesX * tilesY][];
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int x0 = tx * width / tilesX, x1 = (tx + 1) * width / tilesX;
+                int y0 = ty * height / tilesY, y1 = (ty + 1) * height / tilesY;
+                int[] histogram = new int[256];
+                for (int y = y0; y < y1; y++) {
+                    for (int x = x0; x < x1; x++) histogram[luma(px[y * width + x])]++;
+                }
+                luts[ty * tilesX + tx] = PreprocessKernels.claheLut(histogram, (x1 - x0) * (y1 - y0));
+            }
+        }
+        int[] out = new int[px.length];
+        for (int y = 0; y < height; y++) {
+            float gy = (y + 0.5f) * tilesY / height - 0.5f;
+            int ty = (int) Math.floor(gy);
+            int t0 = Math.max(0, ty), t1 = Math.min(tilesY - 1, ty + 1);
+            float wy = Math.max(0f, Math.min(1f, gy - ty));
+            for (int x = 0; x < width; x++) {
+                float gx = (x + 0.5f) * tilesX / width - 0.5f;
+                int tx = (int) Math.floor(gx);
+                int l = Math.max(0, tx), r = Math.min(tilesX - 1, tx + 1);
+                float wx = Math.max(0f, Math.min(1f, gx - tx));
+                int v = luma(px[y * width + x]);
+                float top = (1f - wx) * (luts[t0 * tilesX + l][v] & 0xFF) + wx * (luts[t0 * tilesX + r][v] & 0xFF);
+                float bottom = (1f - wx) * (luts[t1 * tilesX + l][v] & 0xFF) + wx * (luts[t1 * tilesX + r][v] & 0xFF);
+                int g = (int) ((1f - wy) * top + wy * bottom + 0.5f);
+                out[y * width + x] = 0xFF000000 | (g << 16) | (g << 8) | g;
+            }
+        }
+        return out;
+    }
+
+    // ---- Test images ----
+
+    private static int[] randomImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] px = new int[width * height];
+        for (int i = 0; i < px.length; i++) {
+            px[i] = 0xFF000000 | (random.nextInt() & 0xFFFFFF);
+        }
+        return px;
+    }
+
+    /** Yellow pad with dark pen strokes and a lighting gradient. */
+    static int[] paperImage(int width, int height) {
+        int[] px = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int shade = 40 * x / Math.max(1, width - 1);
+                int r = 250 - shade, g = 235 - shade, b = 150 - shade / 2;
+                if ((x / 3 + y / 5) % 7 == 0 || (y % 11 == 0 && x % 13 < 8)) {
+                    r = 40; g = 40; b = 60;
+                }
+                px[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return px;
+    }
+
+    private static void assertAllVariantsMatch(int[] src, int width, int height) {
+        assertArrayEquals("classroom", otsu(enhanceContrast(integerGray(src, true))),
+                fused(src, width, height, true, PreprocessKernels::classroom));
+        assertArrayEquals("light", enhanceContrast(integerGray(src, false)),
+                fused(src, width, height, false, PreprocessKernels::light));
+        assertArrayEquals("ultra_contrast", ultraContrast(integerGray(src, false)),
+                fused(src, width, height, false, PreprocessKernels::ultraContrast));
+        assertArrayEquals("grayscale", integerGray(src, false),
+                fused(src, width, height, false, image -> { }));
+        assertArrayEquals("sharpened", enhanceContrast(sharpen(integerGray(src, false), width, height)),
+                fused(src, width, height, false, PreprocessKernels::sharpened));
+        assertArrayEquals("adaptive_histogram", clahe(integerGray(src, false), width, height),
+                fused(src, width, height, false, PreprocessKernels::adaptiveHistogram));
+    }
+
+    @Test
+    public void integerGray_isWithinOneLevelOfFloatColorMatrix() {
+        int[] colors = randomImage(256, 256, 11);
+        int[] floatGray = toGrayscale(colors);
+        int[] floatDeYellowGray = toGrayscale(deYellow(colors));
+        for (int i = 0; i < colors.length; i++) {
+            int expected = floatGray[i] & 0xFF;
+            assertTrue(Math.abs(GrayImage.luma(colors[i]) - expected) <= 1);
+            int expectedDeYellow = floatDeYellowGray[i] & 0xFF;
+            assertTrue(Math.abs(GrayImage.deYellowLuma(colors[i]) - expectedDeYellow) <= 1);
+        }
+    }
+
+    @Test
+    public void grayImage_argbRoundTripAndOneBytePerPixel() {
+        int[] src = integerGray(randomImage(13, 9, 5), false);
+        GrayImage image = GrayImage.fromArgb(src, 13, 9, false);
+        assertEquals(13 * 9, image.pixels.length);
+        assertArrayEquals(src, image.toArgb());
+    }
+
+    @Test
+    public void fusedKernels_matchStagedChains_randomImage() {
+        assertAllVariantsMatch(randomImage(67, 41, 7), 67, 41);
+    }
+
+    @Test
+    public void fusedKernels_matchStagedChains_paperImage() {
+        assertAllVariantsMatch(paperImage(120, 90), 120, 90);
+    }
+
+    @Test
+    public void fusedKernels_matchStagedChains_degenerateSizes() {
+        assertAllVariantsMatch(randomImage(1, 1, 1), 1, 1);
+        assertAllVariantsMatch(randomImage(2, 5, 2), 2, 5);
+        assertAllVariantsMatch(randomImage(5, 2, 3), 5, 2);
+    }
+
+    @Test
+    public void fusedKernels_matchStagedChains_inRowBands() {
+        // Force splitting (uneven bands, including one-row bands) regardless of the core count
+        for (int bands : new int[]{2, 3, 7, 90}) {
+            StripedExecutor.bandsOverride = bands;
+            try {
+                assertAllVariantsMatch(paperImage(120, 90), 120, 90);
+                assertAllVariantsMatch(randomImage(67, 41, bands), 67, 41);
+            } finally {
+                StripedExecutor.bandsOverride = 0;
+            }
+        }
+    }
+
+    /** Direct window mean per pixel, O(window) each. */
+    private static int[] naiveAdaptiveThreshold(int[] gray, int width, int height) {
+        int half = Math.max(1, Math.max(width, height) / PreprocessKernels.ADAPTIVE_WINDOW_DIVISOR) / 2;
+        int[] out = new int[gray.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long sum = 0;
+                int count = 0;
+                for (int wy = Math.max(0, y - half); wy <= Math.min(height - 1, y + half); wy++) {
+                    for (int wx = Math.max(0, x - half); wx <= Math.min(width - 1, x + half); wx++) {
+                        sum += luma(gray[wy * width + wx]);
+                        count++;
+                    }
+                }
+                boolean dark = (long) luma(gray[y * width + x]) * count * 100
+                        <= sum * (100 - PreprocessKernels.ADAPTIVE_T_PERCENT);
+                out[y * width + x] = dark ? 0xFF000000 : 0xFFFFFFFF;
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void adaptiveThreshold_matchesDirectWindowMeans() {
+        for (int bands : new int[]{0, 5}) {
+            StripedExecutor.bandsOverride = bands;
+            try {
+                int[] src = paperImage(97, 61);
+                assertArrayEquals(naiveAdaptiveThreshold(integerGray(src, true), 97, 61),
+                        fused(src, 97, 61, true, PreprocessKernels::adaptiveThreshold));
+                src = randomImage(33, 40, 4);
+                assertArrayEquals(naiveAdaptiveThreshold(integerGray(src, true), 33, 40),
+                        fused(src, 33, 40, true, PreprocessKernels::adaptiveThreshold));
+            } finally {
+                StripedExecutor.bandsOverride = 0;
+            }
+        }
+    }
+
+    @Test
+    public void adaptiveThreshold_keepsStrokesUnderShadow() {
+        int width = 200, height = 120;
+        int[] src = paperImage(width, height);
+        boolean[] stroke = new boolean[src.length];
+        for (int i = 0; i < src.length; i++) {
+            stroke[i] = (src[i] & 0xFFFFFF) == 0x28283C;
+            if (i % width < width / 2) {
+                // Shadow over the left half: everything at 35% brightness
+                int r = ((src[i] >> 16) & 0xFF) * 35 / 100;
+                int g = ((src[i] >> 8) & 0xFF) * 35 / 100;
+                int b = (src[i] & 0xFF) * 35 / 100;
+                src[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+
+        int[] adaptive = fused(src, width, height, true, PreprocessKernels::adaptiveThreshold);
+        int[] global = fused(src, width, height, true, PreprocessKernels::classroom);
+        // Only judge pixels whose window lies entirely in the shadow
+        int shadowEnd = width / 2 - width / PreprocessKernels.ADAPTIVE_WINDOW_DIVISOR;
+        int adaptiveErrors = 0, globalErrors = 0, shadowPixels = 0;
+        for (int i = 0; i < src.length; i++) {
+            if (i % width >= shadowEnd) continue;
+            shadowPixels++;
+            if ((adaptive[i] == 0xFF000000) != stroke[i]) adaptiveErrors++;
+            if ((global[i] == 0xFF000000) != stroke[i]) globalErrors++;
+        }
+        assertTrue("adaptive errors " + adaptiveErrors, adaptiveErrors < shadowPixels / 20);
+        assertTrue("global errors " + globalErrors, globalErrors > shadowPixels / 2);
+    }
+
+    @Test
+    public void claheLut_withoutClippingIsPlainEqualization() {
+        int[] histogram = new int[256];
+        histogram[10] = 3;
+        histogram[200] = 1;
+        // 4 pixels: clip limit is max(1, 3 * 4 / 256) = 1, so spread pixels keep their counts
+        int[] spread = new int[256];
+        for (int v = 0; v < 256; v++) spread[v] = 1;
+        byte[] lut = PreprocessKernels.claheLut(spread, 256);
+        for (int v = 0; v < 256; v++) {
+            assertEquals(((v + 1) * 255 + 128) / 256, lut[v] & 0xFF);
+        }
+
+        // Clipped mass is redistributed: the table still ends at 255 and never decreases
+        lut = PreprocessKernels.claheLut(histogram, 4);
+        assertEquals(255, lut[255] & 0xFF);
+        for (int v = 1; v < 256; v++) {
+            assertTrue((lut[v - 1] & 0xFF) <= (lut[v] & 0xFF));
+        }
+    }
+
+    @Test
+    public void adaptiveHistogram_stretchesContrastInsideShadow() {
+        int width = 160, height = 160;
+        int[] src = paperImage(width, height);
+        for (int i = 0; i < src.length; i++) {
+            if (i % width < width / 2) {
+                int r = ((src[i] >> 16) & 0xFF) * 30 / 100;
+                int g = ((src[i] >> 8) & 0xFF) * 30 / 100;
+                int b = (src[i] & 0xFF) * 30 / 100;
+                src[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        // Clipping bounds the gain, so the shadowed strokes gain roughly half again in contrast
+        int[] before = integerGray(src, false);
+        int[] after = fused(src, width, height, false, PreprocessKernels::adaptiveHistogram);
+        int rangeBefore = rangeInLeftQuarter(before, width, height);
+        int rangeAfter = rangeInLeftQuarter(after, width, height);
+        assertTrue(rangeBefore + " -> " + rangeAfter, rangeAfter * 10 > rangeBefore * 13);
+    }
+
+    /** Spread between dark and light levels well inside the left (shadowed) half. */
+    private static int rangeInLeftQuarter(int[] px, int width, int height) {
+        int min = 255, max = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width / 4; x++) {
+                int v = luma(px[y * width + x]);
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+        return max - min;
+    }
+
+    @Test
+    public void classroom_fullSizePage_matchesStagedChain() {
+        // Large enough to span several row bands
+        int width = 1024, height = 1024;
+        int[] src = paperImage(width, height);
+
+        int[] expected = otsu(enhanceContrast(integerGray(src, true)));
+        GrayImage image = GrayImage.fromArgb(src, width, height, true);
+        PreprocessKernels.classroom(image);
+
+        assertArrayEquals(expected, image.toArgb());
+    }
+}
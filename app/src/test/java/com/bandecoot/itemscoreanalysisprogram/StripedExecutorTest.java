@@ -0,0 +1,61 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class StripedExecutorTest {
+
+    @Test
+    public void forEachBand_coversEveryRowExactlyOnce() {
+        for (int bands : new int[]{1, 2, 5, 8}) {
+            int height = 37;
+            int[] visits = new int[height];
+            StripedExecutor.forEachBand(height, bands, (band, startRow, endRow) -> {
+                for (int y = startRow; y < endRow; y++) {
+                    synchronized (visits) {
+                        visits[y]++;
+                    }
+                }
+            });
+            for (int y = 0; y < height; y++) {
+                assertEquals("row " + y + " with " + bands + " bands", 1, visits[y]);
+            }
+        }
+    }
+
+    @Test
+    public void bandCount_doesNotSplitSmallImages() {
+        assertEquals(1, StripedExecutor.bandCount(StripedExecutor.MIN_ROWS_PER_BAND - 1));
+        assertEquals(1, StripedExecutor.bandCount(1));
+    }
+
+    @Test
+    public void forEachBand_rethrowsBandFailure() {
+        RuntimeException boom = new IllegalStateException("boom");
+        AtomicInteger ran = new AtomicInteger();
+        try {
+            StripedExecutor.forEachBand(40, 4, (band, startRow, endRow) -> {
+                ran.incrementAndGet();
+                if (band == 2) throw boom;
+            });
+            fail("Expected the band failure to propagate");
+        } catch (IllegalStateException e) {
+            assertSame(boom, e);
+        }
+        assertEquals(4, ran.get());
+    }
+
+    @Test
+    public void forEachBand_nestedCallsComplete() {
+        AtomicInteger rows = new AtomicInteger();
+        StripedExecutor.forEachBand(8, 4, (outer, outerStart, outerEnd) ->
+                StripedExecutor.forEachBand(10, 3, (inner, innerStart, innerEnd) ->
+                        rows.addAndGet(innerEnd - innerStart)));
+        assertEquals(40, rows.get());
+    }
+}
@@ -0,0 +1,113 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class VariantOrderPolicyTest {
+
+    private static final List<String> PLANNED = Arrays.asList("classroom", "adaptive_threshold", "light", "original");
+
+    private static class MemoryStore implements VariantOrderPolicy.Store {
+        String data;
+
+        @Override
+        public String load() {
+            return data;
+        }
+
+        @Override
+        public void save(String data) {
+            this.data = data;
+        }
+    }
+
+    @Test
+    public void noHistory_keepsPlannedOrder() {
+        VariantOrderPolicy policy = new VariantOrderPolicy(new MemoryStore());
+        assertEquals(PLANNED, policy.order("default", PLANNED));
+    }
+
+    @Test
+    public void repeatedWinner_movesToFront() {
+        VariantOrderPolicy policy = new VariantOrderPolicy(new MemoryStore());
+        for (int i = 0; i < 3; i++) {
+            policy.record("default", Arrays.asList("classroom", "adaptive_threshold", "light"), "light");
+        }
+        List<String> ordered = policy.order("default", PLANNED);
+        assertEquals("light", ordered.get(0));
+        assertEquals(PLANNED.size(), ordered.size());
+        assertTrue(ordered.containsAll(PLANNED));
+    }
+
+    @Test
+    public void singleWin_doesNotOverturnPrior() {
+        VariantOrderPolicy policy = new VariantOrderPolicy(new MemoryStore());
+        policy.record("default", Collections.singletonList("original"), "original");
+        // One lucky scan is not enough to beat the well-tested first choice with a fresh record
+        policy.record("default", Collections.singletonList("classroom"), "classroom");
+        assertEquals("classroom", policy.order("default", PLANNED).get(0));
+    }
+
+    @Test
+    public void prunedLeader_losesRank() {
+        VariantOrderPolicy policy = new VariantOrderPolicy(new MemoryStore());
+        for (int i = 0; i < 3; i++) {
+            policy.record("default", Arrays.asList("classroom", "light"), "classroom");
+        }
+        assertEquals("classroom", policy.order("default", PLANNED).get(0));
+        // Pre-scoring drops the leader; it is recorded alongside the variants that ran
+        for (int i = 0; i < 4; i++) {
+            policy.record("default", Arrays.asList("light", "classroom"), "light");
+        }
+        assertEquals("light", policy.order("default", PLANNED).get(0));
+    }
+
+    @Test
+    public void buckets_areIndependent() {
+        VariantOrderPolicy policy = new VariantOrderPolicy(new MemoryStore());
+        for (int i = 0; i < 5; i++) {
+            policy.record("blurry", Arrays.asList("classroom", "original"), "original");
+        }
+        assertEquals("original", policy.order("blurry", PLANNED).get(0));
+        assertEquals(PLANNED, policy.order("good", PLANNED));
+    }
+
+    @Test
+    public void counts_areHalvedAfterMaxTrials() {
+        VariantOrderPolicy policy = new VariantOrderPolicy(new MemoryStore());
+        for (int i = 0; i <= VariantOrderPolicy.MAX_TRIALS; i++) {
+            policy.record("default", Collections.singletonList("light"), "light");
+        }
+        int[] counts = policy.counts("default", "light");
+        assertEquals((VariantOrderPolicy.MAX_TRIALS + 1) / 2, counts[1]);
+        assertEquals(counts[1], counts[0]);
+    }
+
+    @Test
+    public void statistics_surviveReload() {
+        MemoryStore store = new MemoryStore();
+        VariantOrderPolicy policy = new VariantOrderPolicy(store);
+        policy.record("low_light", Arrays.asList("ultra_contrast", "sharpened"), "sharpened");
+        policy.record("low_light", Arrays.asList("ultra_contrast", "sharpened"), "sharpened");
+
+        VariantOrderPolicy reloaded = new VariantOrderPolicy(store);
+        assertArrayEquals(new int[]{2, 2}, reloaded.counts("low_light", "sharpened"));
+        assertArrayEquals(new int[]{0, 2}, reloaded.counts("low_light", "ultra_contrast"));
+    }
+
+    @Test
+    public void malformedStore_isIgnored() {
+        MemoryStore store = new MemoryStore();
+        store.data = "garbage\nlow_light\tlight\tx\t2\ngood\tlight\t1\t3\n";
+        VariantOrderPolicy policy = new VariantOrderPolicy(store);
+        assertArrayEquals(new int[]{0, 0}, policy.counts("low_light", "light"));
+        assertArrayEquals(new int[]{1, 3}, policy.counts("good", "light"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VariantPreScorerTest {
+    private static final int WIDTH = 240;
+    private static final int HEIGHT = 320;
+
+    /** White page with a column of small "numbers" on the left and answer strokes to the right. */
+    private static GrayImage answerSheet() {
+        GrayImage page = new GrayImage(WIDTH, HEIGHT);
+        Arrays.fill(page.pixels, (byte) 235);
+        for (int q = 0; q < 15; q++) {
+            int top = 10 + q * 20;
+            fill(page, 8, top, 4, 8, 30);     // digit
+            fill(page, 15, top + 6, 2, 2, 30); // period
+            fill(page, 80, top + 3, 40, 2, 30); // written answer
+            fill(page, 125, top, 2, 8, 30);
+        }
+        return page;
+    }
+
+    private static void fill(GrayImage image, int x0, int y0, int w, int h, int value) {
+        for (int y = y0; y < y0 + h; y++) {
+            for (int x = x0; x < x0 + w; x++) {
+                image.pixels[y * image.width + x] = (byte) value;
+            }
+        }
+    }
+
+    @Test
+    public void score_prefersCleanSheetOverNoiseAndBlankPages() {
+        float sheet = VariantPreScorer.score(answerSheet(), 15);
+
+        GrayImage noise = new GrayImage(WIDTH, HEIGHT);
+        new Random(3).nextBytes(noise.pixels);
+        GrayImage blank = new GrayImage(WIDTH, HEIGHT);
+        Arrays.fill(blank.pixels, (byte) 240);
+        GrayImage black = new GrayImage(WIDTH, HEIGHT);
+
+        assertTrue(sheet > 0.6f);
+        assertTrue(sheet > VariantPreScorer.score(noise, 15) + 0.2f);
+        assertTrue(sheet > VariantPreScorer.score(blank, 15) + 0.5f);
+        assertTrue(sheet > VariantPreScorer.score(black, 15) + 0.5f);
+    }
+
+    @Test
+    public void score_isInUnitRange() {
+        GrayImage noise = new GrayImage(50, 50);
+        new Random(8).nextBytes(noise.pixels);
+        for (GrayImage image : new GrayImage[]{answerSheet(), noise, new GrayImage(1, 1)}) {
+            float score = VariantPreScorer.score(image, 0);
+            assertTrue(score >= 0f && score <= 1f);
+        }
+    }
+
+    @Test
+    public void countDigitComponents_onlyCountsDigitSizedBlobsInsideTheColumn() {
+        int width = 40, height = 30;
+        boolean[] ink = new boolean[width * height];
+        // Two digit-sized blobs inside the column, one that crosses its edge, one speck
+        mark(ink, width, 1, 1, 3, 5);
+        mark(ink, width, 1, 10, 2, 6);
+        mark(ink, width, 6, 20, 8, 4);
+        mark(ink, width, 5, 2, 1, 1);
+        assertEquals(2, VariantPreScorer.countDigitComponents(ink, width, height, 10));
+    }
+
+    private static void mark(boolean[] ink, int width, int x0, int y0, int w, int h) {
+        for (int y = y0; y < y0 + h; y++) {
+            for (int x = x0; x < x0 + w; x++) {
+                ink[y * width + x] = true;
+            }
+        }
+    }
+
+    @Test
+    public void adaptiveTopK_keepsCloseScoresAndAtLeastMinimum() {
+        // Clear winner: only the minimum is kept
+        assertEquals(2, VariantPreScorer.adaptiveTopK(new float[]{0.9f, 0.3f, 0.2f, 0.4f}, 2, 0.85f));
+        // Close field: everything within 85% of the best
+        assertEquals(3, VariantPreScorer.adaptiveTopK(new float[]{0.80f, 0.75f, 0.70f, 0.2f}, 2, 0.85f));
+        // Fewer candidates than the minimum
+        assertEquals(2, VariantPreScorer.adaptiveTopK(new float[]{0.1f, 0.2f}, 3, 0.85f));
+    }
+}
@@ -0,0 +1,67 @@
+package com.bandecoot.itemscoreanalysisprogram;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VisionRequestBodyTest {
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static String write(VisionRequestBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeJson(out);
+        assertEquals(body.contentLength(), out.size());
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static String expectedRequest(byte[] jpeg, String type) {
+        return "{\"image\":{\"content\":\"" + Base64.getEncoder().encodeToString(jpeg)
+                + "\"},\"features\":[{\"type\":\"" + type + "\",\"maxResults\":1}]}";
+    }
+
+    @Test
+    public void base64_matchesJdkEncoderAcrossPaddingAndChunkBoundaries() throws Exception {
+        int[] lengths = {0, 1, 2, 3, 4, 5, 3071, 3072, 3073, 3074, 10000, 250001};
+        for (int length : lengths) {
+            byte[] data = randomBytes(length, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            VisionRequestBody.writeBase64(data, out, new byte[4096]);
+
+            assertEquals("length " + length, Base64.getEncoder().encodeToString(data),
+                    new String(out.toByteArray(), StandardCharsets.US_ASCII));
+            assertEquals(out.size(), VisionRequestBody.base64Length(length));
+        }
+    }
+
+    @Test
+    public void singleImage_producesVisionEnvelope() throws Exception {
+        byte[] jpeg = randomBytes(1000, 42);
+        VisionRequestBody body = new VisionRequestBody(
+                Collections.singletonList(jpeg), Collections.singletonList("DOCUMENT_TEXT_DETECTION"));
+
+        assertEquals("{\"requests\":[" + expectedRequest(jpeg, "DOCUMENT_TEXT_DETECTION") + "]}", write(body));
+    }
+
+    @Test
+    public void multipleImages_areCommaSeparatedInOrder() throws Exception {
+        byte[] first = randomBytes(17, 1);
+        byte[] second = randomBytes(4000, 2);
+        VisionRequestBody body = new VisionRequestBody(
+                Arrays.asList(first, second), Arrays.asList("DOCUMENT_TEXT_DETECTION", "TEXT_DETECTION"));
+
+        assertEquals("{\"requests\":[" + expectedRequest(first, "DOCUMENT_TEXT_DETECTION") + ","
+                + expectedRequest(second, "TEXT_DETECTION") + "]}", write(body));
+    }
+}